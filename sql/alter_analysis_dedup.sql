@@ -0,0 +1,15 @@
+-- =============================================
+-- 分析去重（已有库执行）
+-- paper_analysis_task 记录内容指纹、提示词版本与是否全量分析；paper_info 记录共享的 RAG chunk doc_id
+-- 已有记录无法判断是否全量分析，full_run 保持 0，不作为复用来源
+-- =============================================
+ALTER TABLE `paper_analysis_task`
+    ADD COLUMN `full_run`       tinyint     NOT NULL DEFAULT '0' COMMENT '是否全量分析 0-只重试部分维度 1-全部维度' AFTER `user_id`,
+    ADD COLUMN `text_hash`      char(64)    DEFAULT NULL COMMENT '归一化文本 SHA-256 (去空白标点、小写)' AFTER `text_sha256`,
+    ADD COLUMN `prompt_version` varchar(64) DEFAULT NULL COMMENT '分析提示词版本' AFTER `text_hash`,
+    ADD KEY `idx_textSha256` (`text_sha256`),
+    ADD KEY `idx_textHash` (`text_hash`);
+
+ALTER TABLE `paper_info`
+    ADD COLUMN `chunk_doc_id` varchar(64) DEFAULT NULL COMMENT '共享的 RAG chunk doc_id (内容重复的论文指向首次入库的论文，NULL 表示自身ID)' AFTER `publish_date`,
+    ADD KEY `idx_chunkDocId` (`chunk_doc_id`);
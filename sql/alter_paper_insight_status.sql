@@ -0,0 +1,16 @@
+-- =============================================
+-- paper_insight 增加分维度状态列（已有库执行）
+-- 0-待分析 1-已完成 2-失败；已有分析结果的记录视为已完成，
+-- 没有结果的旧记录不会再有分析任务补齐，视为失败以便在详情页单独重试
+-- =============================================
+ALTER TABLE `paper_insight`
+    ADD COLUMN `summary_status`    tinyint NOT NULL DEFAULT '0' COMMENT '摘要状态 0-待分析 1-已完成 2-失败' AFTER `score_details`,
+    ADD COLUMN `innovation_status` tinyint NOT NULL DEFAULT '0' COMMENT '创新点状态 0-待分析 1-已完成 2-失败' AFTER `summary_status`,
+    ADD COLUMN `methods_status`    tinyint NOT NULL DEFAULT '0' COMMENT '方法论状态 0-待分析 1-已完成 2-失败' AFTER `innovation_status`,
+    ADD COLUMN `score_status`      tinyint NOT NULL DEFAULT '0' COMMENT '评分状态 0-待分析 1-已完成 2-失败' AFTER `methods_status`;
+
+UPDATE `paper_insight`
+SET `summary_status`    = IF(`summary_markdown` IS NULL, 2, 1),
+    `innovation_status` = IF(`innovation_points` IS NULL, 2, 1),
+    `methods_status`    = IF(`methods` IS NULL, 2, 1),
+    `score_status`      = IF(`score_details` IS NULL, 2, 1);
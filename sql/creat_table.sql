@@ -62,13 +62,15 @@ CREATE TABLE IF NOT EXISTS `paper_info`
     `user_id`      bigint        NOT NULL COMMENT '上传用户ID',
     `is_public`    tinyint       NOT NULL DEFAULT '0' COMMENT '是否公开 (0-私有 1-公开)',
     `publish_date` date                   DEFAULT NULL COMMENT '发表日期',
+    `chunk_doc_id` varchar(64)            DEFAULT NULL COMMENT '共享的 RAG chunk doc_id (内容重复的论文指向首次入库的论文，NULL 表示自身ID)',
     `create_time`  datetime      NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time`  datetime      NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     `is_delete`    tinyint       NOT NULL DEFAULT '0' COMMENT '是否删除',
     PRIMARY KEY (`id`),
     KEY `idx_userId` (`user_id`),
     KEY `idx_folderId` (`folder_id`),
-    KEY `idx_title` (`title`(128))
+    KEY `idx_title` (`title`(128)),
+    KEY `idx_chunkDocId` (`chunk_doc_id`)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT ='论文信息表';
@@ -84,6 +86,10 @@ CREATE TABLE IF NOT EXISTS `paper_insight`
     `innovation_points` text COMMENT '创新点',
     `methods`           text COMMENT '方法论',
     `score`             int               DEFAULT NULL COMMENT '评分 (0-100)',
+    `summary_status`    tinyint  NOT NULL DEFAULT '0' COMMENT '摘要状态 0-待分析 1-已完成 2-失败',
+    `innovation_status` tinyint  NOT NULL DEFAULT '0' COMMENT '创新点状态 0-待分析 1-已完成 2-失败',
+    `methods_status`    tinyint  NOT NULL DEFAULT '0' COMMENT '方法论状态 0-待分析 1-已完成 2-失败',
+    `score_status`      tinyint  NOT NULL DEFAULT '0' COMMENT '评分状态 0-待分析 1-已完成 2-失败',
     `create_time`       datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time`       datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     `is_delete`         tinyint  NOT NULL DEFAULT '0' COMMENT '是否删除',
@@ -189,3 +195,32 @@ CREATE TABLE IF NOT EXISTS `announcement_read`
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT ='公告已读表';
+
+-- =============================================
+-- 2.9 论文分析任务检查点表 (paper_analysis_task)
+-- 每次分析（run）一行，记录流水线进行到的阶段与各阶段产出引用，重试时跳过已完成阶段
+-- =============================================
+CREATE TABLE IF NOT EXISTS `paper_analysis_task`
+(
+    `id`          bigint      NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `run_id`      varchar(64) NOT NULL COMMENT '运行ID',
+    `paper_id`    bigint      NOT NULL COMMENT '论文ID',
+    `user_id`     bigint               DEFAULT NULL COMMENT '用户ID',
+    `full_run`    tinyint     NOT NULL DEFAULT '0' COMMENT '是否全量分析 0-只重试部分维度 1-全部维度',
+    `stage`       tinyint     NOT NULL DEFAULT '0' COMMENT '待执行阶段 0-提取 1-分析 2-持久化 3-RAG入库 4-完成',
+    `text_sha256` char(64)             DEFAULT NULL COMMENT '提取文本引用 (PDF 内容 SHA-256)',
+    `text_hash`   char(64)             DEFAULT NULL COMMENT '归一化文本 SHA-256 (去空白标点、小写)',
+    `prompt_version` varchar(64)       DEFAULT NULL COMMENT '分析提示词版本',
+    `attempt`     int         NOT NULL DEFAULT '0' COMMENT '当前阶段已重试次数',
+    `last_error`  text COMMENT '最近一次失败原因',
+    `create_time` datetime    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` datetime    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `is_delete`   tinyint     NOT NULL DEFAULT '0' COMMENT '是否删除',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_runId` (`run_id`),
+    KEY `idx_paperId` (`paper_id`),
+    KEY `idx_textSha256` (`text_sha256`),
+    KEY `idx_textHash` (`text_hash`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='论文分析任务检查点表';
@@ -3,9 +3,11 @@ package com.zhemu.paperinsight;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.zhemu.paperinsight.mapper")
+@EnableScheduling
 public class PaperInsightApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,156 @@
+package com.zhemu.paperinsight.agent.common;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhemu.paperinsight.constant.RedisConstants;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * 带缓存的嵌入模型装饰器
+ * <p>
+ * 以 "模型名 + 维度 + 规范化文本的 SHA-256" 作为缓存键：
+ * L1 为有界的 Caffeine 本地缓存，L2 为 Redis（向量以 float32 小端字节 Base64 编码存储）。
+ * 同一 PDF 重复入库、重复提问时可直接命中缓存，跳过远程 embedding 调用。
+ * 非文本内容块不做缓存，直接透传给被装饰的模型。
+ *
+ * @author lushihao
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final String METRIC_NAME = "paper_insight.embedding.cache";
+
+    private final EmbeddingModel delegate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration redisTtl;
+    private final Cache<String, float[]> localCache;
+
+    private final Counter l1Hit;
+    private final Counter l2Hit;
+    private final Counter miss;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, StringRedisTemplate stringRedisTemplate,
+            MeterRegistry meterRegistry, long localMaxSize, Duration redisTtl) {
+        this.delegate = delegate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisTtl = redisTtl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .build();
+        this.l1Hit = Counter.builder(METRIC_NAME).tag("result", "l1_hit").register(meterRegistry);
+        this.l2Hit = Counter.builder(METRIC_NAME).tag("result", "l2_hit").register(meterRegistry);
+        this.miss = Counter.builder(METRIC_NAME).tag("result", "miss").register(meterRegistry);
+        meterRegistry.gauge(METRIC_NAME + ".size", localCache, Cache::estimatedSize);
+    }
+
+    @Override
+    public Mono<double[]> embed(ContentBlock block) {
+        if (!(block instanceof TextBlock textBlock) || textBlock.getText() == null) {
+            return delegate.embed(block);
+        }
+        String cacheKey = cacheKey(delegate.getModelName(), delegate.getDimensions(), textBlock.getText());
+
+        // 1. 本地缓存
+        float[] local = localCache.getIfPresent(cacheKey);
+        if (local != null) {
+            l1Hit.increment();
+            return Mono.just(toDoubles(local));
+        }
+
+        // 2. Redis 缓存，未命中则调用远程模型并回填
+        return Mono.fromCallable(() -> readRemote(cacheKey))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(vector -> {
+                    l2Hit.increment();
+                    localCache.put(cacheKey, vector);
+                    return toDoubles(vector);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    miss.increment();
+                    return delegate.embed(block)
+                            .doOnNext(embedding -> store(cacheKey, toFloats(embedding)));
+                }));
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public int getDimensions() {
+        return delegate.getDimensions();
+    }
+
+    static String cacheKey(String modelName, int dimensions, String text) {
+        // 规范化：去除首尾空白并合并连续空白，避免 PDF 抽取时的换行差异导致缓存失效
+        String normalized = text.trim().replaceAll("\\s+", " ");
+        return RedisConstants.EMBEDDING_CACHE_KEY + modelName + ":" + dimensions + ":"
+                + DigestUtil.sha256Hex(normalized);
+    }
+
+    private float[] readRemote(String cacheKey) {
+        try {
+            String encoded = stringRedisTemplate.opsForValue().get(cacheKey);
+            if (encoded == null) {
+                return null;
+            }
+            float[] vector = decode(encoded);
+            return vector.length == delegate.getDimensions() ? vector : null;
+        } catch (Exception e) {
+            // Redis 不可用时降级为直接调用模型
+            log.warn("Failed to read embedding cache, key: {}", cacheKey, e);
+            return null;
+        }
+    }
+
+    private void store(String cacheKey, float[] vector) {
+        localCache.put(cacheKey, vector);
+        Mono.fromRunnable(() -> stringRedisTemplate.opsForValue().set(cacheKey, encode(vector), redisTtl))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.warn("Failed to write embedding cache, key: {}", cacheKey, e));
+    }
+
+    static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    static float[] decode(String encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private static float[] toFloats(double[] embedding) {
+        float[] vector = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = (float) embedding[i];
+        }
+        return vector;
+    }
+
+    private static double[] toDoubles(float[] vector) {
+        double[] embedding = new double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            embedding[i] = vector[i];
+        }
+        return embedding;
+    }
+}
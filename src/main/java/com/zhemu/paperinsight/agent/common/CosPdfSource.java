@@ -0,0 +1,53 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.zhemu.paperinsight.manager.CosManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 本桶 COS 对象直读
+ * 通过 SDK 连接池读取，不经过公网 CDN，超时与重试由 CosManager 配置
+ *
+ * @author lushihao
+ */
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class CosPdfSource implements PdfSource {
+
+    private final CosManager cosManager;
+
+    @Override
+    public boolean supports(String pdfUrl) {
+        return cosManager.resolveKey(pdfUrl) != null;
+    }
+
+    @Override
+    public PdfStream open(String pdfUrl, long offset) throws IOException {
+        String key = cosManager.resolveKey(pdfUrl);
+        try {
+            COSObject object = cosManager.openObject(key, offset, -1);
+            ObjectMetadata metadata = object.getObjectMetadata();
+            return new PdfStream(object.getObjectContent(), metadata.getContentLength(), metadata.getETag());
+        } catch (CosClientException e) {
+            throw new IOException("Failed to read COS object " + key, e);
+        }
+    }
+
+    @Override
+    public ObjectVersion stat(String pdfUrl) throws IOException {
+        String key = cosManager.resolveKey(pdfUrl);
+        try {
+            ObjectMetadata metadata = cosManager.getObjectMetadata(key);
+            return new ObjectVersion(metadata.getETag(), metadata.getContentLength());
+        } catch (CosClientException e) {
+            throw new IOException("Failed to stat COS object " + key, e);
+        }
+    }
+}
@@ -14,7 +14,15 @@ package com.zhemu.paperinsight.agent.common;/*
                                             * limitations under the License.
                                             */
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregationSource;
 import co.elastic.clients.elasticsearch._types.mapping.DenseVectorProperty;
 import co.elastic.clients.elasticsearch._types.mapping.KeywordProperty;
 import co.elastic.clients.elasticsearch._types.mapping.Property;
@@ -22,28 +30,50 @@ import co.elastic.clients.elasticsearch._types.mapping.TextProperty;
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
 import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
+import co.elastic.clients.elasticsearch.core.DeleteRequest;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.json.JsonData;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.agentscope.core.message.ContentBlock;
 import io.agentscope.core.message.TextBlock;
 import io.agentscope.core.rag.exception.VectorStoreException;
 import io.agentscope.core.rag.model.Document;
 import io.agentscope.core.rag.model.DocumentMetadata;
-import io.agentscope.core.rag.store.VDBStoreBase;
 import io.agentscope.core.rag.store.dto.SearchDocumentDto;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.net.ssl.SSLContext;
 
 import org.apache.http.HttpHost;
@@ -56,6 +86,7 @@ import org.elasticsearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -93,9 +124,10 @@ import reactor.core.scheduler.Schedulers;
  * @author lushihao
  */
 // @Component
-public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
+public class ElasticsearchStore implements PaperVectorStore, AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(ElasticsearchStore.class);
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader CONTENT_READER = OBJECT_MAPPER.readerFor(ContentBlock.class);
 
     // Field names for Elasticsearch mapping
     private static final String FIELD_ID = "id";
@@ -103,20 +135,68 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
     private static final String FIELD_DOC_ID = "doc_id";
     private static final String FIELD_CHUNK_ID = "chunk_id";
     private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_CONTENT_JSON = "content_json";
+
+    // Mapping version stored in _meta; bump when the mapping changes
+    private static final String META_MAPPING_VERSION = "mapping_version";
+    private static final int MAPPING_VERSION = 2;
+    private static final String WRITE_ALIAS_SUFFIX = "_write";
+    private static final int REBUILD_PAGE_SIZE = 200;
+    private static final String AGG_DOC_IDS = "doc_ids";
+    private static final int DOC_ID_PAGE_SIZE = 1000;
+
+    // Reciprocal rank fusion parameters
+    private static final int RRF_RANK_CONSTANT = 60;
+    private static final int RRF_MIN_WINDOW = 20;
 
     private final String indexName;
+    private final String writeAlias;
     private final int dimensions;
     private final RestClient restClient;
     private final ElasticsearchTransport transport;
     private final ElasticsearchClient client;
+    private final ElasticsearchAsyncClient asyncClient;
     private final boolean disableSslVerification;
+    private final IndexProfile indexProfile;
+    private final int bulkMaxDocs;
+    private final long bulkMaxBytes;
+    private final int bulkConcurrency;
+    private final int bulkMaxRetries;
+    private final Duration bulkRetryBackoff;
+    private final boolean includeVectors;
+    private final boolean useAsyncClient;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile RebuildStatus rebuildStatus = RebuildStatus.IDLE;
+
+    // 重建期间写入同时落到新物理索引（影子索引），为 null 表示没有进行中的重建
+    private volatile String shadowIndex;
+    // 未双写 / 双写中的写删请求数：开始拷贝前等前者结束，放弃影子索引前等后者结束
+    private final AtomicInteger unshadowedWrites = new AtomicInteger();
+    private final AtomicInteger shadowedWrites = new AtomicInteger();
+    // 重建期间的写入（id -> doc_id）与删除，拷贝结束后在新索引上重放删除，避免已删文档被拷贝回来
+    private final Map<String, String> rebuildWrites = new ConcurrentHashMap<>();
+    private final Set<String> rebuildDeletedIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> rebuildDeletedDocIds = ConcurrentHashMap.newKeySet();
+
+    // 读别名后仍有旧 mapping 的索引时，content 字段里才是 ContentBlock JSON
+    private volatile boolean legacyContent = false;
 
     private volatile boolean closed = false;
 
     private ElasticsearchStore(Builder builder) throws VectorStoreException {
         this.indexName = builder.indexName;
+        this.writeAlias = builder.indexName + WRITE_ALIAS_SUFFIX;
         this.dimensions = builder.dimensions;
         this.disableSslVerification = builder.disableSslVerification;
+        this.indexProfile = builder.indexProfile;
+        this.bulkMaxDocs = builder.bulkMaxDocs;
+        this.bulkMaxBytes = builder.bulkMaxBytes;
+        this.bulkConcurrency = builder.bulkConcurrency;
+        this.bulkMaxRetries = builder.bulkMaxRetries;
+        this.bulkRetryBackoff = builder.bulkRetryBackoff;
+        this.includeVectors = builder.includeVectors;
+        this.useAsyncClient = builder.asyncClient;
         try {
             // 1. Configure Low-level RestClient
             BasicCredentialsProvider credsProv = new BasicCredentialsProvider();
@@ -160,6 +240,8 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
             // 2. Create Transport and Client
             this.transport = new RestClientTransport(restClient, new JacksonJsonpMapper(OBJECT_MAPPER));
             this.client = new ElasticsearchClient(transport);
+            // 与同步客户端共用 transport / 连接池
+            this.asyncClient = new ElasticsearchAsyncClient(transport);
 
             // 3. Ensure Index Exists
             ensureIndex();
@@ -185,13 +267,21 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
             return Mono.empty();
         }
 
-        return Mono.fromCallable(
+        return withWriteTarget(shadow -> Mono.fromCallable(
                 () -> {
                     ensureNotClosed();
-                    executeBulkAdd(documents);
-                    return null;
+                    if (shadow != null) {
+                        documents.forEach(doc -> {
+                            rebuildWrites.put(doc.getId(), doc.getMetadata().getDocId());
+                            rebuildDeletedIds.remove(doc.getId());
+                        });
+                    }
+                    return partitionBulk(documents);
                 })
-                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(batch -> executeBulk(batch, 0, writeAlias, false)
+                        .then(shadow != null ? executeBulk(batch, 0, shadow, false) : Mono.empty()), bulkConcurrency)
+                .then())
                 .doOnError(e -> log.error("Failed to add documents to Elasticsearch", e))
                 .onErrorMap(
                         e -> !(e instanceof VectorStoreException),
@@ -199,26 +289,139 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
                 .then();
     }
 
-    private void executeBulkAdd(List<Document> documents) throws Exception {
-        BulkRequest.Builder br = new BulkRequest.Builder();
+    /**
+     * Splits documents into bulk batches bounded by both document count and
+     * estimated request body size.
+     */
+    private List<List<BulkItem>> partitionBulk(List<Document> documents) throws VectorStoreException {
+        List<List<BulkItem>> batches = new ArrayList<>();
+        List<BulkItem> current = new ArrayList<>();
+        long currentBytes = 0;
 
         for (Document doc : documents) {
             validateDocument(doc);
             Map<String, Object> esDoc = mapToEsDocument(doc);
+            long bytes = estimateBytes(esDoc);
 
-            br.operations(
-                    op -> op.index(idx -> idx.index(indexName).id(doc.getId()).document(esDoc)));
+            if (!current.isEmpty()
+                    && (current.size() >= bulkMaxDocs || currentBytes + bytes > bulkMaxBytes)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(new BulkItem(doc.getId(), esDoc));
+            currentBytes += bytes;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
         }
+        log.debug("Partitioned {} documents into {} bulk requests", documents.size(), batches.size());
+        return batches;
+    }
 
-        BulkResponse response = client.bulk(br.build());
-        if (response.errors()) {
-            for (BulkResponseItem item : response.items()) {
-                if (item.error() != null) {
-                    log.error("Error indexing ID {}: {}", item.id(), item.error().reason());
-                }
+    /**
+     * Estimates the bulk body size of a mapped document. The content_json
+     * string is the one already serialized by {@link #mapToEsDocument}, so it
+     * is measured here and reused as-is in the request.
+     */
+    private long estimateBytes(Map<String, Object> esDoc) {
+        // vector: ~12 bytes per float in JSON; text fields: worst case 3 bytes per char (UTF-8 CJK, escaped quotes)
+        long textLength = lengthOf(esDoc.get(FIELD_CONTENT)) + lengthOf(esDoc.get(FIELD_CONTENT_JSON));
+        return (long) dimensions * 12 + textLength * 3 + 256;
+    }
+
+    private static long lengthOf(Object value) {
+        return value instanceof String str ? str.length() : 0;
+    }
+
+    /**
+     * Executes one bulk request. Items rejected with a retryable status (429 /
+     * 5xx) are resent alone with exponential backoff; other item errors fail
+     * the batch after the retryable part has been settled.
+     */
+    private Mono<Void> executeBulk(List<BulkItem> batch, int attempt, String targetIndex, boolean createOnly) {
+        return Mono.fromCallable(
+                () -> {
+                    ensureNotClosed();
+                    BulkRequest.Builder br = new BulkRequest.Builder();
+                    for (BulkItem item : batch) {
+                        if (createOnly) {
+                            br.operations(op -> op.create(
+                                    c -> c.index(targetIndex).id(item.id()).document(item.source())));
+                        } else {
+                            br.operations(op -> op.index(
+                                    idx -> idx.index(targetIndex).id(item.id()).document(item.source())));
+                        }
+                    }
+                    return br.build();
+                })
+                .flatMap(request -> execute(() -> client.bulk(request), () -> asyncClient.bulk(request)))
+                .flatMap(response -> handleBulkResponse(batch, response, attempt, targetIndex, createOnly))
+                .onErrorResume(
+                        e -> isRetryable(e) && attempt < bulkMaxRetries,
+                        e -> {
+                            log.warn("Bulk request rejected with {}, retrying {} items (attempt {})",
+                                    ((ElasticsearchException) e).status(), batch.size(), attempt + 1);
+                            return Mono.defer(() -> executeBulk(batch, attempt + 1, targetIndex, createOnly))
+                                    .delaySubscription(backoff(attempt));
+                        });
+    }
+
+    private Mono<Void> handleBulkResponse(List<BulkItem> batch, BulkResponse response, int attempt,
+            String targetIndex, boolean createOnly) {
+        if (!response.errors()) {
+            return Mono.empty();
+        }
+
+        List<BulkItem> retryItems = new ArrayList<>();
+        int failed = 0;
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            if (item.error() == null || (createOnly && item.status() == 409)) {
+                // create 模式下已存在的文档是更新的写入，跳过
+                continue;
             }
-            throw new VectorStoreException("Elasticsearch bulk indexing failed");
+            if (isRetryableStatus(item.status()) && attempt < bulkMaxRetries) {
+                retryItems.add(batch.get(i));
+            } else {
+                failed++;
+                log.error("Error indexing ID {}: {}", item.id(), item.error().reason());
+            }
+        }
+
+        int permanentFailures = failed;
+        Mono<Void> retry = Mono.empty();
+        if (!retryItems.isEmpty()) {
+            log.warn("Retrying {} rejected bulk items (attempt {})", retryItems.size(), attempt + 1);
+            retry = Mono.defer(() -> executeBulk(retryItems, attempt + 1, targetIndex, createOnly))
+                    .delaySubscription(backoff(attempt))
+                    // 子批次已用尽自己的重试次数，避免外层再次整批重发
+                    .onErrorMap(ElasticsearchException.class,
+                            e -> new VectorStoreException("Bulk retry of rejected items failed", e));
         }
+        return retry.then(Mono.defer(() -> permanentFailures > 0
+                ? Mono.error(new VectorStoreException(
+                        "Elasticsearch bulk indexing failed for " + permanentFailures + " documents"))
+                : Mono.empty()));
+    }
+
+    private Duration backoff(int attempt) {
+        return bulkRetryBackoff.multipliedBy(1L << Math.min(attempt, 10));
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof ElasticsearchException esException && isRetryableStatus(esException.status());
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * A single prepared bulk index operation.
+     */
+    private record BulkItem(String id, Map<String, Object> source) {
     }
 
     /**
@@ -231,21 +434,61 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
      */
     @Override
     public Mono<List<Document>> search(SearchDocumentDto searchDocumentDto) {
+        return search(searchDocumentDto, null);
+    }
+
+    /**
+     * Searches for documents belonging to a single source document (paper).
+     *
+     * <p>
+     * The {@code doc_id} term filter is applied inside the kNN clause, so HNSW
+     * only scores chunks of that document instead of filtering the global
+     * top-k afterwards.
+     *
+     * @param searchDocumentDto the search criteria containing query embedding,
+     *                          limit, and score threshold
+     * @param docId             the doc_id (paperId) to restrict the search to,
+     *                          or null to search the whole index
+     * @return a Mono containing the list of matching documents
+     */
+    @Override
+    public Mono<List<Document>> search(SearchDocumentDto searchDocumentDto, String docId) {
+        return search(searchDocumentDto, docId, includeVectors);
+    }
+
+    /**
+     * Searches like {@link #search(SearchDocumentDto, String)}, choosing whether
+     * hits carry their embeddings.
+     *
+     * <p>
+     * Vectors dominate the response size (1024 floats per hit), so they are left
+     * out of {@code _source} unless a caller really needs them, e.g. for MMR
+     * re-ranking or re-indexing.
+     *
+     * @param searchDocumentDto the search criteria
+     * @param docId             the doc_id (paperId) to restrict to, or null
+     * @param withVectors       whether to return the stored embeddings
+     * @return a Mono containing the list of matching documents
+     */
+    public Mono<List<Document>> search(SearchDocumentDto searchDocumentDto, String docId, boolean withVectors) {
         double[] queryEmbedding = searchDocumentDto.getQueryEmbedding();
         int limit = searchDocumentDto.getLimit();
         Double scoreThreshold = searchDocumentDto.getScoreThreshold();
         return Mono.fromCallable(
                 () -> {
                     ensureNotClosed();
-                    return executeSearch(queryEmbedding, limit, scoreThreshold);
+                    return buildKnnRequest(queryEmbedding, limit, scoreThreshold, docId, withVectors);
                 })
-                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(request -> execute(
+                        () -> client.search(request, StoredChunk.class),
+                        () -> asyncClient.search(request, StoredChunk.class)))
+                .map(this::toDocuments)
                 .doOnError(e -> log.error("Error during vector search", e))
                 .onErrorMap(e -> new VectorStoreException("Vector search failed", e));
     }
 
-    private List<Document> executeSearch(double[] queryEmbedding, int limit, Double scoreThreshold)
-            throws Exception {
+    private SearchRequest buildKnnRequest(double[] queryEmbedding, int limit, Double scoreThreshold, String docId,
+            boolean withVectors) throws VectorStoreException {
         if (queryEmbedding.length != dimensions) {
             throw new VectorStoreException("Embedding dimension mismatch");
         }
@@ -255,21 +498,30 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
             queryVector.add((float) v);
         }
 
-        SearchRequest searchRequest = SearchRequest.of(
+        // 单篇论文的 chunk 数量有限，过滤后候选集无需放大太多
+        int numCandidates = docId != null ? Math.max(limit * 2, 20) : Math.max(limit * 2, 50);
+
+        return SearchRequest.of(
                 s -> s.index(indexName)
                         .knn(
-                                k -> k.field(FIELD_VECTOR)
-                                        .queryVector(queryVector)
-                                        .k(limit)
-                                        .numCandidates(
-                                                Math.max(limit * 2, 50)))
+                                k -> {
+                                    k.field(FIELD_VECTOR)
+                                            .queryVector(queryVector)
+                                            .k(limit)
+                                            .numCandidates(numCandidates);
+                                    if (docId != null) {
+                                        k.filter(f -> f.term(t -> t.field(FIELD_DOC_ID).value(docId)));
+                                    }
+                                    return k;
+                                })
+                        .source(sourceConfig(withVectors))
                         .size(limit)
                         .minScore(scoreThreshold != null ? scoreThreshold : 0.0));
+    }
 
-        SearchResponse<Map> response = client.search(searchRequest, Map.class);
-        List<Document> results = new ArrayList<>();
-
-        for (Hit<Map> hit : response.hits().hits()) {
+    private List<Document> toDocuments(SearchResponse<StoredChunk> response) {
+        List<Document> results = new ArrayList<>(response.hits().hits().size());
+        for (Hit<StoredChunk> hit : response.hits().hits()) {
             Document doc = mapFromEsHit(hit);
             if (doc != null) {
                 results.add(doc);
@@ -291,18 +543,137 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
             return Mono.error(new IllegalArgumentException("Document ID cannot be null or empty"));
         }
 
-        return Mono.fromCallable(
+        return withWriteTarget(shadow -> Mono.fromCallable(
                 () -> {
                     ensureNotClosed();
-                    return client.delete(d -> d.index(indexName).id(id));
+                    if (shadow != null) {
+                        rebuildWrites.remove(id);
+                        rebuildDeletedIds.add(id);
+                    }
+                    return DeleteRequest.of(d -> d.index(writeAlias).id(id));
                 })
-                .subscribeOn(Schedulers.boundedElastic())
-                .map(response -> response.result().name().equals("Deleted"))
+                .flatMap(request -> execute(() -> client.delete(request), () -> asyncClient.delete(request)))
+                .map(response -> response.result() == Result.Deleted)
+                .flatMap(deleted -> {
+                    if (shadow == null) {
+                        return Mono.just(deleted);
+                    }
+                    DeleteRequest request = DeleteRequest.of(d -> d.index(shadow).id(id));
+                    return execute(() -> client.delete(request), () -> asyncClient.delete(request))
+                            .map(response -> deleted || response.result() == Result.Deleted);
+                }))
                 .onErrorMap(
                         e -> new VectorStoreException(
                                 "Failed to delete document from Elasticsearch", e));
     }
 
+    /**
+     * Deletes every chunk of the given source documents (papers).
+     *
+     * <p>
+     * The delete-by-query targets the read and the write alias, plus the new
+     * index while a rebuild is copying into it.
+     *
+     * @param docIds the doc_ids (paperIds) to purge
+     * @return a Mono containing the number of deleted chunks
+     */
+    @Override
+    public Mono<Long> deleteByDocIds(Collection<String> docIds) {
+        if (docIds == null || docIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        List<FieldValue> values = docIds.stream().distinct().map(FieldValue::of).toList();
+        return withWriteTarget(shadow -> Mono.fromCallable(
+                () -> {
+                    ensureNotClosed();
+                    List<String> indices = new ArrayList<>(List.of(indexName, writeAlias));
+                    if (shadow != null) {
+                        indices.add(shadow);
+                        rebuildWrites.values().removeIf(docIds::contains);
+                        rebuildDeletedDocIds.addAll(docIds);
+                    }
+                    return DeleteByQueryRequest.of(
+                            d -> d.index(indices)
+                                    .query(q -> q.terms(t -> t.field(FIELD_DOC_ID).terms(tv -> tv.value(values))))
+                                    .conflicts(Conflicts.Proceed));
+                })
+                .flatMap(request -> execute(
+                        () -> client.deleteByQuery(request),
+                        () -> asyncClient.deleteByQuery(request))))
+                .map(response -> response.deleted() != null ? response.deleted() : 0L)
+                .doOnNext(deleted -> log.debug("Deleted {} chunks for {} doc_ids", deleted, values.size()))
+                .onErrorMap(
+                        e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("Failed to delete documents by doc_id", e));
+    }
+
+    /**
+     * Runs a write with the rebuild target it has to be mirrored to (null when
+     * no rebuild is running). Both counters are raised before the target is
+     * read, so a rebuild that publishes or withdraws its target can wait for
+     * every write that may have missed the change.
+     */
+    private <T> Mono<T> withWriteTarget(Function<String, Mono<T>> write) {
+        return Mono.defer(() -> {
+            unshadowedWrites.incrementAndGet();
+            shadowedWrites.incrementAndGet();
+            String shadow = shadowIndex;
+            if (shadow != null) {
+                unshadowedWrites.decrementAndGet();
+                return write.apply(shadow).doFinally(signal -> shadowedWrites.decrementAndGet());
+            }
+            shadowedWrites.decrementAndGet();
+            return write.apply(null).doFinally(signal -> unshadowedWrites.decrementAndGet());
+        });
+    }
+
+    /**
+     * Lists all distinct doc_ids in the index with a paged composite
+     * aggregation.
+     *
+     * @return a Flux of doc_ids
+     */
+    @Override
+    public Flux<String> listDocIds() {
+        return fetchDocIdPage(null)
+                .expand(page -> page.afterKey() == null ? Mono.empty() : fetchDocIdPage(page.afterKey()))
+                .flatMapIterable(DocIdPage::docIds);
+    }
+
+    private Mono<DocIdPage> fetchDocIdPage(Map<String, FieldValue> after) {
+        return Mono.fromCallable(
+                () -> {
+                    ensureNotClosed();
+                    return SearchRequest.of(
+                            s -> s.index(indexName)
+                                    .size(0)
+                                    .aggregations(AGG_DOC_IDS, a -> a.composite(c -> {
+                                        c.size(DOC_ID_PAGE_SIZE)
+                                                .sources(Map.of(FIELD_DOC_ID, CompositeAggregationSource.of(
+                                                        src -> src.terms(t -> t.field(FIELD_DOC_ID)))));
+                                        if (after != null) {
+                                            c.after(after);
+                                        }
+                                        return c;
+                                    })));
+                })
+                .flatMap(request -> execute(
+                        () -> client.search(request, Void.class),
+                        () -> asyncClient.search(request, Void.class)))
+                .map(response -> {
+                    CompositeAggregate composite = response.aggregations().get(AGG_DOC_IDS).composite();
+                    List<String> docIds = composite.buckets().array().stream()
+                            .map(bucket -> bucket.key().get(FIELD_DOC_ID).stringValue())
+                            .toList();
+                    // 最后一页不足 size 时结束
+                    Map<String, FieldValue> afterKey = docIds.size() < DOC_ID_PAGE_SIZE ? null : composite.afterKey();
+                    return new DocIdPage(docIds, afterKey);
+                });
+    }
+
+    private record DocIdPage(List<String> docIds, Map<String, FieldValue> afterKey) {
+    }
+
     /**
      * Performs a full-text search on the content field.
      *
@@ -310,6 +681,7 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
      * @param limit   the maximum number of results to return
      * @return a Mono containing the list of matching documents
      */
+    @Override
     public Mono<List<Document>> searchByText(String keyword, int limit) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return Mono.just(new ArrayList<>());
@@ -318,32 +690,174 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
         return Mono.fromCallable(
                 () -> {
                     ensureNotClosed();
-                    return executeTextSearch(keyword, limit);
+                    return SearchRequest.of(
+                            s -> s.index(indexName)
+                                    .query(q -> q.match(
+                                            m -> m.field(FIELD_CONTENT).query(f -> f.stringValue(keyword))))
+                                    .source(sourceConfig(false))
+                                    .size(limit));
                 })
-                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(request -> execute(
+                        () -> client.search(request, StoredChunk.class),
+                        () -> asyncClient.search(request, StoredChunk.class)))
+                .map(this::toDocuments)
                 .doOnError(e -> log.error("Error during text search", e))
                 .onErrorMap(e -> new VectorStoreException("Text search failed", e));
     }
 
-    private List<Document> executeTextSearch(String keyword, int limit) throws Exception {
-        SearchRequest searchRequest = SearchRequest.of(
-                s -> s.index(indexName)
-                        .query(q -> q.match(m -> m.field(FIELD_CONTENT).query(f -> f.stringValue(keyword))))
-                        .size(limit));
+    /**
+     * Hybrid retrieval: runs a BM25 match query and a kNN query in one
+     * {@code _msearch} round-trip and fuses both rankings with reciprocal rank
+     * fusion (RRF).
+     *
+     * <p>
+     * Exact terms (model names, symbols) are caught by the lexical side while
+     * paraphrases are caught by the vector side. The score threshold is applied
+     * to the vector side only, as in {@link #search(SearchDocumentDto, String)};
+     * BM25 scores are unbounded and the returned score is the fused RRF score,
+     * so neither is comparable to a similarity threshold.
+     *
+     * @param queryText         the raw query text for the lexical side
+     * @param searchDocumentDto the query embedding, limit and vector score
+     *                          threshold
+     * @param docId             the doc_id (paperId) to restrict to, or null
+     * @return a Mono containing the fused list of documents
+     */
+    @Override
+    public Mono<List<Document>> hybridSearch(String queryText, SearchDocumentDto searchDocumentDto, String docId) {
+        if (queryText == null || queryText.trim().isEmpty()) {
+            return search(searchDocumentDto, docId);
+        }
+        double[] queryEmbedding = searchDocumentDto.getQueryEmbedding();
+        int limit = searchDocumentDto.getLimit();
+        Double scoreThreshold = searchDocumentDto.getScoreThreshold();
+        return Mono.fromCallable(
+                () -> {
+                    ensureNotClosed();
+                    return buildHybridRequest(queryText, queryEmbedding, limit, scoreThreshold, docId);
+                })
+                .flatMap(request -> execute(
+                        () -> client.msearch(request, StoredChunk.class),
+                        () -> asyncClient.msearch(request, StoredChunk.class)))
+                .map(response -> fuseRankings(response, limit))
+                .doOnError(e -> log.error("Error during hybrid search", e))
+                .onErrorMap(e -> new VectorStoreException("Hybrid search failed", e));
+    }
 
-        SearchResponse<Map<String, Object>> response = client.search(searchRequest,
-                (Class<Map<String, Object>>) (Class<?>) Map.class);
-        List<Document> results = new ArrayList<>();
+    private MsearchRequest buildHybridRequest(String queryText, double[] queryEmbedding, int limit,
+            Double scoreThreshold, String docId) throws VectorStoreException {
+        if (queryEmbedding.length != dimensions) {
+            throw new VectorStoreException("Embedding dimension mismatch");
+        }
+
+        List<Float> queryVector = new ArrayList<>(queryEmbedding.length);
+        for (double v : queryEmbedding) {
+            queryVector.add((float) v);
+        }
+        // 每一路召回的窗口大于最终 limit，给融合留出空间
+        int window = Math.max(limit * 2, RRF_MIN_WINDOW);
+        SourceConfig source = sourceConfig(includeVectors);
+
+        return MsearchRequest.of(
+                m -> m.index(indexName)
+                        .searches(lexical -> lexical
+                                .header(h -> h)
+                                .body(b -> b
+                                        .query(q -> q.bool(bool -> {
+                                            bool.must(must -> must.match(
+                                                    mt -> mt.field(FIELD_CONTENT).query(f -> f.stringValue(queryText))));
+                                            if (docId != null) {
+                                                bool.filter(f -> f.term(t -> t.field(FIELD_DOC_ID).value(docId)));
+                                            }
+                                            return bool;
+                                        }))
+                                        .source(source)
+                                        .size(window)))
+                        .searches(vector -> vector
+                                .header(h -> h)
+                                .body(b -> b
+                                        .knn(k -> {
+                                            k.field(FIELD_VECTOR)
+                                                    .queryVector(queryVector)
+                                                    .k(window)
+                                                    .numCandidates(Math.max(window * 2, 50));
+                                            if (docId != null) {
+                                                k.filter(f -> f.term(t -> t.field(FIELD_DOC_ID).value(docId)));
+                                            }
+                                            return k;
+                                        })
+                                        .minScore(scoreThreshold != null ? scoreThreshold : 0.0)
+                                        .source(source)
+                                        .size(window))));
+    }
+
+    private List<Document> fuseRankings(MsearchResponse<StoredChunk> response, int limit) {
+        List<List<String>> rankings = new ArrayList<>();
+        Map<String, Hit<StoredChunk>> hitsById = new HashMap<>();
+        for (MultiSearchResponseItem<StoredChunk> item : response.responses()) {
+            if (item.isFailure()) {
+                log.warn("Hybrid sub-search failed: {}", item.failure().error().reason());
+                continue;
+            }
+            List<String> ranking = new ArrayList<>();
+            for (Hit<StoredChunk> hit : item.result().hits().hits()) {
+                ranking.add(hit.id());
+                hitsById.putIfAbsent(hit.id(), hit);
+            }
+            rankings.add(ranking);
+        }
 
-        for (Hit<Map<String, Object>> hit : response.hits().hits()) {
-            Document doc = mapFromEsHit((Hit<Map>) (Hit<?>) hit);
+        List<Document> results = new ArrayList<>();
+        reciprocalRankFusion(rankings, limit).forEach((id, score) -> {
+            Document doc = mapFromEsHit(hitsById.get(id));
             if (doc != null) {
+                doc.setScore(score);
                 results.add(doc);
             }
-        }
+        });
         return results;
     }
 
+    /**
+     * Fuses several rankings with RRF: score(d) = sum over rankings of
+     * 1 / (k + rank(d)), with 1-based ranks and k = {@value #RRF_RANK_CONSTANT}.
+     * Ties keep the order in which the ids were first seen.
+     *
+     * @param rankings ranked id lists, best first
+     * @param limit    the maximum number of ids to return
+     * @return fused scores by id, best first
+     */
+    static LinkedHashMap<String, Double> reciprocalRankFusion(List<List<String>> rankings, int limit) {
+        Map<String, Double> fusedScores = new LinkedHashMap<>();
+        for (List<String> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                fusedScores.merge(ranking.get(rank), 1.0 / (RRF_RANK_CONSTANT + rank + 1), Double::sum);
+            }
+        }
+        LinkedHashMap<String, Double> fused = new LinkedHashMap<>();
+        fusedScores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(entry -> fused.put(entry.getKey(), entry.getValue()));
+        return fused;
+    }
+
+    /**
+     * Runs one request either on the async client, whose future completes on
+     * the HTTP I/O thread so no worker thread is held while the request is in
+     * flight, or on the blocking client inside {@code boundedElastic}.
+     *
+     * <p>
+     * Async results are handed to the {@code parallel} scheduler so downstream
+     * operators never run on (and can never block) the I/O reactor threads.
+     */
+    private <T> Mono<T> execute(Callable<T> blocking, Supplier<CompletableFuture<T>> async) {
+        if (useAsyncClient) {
+            return Mono.fromFuture(async).publishOn(Schedulers.parallel());
+        }
+        return Mono.fromCallable(blocking).subscribeOn(Schedulers.boundedElastic());
+    }
+
     @Override
     public void close() {
         closeQuietly();
@@ -374,54 +888,384 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
         }
     }
 
+    /**
+     * Makes sure the read alias ({@code indexName}) and the write alias
+     * ({@code indexName_write}) exist.
+     *
+     * <p>
+     * A fresh cluster gets a versioned physical index with both aliases. A
+     * legacy concrete index named {@code indexName} is kept as-is for reads and
+     * gets a write alias, until {@link #rebuildIndex(IndexProfile)} moves it to
+     * the current mapping.
+     */
     private void ensureIndex() throws VectorStoreException {
         try {
             ExistsRequest existsRequest = new ExistsRequest.Builder().index(indexName).build();
 
             boolean exists = client.indices().exists(existsRequest).value();
-            if (exists) {
-                log.debug("Index '{}' already exists", indexName);
+            if (!exists) {
+                String physicalIndex = physicalIndexName(indexProfile);
+                log.debug("Creating index '{}' with dimensions {} and profile {}", physicalIndex, dimensions,
+                        indexProfile);
+
+                CreateIndexRequest createRequest = new CreateIndexRequest.Builder().index(physicalIndex)
+                        .mappings(buildMapping(indexProfile))
+                        .aliases(indexName, a -> a)
+                        .aliases(writeAlias, a -> a.isWriteIndex(true))
+                        .build();
+
+                client.indices().create(createRequest);
                 return;
             }
 
-            log.debug("Creating index '{}' with dimensions {}", indexName, dimensions);
+            log.debug("Index '{}' already exists", indexName);
+            if (!client.indices().existsAlias(a -> a.name(writeAlias)).value()) {
+                // 写别名指向当前读索引中最新的一个物理索引
+                List<String> readIndices = resolveIndices(indexName);
+                String latest = readIndices.stream().sorted().reduce((a, b) -> b).orElseThrow();
+                client.indices().updateAliases(u -> u.actions(
+                        a -> a.add(add -> add.index(latest).alias(writeAlias).isWriteIndex(true))));
+                log.info("Created write alias '{}' for index '{}'", writeAlias, latest);
+            }
+            legacyContent = isMappingOutdated();
+            if (legacyContent) {
+                log.warn("Index '{}' uses an outdated mapping (current version {}), "
+                        + "run rebuildIndex to migrate it without downtime", indexName, MAPPING_VERSION);
+            }
+        } catch (Exception e) {
+            throw new VectorStoreException("Failed to ensure index exists: " + indexName, e);
+        }
+    }
 
-            // Define field mappings
-            Property idProperty = new Property.Builder().keyword(new KeywordProperty.Builder().build()).build();
+    /**
+     * Returns whether any physical index behind the read alias was created with
+     * an older mapping version.
+     *
+     * @return true if a rebuild is needed
+     * @throws Exception if the mapping cannot be read
+     */
+    public boolean isMappingOutdated() throws Exception {
+        Map<String, IndexMappingRecord> mappings = client.indices().getMapping(g -> g.index(indexName)).result();
+        for (IndexMappingRecord record : mappings.values()) {
+            Map<String, JsonData> meta = record.mappings().meta();
+            JsonData version = meta != null ? meta.get(META_MAPPING_VERSION) : null;
+            if (version == null || version.to(Integer.class) < MAPPING_VERSION) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            Property contentProperty = new Property.Builder()
-                    .text(new TextProperty.Builder()
-                            .index(true)
-                            .analyzer("ik_max_word")
-                            .searchAnalyzer("ik_smart")
-                            .build())
-                    .build();
+    private TypeMapping buildMapping(IndexProfile profile) {
+        // Define field mappings
+        Property idProperty = new Property.Builder().keyword(new KeywordProperty.Builder().build()).build();
+
+        // content 只存纯文本，避免 ContentBlock JSON 的 key 被 ik 分词
+        Property contentProperty = new Property.Builder()
+                .text(new TextProperty.Builder()
+                        .index(true)
+                        .analyzer("ik_max_word")
+                        .searchAnalyzer("ik_smart")
+                        .build())
+                .build();
+
+        // content_json 保存原始 ContentBlock，只存不索引
+        Property contentJsonProperty = new Property.Builder()
+                .keyword(new KeywordProperty.Builder()
+                        .index(false)
+                        .docValues(false)
+                        .build())
+                .build();
+
+        Property vectorProperty = new Property.Builder()
+                .denseVector(
+                        new DenseVectorProperty.Builder()
+                                .dims(dimensions)
+                                .index(true)
+                                .similarity("cosine")
+                                .indexOptions(o -> o.type(profile.getType()))
+                                .build())
+                .build();
+
+        Map<String, Property> properties = new HashMap<>();
+        properties.put(FIELD_ID, idProperty);
+        properties.put(FIELD_DOC_ID, idProperty);
+        properties.put(FIELD_CHUNK_ID, idProperty);
+        properties.put(FIELD_CONTENT, contentProperty);
+        properties.put(FIELD_CONTENT_JSON, contentJsonProperty);
+        properties.put(FIELD_VECTOR, vectorProperty);
+
+        return new TypeMapping.Builder()
+                .properties(properties)
+                .meta(META_MAPPING_VERSION, JsonData.of(MAPPING_VERSION))
+                .build();
+    }
 
-            Property vectorProperty = new Property.Builder()
-                    .denseVector(
-                            new DenseVectorProperty.Builder()
-                                    .dims(dimensions)
-                                    .index(true)
-                                    .similarity("cosine")
-                                    .build())
-                    .build();
+    /**
+     * Rebuilds the index into a new versioned physical index with the current
+     * mapping and the given vector profile, without taking search offline.
+     *
+     * <p>
+     * Steps:
+     * <ol>
+     * <li>create {@code <indexName>_v<version>_<profile>_<timestamp>};</li>
+     * <li>start mirroring writes and deletes to it while the write alias stays
+     * on the old index, so searches keep seeing new chunks;</li>
+     * <li>copy all documents from the old indices in pages, converting legacy
+     * JSON {@code content} into plain text plus {@code content_json}; existing
+     * ids are skipped so mirrored writes win;</li>
+     * <li>replay the deletes seen during the copy on the new index, so chunks
+     * deleted after their page was read do not come back;</li>
+     * <li>atomically switch both the read and the write alias to the new
+     * index.</li>
+     * </ol>
+     * Old physical indices are kept for rollback; a legacy concrete index
+     * named {@code indexName} is removed in the alias swap to free the name.
+     * A failed rebuild drops the half-built index and leaves both aliases
+     * untouched. Only one rebuild can run at a time, the lock is taken on
+     * subscription; see {@link #getRebuildStatus()} for the outcome.
+     *
+     * @param targetProfile the vector index profile of the new index
+     * @return a Mono containing the new physical index name
+     */
+    public Mono<String> rebuildIndex(IndexProfile targetProfile) {
+        return Mono.defer(
+                () -> {
+                    if (closed) {
+                        return Mono.error(new VectorStoreException("ElasticsearchStore has been closed"));
+                    }
+                    if (!rebuilding.compareAndSet(false, true)) {
+                        return Mono.error(new VectorStoreException("An index rebuild is already running"));
+                    }
+                    RebuildStatus running = RebuildStatus.running(targetProfile);
+                    rebuildStatus = running;
+                    return Mono.fromCallable(
+                            () -> {
+                                try {
+                                    String index = executeRebuild(targetProfile);
+                                    rebuildStatus = running.succeeded(index);
+                                    return index;
+                                } catch (Exception e) {
+                                    rebuildStatus = running.failed(e);
+                                    throw e;
+                                } finally {
+                                    rebuilding.set(false);
+                                }
+                            })
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .doOnError(e -> log.error("Failed to rebuild index {} with profile {}", indexName, targetProfile, e))
+                .onErrorMap(
+                        e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("Index rebuild failed", e));
+    }
+
+    /**
+     * Returns whether an index rebuild is running.
+     *
+     * @return true while a rebuild holds the lock
+     */
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Returns the state of the current or last index rebuild.
+     *
+     * @return the rebuild status
+     */
+    public RebuildStatus getRebuildStatus() {
+        return rebuildStatus;
+    }
 
-            Map<String, Property> properties = new HashMap<>();
-            properties.put(FIELD_ID, idProperty);
-            properties.put(FIELD_DOC_ID, idProperty);
-            properties.put(FIELD_CHUNK_ID, idProperty);
-            properties.put(FIELD_CONTENT, contentProperty);
-            properties.put(FIELD_VECTOR, vectorProperty);
+    /**
+     * Returns the vector profile configured for newly created indices.
+     *
+     * @return the index profile
+     */
+    public IndexProfile getIndexProfile() {
+        return indexProfile;
+    }
 
-            TypeMapping mapping = new TypeMapping.Builder().properties(properties).build();
+    private String executeRebuild(IndexProfile targetProfile) throws Exception {
+        boolean readIsAlias = client.indices().existsAlias(a -> a.name(indexName)).value();
+        List<String> readIndices = resolveIndices(indexName);
+        List<String> writeIndices = resolveIndices(writeAlias);
+        String targetIndex = physicalIndexName(targetProfile);
 
-            CreateIndexRequest createRequest = new CreateIndexRequest.Builder().index(indexName).mappings(mapping)
-                    .build();
+        // 读索引 + 写索引（可能是上一次失败重建留下的）都作为拷贝来源
+        List<String> sourceIndices = new ArrayList<>(readIndices);
+        writeIndices.stream().filter(i -> !sourceIndices.contains(i)).forEach(sourceIndices::add);
 
-            client.indices().create(createRequest);
+        log.info("Rebuilding {} ({}) into {} with profile {}", indexName, sourceIndices, targetIndex, targetProfile);
+        client.indices().create(c -> c.index(targetIndex).mappings(buildMapping(targetProfile)));
+
+        try {
+            // 1. 开始双写，等待开始前发出的写入落到旧索引后再拷贝
+            rebuildWrites.clear();
+            rebuildDeletedIds.clear();
+            rebuildDeletedDocIds.clear();
+            shadowIndex = targetIndex;
+            awaitDrained(unshadowedWrites);
+
+            // 2. 分页拷贝并升级文档
+            long copied = copyDocuments(sourceIndices, targetIndex);
+            log.info("Copied {} documents into {}", copied, targetIndex);
+
+            // 3. 重放拷贝期间的删除
+            replayDeletes(targetIndex);
+            client.indices().refresh(r -> r.index(targetIndex));
+
+            // 4. 读写别名原子切换；旧的同名实体索引删除时其别名随之删除
+            List<String> oldWriteIndices = readIsAlias
+                    ? writeIndices
+                    : writeIndices.stream().filter(i -> !i.equals(indexName)).toList();
+            client.indices().updateAliases(u -> {
+                if (readIsAlias) {
+                    u.actions(a -> a.remove(r -> r.indices(readIndices).alias(indexName)));
+                } else {
+                    u.actions(a -> a.removeIndex(r -> r.index(indexName)));
+                }
+                if (!oldWriteIndices.isEmpty()) {
+                    u.actions(a -> a.remove(r -> r.indices(oldWriteIndices).alias(writeAlias)));
+                }
+                return u.actions(a -> a.add(add -> add.index(targetIndex).alias(indexName)))
+                        .actions(a -> a.add(add -> add.index(targetIndex).alias(writeAlias).isWriteIndex(true)));
+            });
         } catch (Exception e) {
-            throw new VectorStoreException("Failed to ensure index exists: " + indexName, e);
+            // 先停止双写并等待进行中的写入，否则写入会以动态 mapping 重新建出被删的索引
+            shadowIndex = null;
+            awaitDrained(shadowedWrites);
+            dropQuietly(targetIndex);
+            throw e;
+        } finally {
+            shadowIndex = null;
+            rebuildWrites.clear();
+            rebuildDeletedIds.clear();
+            rebuildDeletedDocIds.clear();
+        }
+        legacyContent = false;
+        log.info("Index {} now reads and writes {}", indexName, targetIndex);
+        return targetIndex;
+    }
+
+    private void awaitDrained(AtomicInteger inFlight) throws InterruptedException {
+        while (inFlight.get() > 0 && !closed) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Deletes from the new index every chunk that was deleted while the copy
+     * ran, except chunks written again afterwards.
+     */
+    private void replayDeletes(String targetIndex) throws Exception {
+        if (rebuildDeletedIds.isEmpty() && rebuildDeletedDocIds.isEmpty()) {
+            return;
+        }
+        List<String> deletedIds = List.copyOf(rebuildDeletedIds);
+        List<FieldValue> deletedDocIds = rebuildDeletedDocIds.stream().map(FieldValue::of).toList();
+        List<String> rewrittenIds = List.copyOf(rebuildWrites.keySet());
+        DeleteByQueryRequest request = DeleteByQueryRequest.of(d -> d.index(targetIndex)
+                .query(q -> q.bool(b -> {
+                    b.minimumShouldMatch("1");
+                    if (!deletedIds.isEmpty()) {
+                        b.should(sh -> sh.ids(i -> i.values(deletedIds)));
+                    }
+                    if (!deletedDocIds.isEmpty()) {
+                        b.should(sh -> sh.terms(t -> t.field(FIELD_DOC_ID).terms(tv -> tv.value(deletedDocIds))));
+                    }
+                    if (!rewrittenIds.isEmpty()) {
+                        b.mustNot(mn -> mn.ids(i -> i.values(rewrittenIds)));
+                    }
+                    return b;
+                }))
+                .conflicts(Conflicts.Proceed)
+                .refresh(true));
+        Long removed = client.deleteByQuery(request).deleted();
+        log.info("Replayed {} deleted ids and {} deleted doc_ids on {}, removed {} chunks",
+                deletedIds.size(), deletedDocIds.size(), targetIndex, removed);
+    }
+
+    private void dropQuietly(String index) {
+        try {
+            client.indices().delete(d -> d.index(index));
+            log.info("Dropped half-built index {}", index);
+        } catch (Exception e) {
+            log.warn("Failed to drop half-built index {}", index, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long copyDocuments(List<String> sourceIndices, String targetIndex) throws Exception {
+        long copied = 0;
+        List<FieldValue> searchAfter = null;
+        while (true) {
+            ensureNotClosed();
+            List<FieldValue> after = searchAfter;
+            SearchResponse<Map> page = client.search(
+                    s -> {
+                        s.index(sourceIndices)
+                                .size(REBUILD_PAGE_SIZE)
+                                .sort(so -> so.field(f -> f.field(FIELD_ID).order(SortOrder.Asc)));
+                        if (after != null) {
+                            s.searchAfter(after);
+                        }
+                        return s;
+                    },
+                    Map.class);
+            List<Hit<Map>> hits = page.hits().hits();
+            if (hits.isEmpty()) {
+                return copied;
+            }
+
+            List<BulkItem> items = new ArrayList<>(hits.size());
+            for (Hit<Map> hit : hits) {
+                if (hit.source() != null) {
+                    items.add(new BulkItem(hit.id(), upgradeSource((Map<String, Object>) hit.source())));
+                }
+            }
+            executeBulk(items, 0, targetIndex, true).block();
+            copied += items.size();
+            searchAfter = hits.get(hits.size() - 1).sort();
+        }
+    }
+
+    /**
+     * Converts a stored document to the current mapping. Legacy documents keep
+     * the serialized ContentBlock in {@code content}.
+     */
+    private Map<String, Object> upgradeSource(Map<String, Object> source) {
+        Map<String, Object> doc = new HashMap<>(source);
+        if (!doc.containsKey(FIELD_CONTENT_JSON) && doc.get(FIELD_CONTENT) instanceof String legacyJson) {
+            doc.put(FIELD_CONTENT_JSON, legacyJson);
+            doc.put(FIELD_CONTENT, toPlainText(legacyJson));
+        }
+        return doc;
+    }
+
+    private static String toPlainText(String contentJson) {
+        try {
+            ContentBlock block = OBJECT_MAPPER.readValue(contentJson, ContentBlock.class);
+            if (block instanceof TextBlock textBlock) {
+                return textBlock.getText();
+            }
+        } catch (Exception e) {
+            log.debug("Content is not a serialized ContentBlock, keeping raw value", e);
+        }
+        return contentJson;
+    }
+
+    private List<String> resolveIndices(String name) throws Exception {
+        if (client.indices().existsAlias(a -> a.name(name)).value()) {
+            return new ArrayList<>(client.indices().getAlias(a -> a.name(name)).result().keySet());
         }
+        return List.of(name);
+    }
+
+    private String physicalIndexName(IndexProfile profile) {
+        return (indexName + "_v" + MAPPING_VERSION + "_" + profile.getType() + "_" + System.currentTimeMillis())
+                .toLowerCase();
     }
 
     private void validateDocument(Document document) throws VectorStoreException {
@@ -443,10 +1287,11 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
         Map<String, Object> map = new HashMap<>();
         map.put(FIELD_ID, doc.getId());
 
-        // Convert embedding to list
-        List<Float> embedding = new ArrayList<>(doc.getEmbedding().length);
-        for (double d : doc.getEmbedding()) {
-            embedding.add((float) d);
+        // Convert embedding to a primitive float array (serialized as a JSON array, no boxing)
+        double[] source = doc.getEmbedding();
+        float[] embedding = new float[source.length];
+        for (int i = 0; i < source.length; i++) {
+            embedding[i] = (float) source[i];
         }
         map.put(FIELD_VECTOR, embedding);
 
@@ -455,76 +1300,161 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
         map.put(FIELD_DOC_ID, meta.getDocId());
         map.put(FIELD_CHUNK_ID, meta.getChunkId());
 
-        // Serialize ContentBlock to JSON string to ensure safe storage/retrieval
-        // But store raw text for full-text search if possible
+        // content: 纯文本，供全文检索；content_json: 原始 ContentBlock，用于无损还原
+        map.put(FIELD_CONTENT, meta.getContentText());
         try {
-            String contentJson = OBJECT_MAPPER.writeValueAsString(meta.getContent());
-            map.put(FIELD_CONTENT, contentJson);
-
-            // 如果是 TextBlock，额外存储纯文本内容以支持更好的全文检索
-            // 注意：这需要 ES 索引结构支持多字段，或者我们直接搜 JSON。
-            // 当前配置是 content 字段 index=true, analyzer=ik_max_word
-            // 如果 content 是 JSON 字符串 {"type":"text","text":"..."}, ik 分词器会将 "type", "text"
-            // 也分词。
-            // 搜索时，如果搜 "Transformer", JSON 中的 "Transformer" 会被匹配到。
-            // 但为了更精准，最好只索引 text 值。
-            // 不过鉴于修改 ES Mapping 需要删库重建，目前维持现状，JSON 字符串全文索引通常也能工作，
-            // 只是会搜到一些噪音（如 key 名）。
-
+            map.put(FIELD_CONTENT_JSON, OBJECT_MAPPER.writeValueAsString(meta.getContent()));
         } catch (Exception e) {
-            log.warn("Failed to serialize content, using text representation", e);
-            map.put(FIELD_CONTENT, meta.getContentText());
+            log.warn("Failed to serialize content, storing text only", e);
         }
 
         return map;
     }
 
-    @SuppressWarnings("unchecked")
-    private Document mapFromEsHit(Hit<Map> hit) {
-        try {
-            Map<String, Object> source = hit.source();
-            if (source == null)
-                return null;
+    /**
+     * Builds the {@code _source} projection for retrieval. The vector is left
+     * out unless requested, and on current-mapping indices the plain-text
+     * {@code content} is left out too since {@code content_json} already holds
+     * the full block.
+     */
+    private SourceConfig sourceConfig(boolean withVectors) {
+        List<String> excludes = new ArrayList<>(2);
+        if (!withVectors) {
+            excludes.add(FIELD_VECTOR);
+        }
+        if (!legacyContent) {
+            excludes.add(FIELD_CONTENT);
+        }
+        if (excludes.isEmpty()) {
+            return SourceConfig.of(s -> s.fetch(true));
+        }
+        return SourceConfig.of(s -> s.filter(f -> f.excludes(excludes)));
+    }
 
-            String docId = (String) source.get(FIELD_DOC_ID);
-            String chunkId = (String) source.get(FIELD_CHUNK_ID);
-            String contentJson = (String) source.get(FIELD_CONTENT);
+    private Document mapFromEsHit(Hit<StoredChunk> hit) {
+        StoredChunk chunk = hit.source();
+        if (chunk == null) {
+            return null;
+        }
+        // 新 mapping 的原始内容在 content_json；旧索引中 content 本身就是 JSON
+        String contentJson = chunk.contentJson() != null ? chunk.contentJson() : chunk.content();
+        if (contentJson == null) {
+            log.warn("Hit {} has no content in _source, skipping", hit.id());
+            return null;
+        }
 
-            // Reconstruct ContentBlock
-            ContentBlock content;
-            try {
-                content = OBJECT_MAPPER.readValue(contentJson, ContentBlock.class);
-            } catch (Exception e) {
-                log.debug("Failed to deserialize ContentBlock, creating TextBlock", e);
-                content = TextBlock.builder().text(contentJson).build();
+        ContentBlock content;
+        try {
+            content = CONTENT_READER.readValue(contentJson);
+        } catch (Exception e) {
+            log.debug("Failed to deserialize ContentBlock, creating TextBlock", e);
+            content = TextBlock.builder().text(contentJson).build();
+        }
+
+        Document doc = new Document(new DocumentMetadata(content, chunk.docId(), chunk.chunkId()));
+        if (hit.score() != null) {
+            doc.setScore(hit.score());
+        }
+        // 只有显式要求返回向量时 _source 中才会有 vector
+        if (chunk.vector() != null) {
+            double[] embedding = new double[chunk.vector().length];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = chunk.vector()[i];
             }
+            doc.setEmbedding(embedding);
+        }
+        return doc;
+    }
 
-            DocumentMetadata metadata = new DocumentMetadata(content, docId, chunkId);
-            Document doc = new Document(metadata);
+    /**
+     * Typed view of a stored chunk, decoded directly by the JSON mapper so the
+     * vector arrives as a primitive array instead of a list of boxed numbers.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record StoredChunk(
+            @JsonProperty(FIELD_DOC_ID) String docId,
+            @JsonProperty(FIELD_CHUNK_ID) String chunkId,
+            @JsonProperty(FIELD_CONTENT) String content,
+            @JsonProperty(FIELD_CONTENT_JSON) String contentJson,
+            @JsonProperty(FIELD_VECTOR) float[] vector) {
+    }
 
-            // Set score if present
-            if (hit.score() != null) {
-                doc.setScore(hit.score());
-            }
+    /**
+     * State of an index rebuild, for operators polling its progress.
+     *
+     * @param state       IDLE, RUNNING, SUCCEEDED or FAILED
+     * @param profile     the target vector profile, null when idle
+     * @param targetIndex the new physical index, set once the rebuild succeeded
+     * @param startedAt   start time, null when idle
+     * @param finishedAt  end time, null while running
+     * @param error       the failure message, null unless failed
+     */
+    public record RebuildStatus(String state, IndexProfile profile, String targetIndex, Instant startedAt,
+            Instant finishedAt, String error) {
 
-            // Extract embedding if we requested source (default is yes)
-            // Note: In some RAG flows we might not strictly need the vector back,
-            // but if available, we parse it.
-            if (source.containsKey(FIELD_VECTOR)) {
-                Object vecObj = source.get(FIELD_VECTOR);
-                if (vecObj instanceof List) {
-                    List<Number> vecList = (List<Number>) vecObj;
-                    double[] embedding = new double[vecList.size()];
-                    for (int i = 0; i < vecList.size(); i++) {
-                        embedding[i] = vecList.get(i).doubleValue();
-                    }
-                    doc.setEmbedding(embedding);
+        static final RebuildStatus IDLE = new RebuildStatus("IDLE", null, null, null, null, null);
+
+        static RebuildStatus running(IndexProfile profile) {
+            return new RebuildStatus("RUNNING", profile, null, Instant.now(), null, null);
+        }
+
+        RebuildStatus succeeded(String index) {
+            return new RebuildStatus("SUCCEEDED", profile, index, startedAt, Instant.now(), null);
+        }
+
+        RebuildStatus failed(Throwable e) {
+            return new RebuildStatus("FAILED", profile, null, startedAt, Instant.now(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Storage profile of the {@code dense_vector} field.
+     */
+    public enum IndexProfile {
+        /**
+         * Full float32 vectors in HNSW.
+         */
+        FLOAT("hnsw"),
+
+        /**
+         * Scalar-quantized int8 vectors in HNSW, about 4x less memory.
+         */
+        INT8_HNSW("int8_hnsw"),
+
+        /**
+         * Better Binary Quantization in HNSW, about 32x less memory (requires a
+         * cluster version that supports it).
+         */
+        BBQ_HNSW("bbq_hnsw");
+
+        private final String type;
+
+        IndexProfile(String type) {
+            this.type = type;
+        }
+
+        /**
+         * Returns the {@code index_options.type} value.
+         *
+         * @return the type
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Resolves a profile by enum name or {@code index_options.type} value.
+         *
+         * @param value the name or type, case-insensitive
+         * @return the profile
+         */
+        public static IndexProfile fromValue(String value) {
+            for (IndexProfile profile : values()) {
+                if (profile.name().equalsIgnoreCase(value) || profile.type.equalsIgnoreCase(value)) {
+                    return profile;
                 }
             }
-            return doc;
-        } catch (Exception e) {
-            log.error("Failed to map Elasticsearch hit to Document", e);
-            return null;
+            throw new IllegalArgumentException("Unknown index profile: " + value);
         }
     }
 
@@ -547,6 +1477,14 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
         private String username;
         private String password;
         private boolean disableSslVerification = false;
+        private IndexProfile indexProfile = IndexProfile.FLOAT;
+        private int bulkMaxDocs = 500;
+        private long bulkMaxBytes = 5L * 1024 * 1024;
+        private int bulkConcurrency = 2;
+        private int bulkMaxRetries = 3;
+        private Duration bulkRetryBackoff = Duration.ofMillis(200);
+        private boolean includeVectors = false;
+        private boolean asyncClient = true;
 
         private Builder() {
         }
@@ -620,6 +1558,100 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
             return this;
         }
 
+        /**
+         * Sets the vector index profile used when the index is created.
+         * <p>
+         * Existing indices keep their mapping; use
+         * {@link ElasticsearchStore#rebuildIndex(IndexProfile)} to convert them.
+         *
+         * @param indexProfile the index profile
+         * @return the builder
+         */
+        public Builder indexProfile(IndexProfile indexProfile) {
+            this.indexProfile = indexProfile;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of documents per bulk request.
+         *
+         * @param bulkMaxDocs the document count limit
+         * @return the builder
+         */
+        public Builder bulkMaxDocs(int bulkMaxDocs) {
+            this.bulkMaxDocs = bulkMaxDocs;
+            return this;
+        }
+
+        /**
+         * Sets the maximum estimated body size of a bulk request in bytes.
+         *
+         * @param bulkMaxBytes the size limit
+         * @return the builder
+         */
+        public Builder bulkMaxBytes(long bulkMaxBytes) {
+            this.bulkMaxBytes = bulkMaxBytes;
+            return this;
+        }
+
+        /**
+         * Sets how many bulk requests may be in flight at the same time.
+         *
+         * @param bulkConcurrency the concurrency
+         * @return the builder
+         */
+        public Builder bulkConcurrency(int bulkConcurrency) {
+            this.bulkConcurrency = bulkConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets how many times rejected items are retried.
+         *
+         * @param bulkMaxRetries the retry count
+         * @return the builder
+         */
+        public Builder bulkMaxRetries(int bulkMaxRetries) {
+            this.bulkMaxRetries = bulkMaxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the initial backoff between retries; doubled on each attempt.
+         *
+         * @param bulkRetryBackoff the initial backoff
+         * @return the builder
+         */
+        public Builder bulkRetryBackoff(Duration bulkRetryBackoff) {
+            this.bulkRetryBackoff = bulkRetryBackoff;
+            return this;
+        }
+
+        /**
+         * Sets whether search hits carry their embeddings by default. Off by
+         * default, since retrieval only needs the content.
+         *
+         * @param includeVectors true to return vectors from searches
+         * @return the builder
+         */
+        public Builder includeVectors(boolean includeVectors) {
+            this.includeVectors = includeVectors;
+            return this;
+        }
+
+        /**
+         * Sets whether searches, bulk writes and deletes use the non-blocking
+         * {@link ElasticsearchAsyncClient}. When off, each call occupies a
+         * {@code boundedElastic} thread until the response arrives.
+         *
+         * @param asyncClient true to use the async client
+         * @return the builder
+         */
+        public Builder asyncClient(boolean asyncClient) {
+            this.asyncClient = asyncClient;
+            return this;
+        }
+
         /**
          * Builds the ElasticsearchStore instance.
          *
@@ -636,6 +1668,15 @@ public class ElasticsearchStore implements VDBStoreBase, AutoCloseable {
             if (dimensions <= 0) {
                 throw new IllegalArgumentException("Dimensions must be positive");
             }
+            if (indexProfile == null) {
+                throw new IllegalArgumentException("Index profile cannot be null");
+            }
+            if (bulkMaxDocs <= 0 || bulkMaxBytes <= 0 || bulkConcurrency <= 0) {
+                throw new IllegalArgumentException("Bulk limits and concurrency must be positive");
+            }
+            if (bulkMaxRetries < 0 || bulkRetryBackoff == null) {
+                throw new IllegalArgumentException("Bulk retry settings are invalid");
+            }
             return new ElasticsearchStore(this);
         }
     }
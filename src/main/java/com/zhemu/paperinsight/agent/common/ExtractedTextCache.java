@@ -0,0 +1,418 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * PDF 提取文本缓存（内容寻址）
+ * <p>
+ * 两级索引：PDF URL → 内容 SHA-256 → 本地 gzip 文件 {@code <sha256>.txt.gz}，
+ * 未截断的全文另在 {@code <sha256>.pages} 中记录各页结束位置，供按页读取。
+ * 同一 URL 再次提取时无需下载；不同 URL 指向相同内容时只需下载、无需再跑 PDFBox。
+ * 文件按压缩后大小计入 LRU 上限，超限或过期时删除；重启后从目录恢复索引，
+ * URL 索引另记在 {@code url-index.tsv} 中，重启时按仍存在的文件重建并压缩，运行期追加过多时也会重写压缩。
+ * URL 索引同时记录提取时对象的 ETag 与大小，按 URL 命中前先查询对象当前版本，
+ * 同一 URL 的文件被覆盖上传后不会再返回旧内容。
+ * 分析、RAG 入库与对话时的 extract_pdf_text 工具共用同一份缓存。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+public class ExtractedTextCache {
+
+    private static final String FILE_SUFFIX = ".txt.gz";
+    private static final String PAGES_SUFFIX = ".pages";
+    private static final String URL_INDEX_FILE = "url-index.tsv";
+    // 运行期追加超过 max(该值, 当前条目数) 行后重写 url-index.tsv
+    private static final int URL_INDEX_COMPACT_MIN_APPENDS = 1000;
+
+    private final Path directory;
+    private final PdfDownloader pdfDownloader;
+    // URL -> 内容 SHA-256 与提取时的对象版本
+    private final Cache<String, UrlEntry> urlIndex;
+    // 上次重写后追加到 url-index.tsv 的行数
+    private int urlIndexAppends;
+    // 内容 SHA-256 -> 压缩文件大小（权重），淘汰时删除文件
+    private final Cache<String, Long> files;
+
+    public ExtractedTextCache(AgentPromptConfig promptConfig, PdfDownloader pdfDownloader) {
+        AgentPromptConfig.ToolProperties tools = promptConfig.getTools();
+        Duration ttl = Duration.ofHours(tools.getExtractCacheTtlHours());
+        this.directory = Path.of(tools.getExtractCacheDir());
+        this.pdfDownloader = pdfDownloader;
+        this.urlIndex = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(ttl)
+                .build();
+        this.files = Caffeine.newBuilder()
+                .maximumWeight(tools.getExtractCacheMaxBytes())
+                .weigher((String sha, Long size) -> (int) Math.min(size, Integer.MAX_VALUE))
+                .expireAfterAccess(ttl)
+                // 淘汰监听与同 key 的写入原子执行，不会删掉刚写入的新文件
+                .evictionListener((String sha, Long size, RemovalCause cause) -> deleteQuietly(sha))
+                .build();
+        loadExisting();
+    }
+
+    /**
+     * 按 URL 查找已提取的文本
+     *
+     * @param url PDF 地址
+     * @return 文本，未命中返回 null
+     */
+    public String getByUrl(String url) {
+        String sha = validSha(url);
+        if (sha == null) {
+            return null;
+        }
+        String text = read(sha);
+        if (text == null) {
+            urlIndex.invalidate(url);
+        }
+        return text;
+    }
+
+    /**
+     * 按 URL 查找已提取的文本并按页拆分
+     *
+     * @param url PDF 地址
+     * @return 各页文本，未命中、文本被截断或未记录页边界时返回 null
+     */
+    public List<String> getPagesByUrl(String url) {
+        String sha = validSha(url);
+        String text = sha == null ? null : read(sha);
+        if (text == null) {
+            return null;
+        }
+        int[] ends = readPageEnds(sha);
+        if (ends == null || ends.length == 0 || ends[ends.length - 1] != text.length()) {
+            return null;
+        }
+        List<String> pages = new ArrayList<>(ends.length);
+        int start = 0;
+        for (int end : ends) {
+            if (end < start) {
+                return null;
+            }
+            pages.add(text.substring(start, end));
+            start = end;
+        }
+        return pages;
+    }
+
+    /**
+     * 按内容 SHA-256 读取已提取的文本，供分析流水线按引用传递文本
+     *
+     * @param sha256 PDF 内容的 SHA-256
+     * @return 文本，未命中（本机未提取过或已淘汰）返回 null
+     */
+    public String getBySha(String sha256) {
+        return read(sha256);
+    }
+
+    /**
+     * 查找 URL 对应的内容 SHA-256
+     *
+     * @param url PDF 地址
+     * @return SHA-256，未提取过或对象已变化时返回 null
+     */
+    public String shaOf(String url) {
+        return validSha(url);
+    }
+
+    /**
+     * 按内容 SHA-256 查找文本，未命中时执行提取并写入缓存
+     *
+     * @param url       PDF 地址
+     * @param pdf       已下载的 PDF，提供内容 SHA-256 与对象版本
+     * @param extractor 提取函数，抛异常时不缓存
+     * @return 提取的文本
+     * @throws Exception 提取失败
+     */
+    public String getOrExtract(String url, PdfDownloader.DownloadedPdf pdf, Callable<Extraction> extractor)
+            throws Exception {
+        String sha256 = pdf.sha256();
+        String text = read(sha256);
+        if (text == null) {
+            Extraction extraction = extractor.call();
+            text = extraction.text();
+            write(sha256, extraction);
+        } else {
+            log.info("Extracted text cache hit by content for URL: {}", url);
+        }
+        UrlEntry entry = new UrlEntry(sha256, pdf.version());
+        if (!entry.equals(urlIndex.getIfPresent(url))) {
+            urlIndex.put(url, entry);
+            appendUrlIndex(url, entry);
+        }
+        return text;
+    }
+
+    /**
+     * URL 索引命中时查询对象当前版本，与提取时不一致（被覆盖上传）或无法确认时视为未命中
+     */
+    private String validSha(String url) {
+        UrlEntry entry = urlIndex.getIfPresent(url);
+        if (entry == null) {
+            return null;
+        }
+        PdfSource.ObjectVersion current;
+        try {
+            current = pdfDownloader.stat(url);
+        } catch (IOException e) {
+            log.warn("Failed to check the current version of {}, ignoring cached text: {}", url, e.getMessage());
+            return null;
+        }
+        if (!entry.version().matches(current)) {
+            log.info("PDF at {} changed since it was extracted ({} -> {}), ignoring cached text",
+                    url, entry.version(), current);
+            urlIndex.invalidate(url);
+            return null;
+        }
+        return entry.sha();
+    }
+
+    private String read(String sha) {
+        if (files.getIfPresent(sha) == null) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(fileOf(sha)))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Failed to read extracted text cache file {}", sha, e);
+            files.invalidate(sha);
+            deleteQuietly(sha);
+            return null;
+        }
+    }
+
+    private int[] readPageEnds(String sha) {
+        Path file = pagesFileOf(sha);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8).strip();
+            return content.isEmpty() ? null : Arrays.stream(content.split(",")).mapToInt(Integer::parseInt).toArray();
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to read page boundaries of extracted text {}", sha, e);
+            return null;
+        }
+    }
+
+    private void write(String sha, Extraction extraction) {
+        try {
+            Files.createDirectories(directory);
+            // 先写临时文件再原子替换，避免并发读到半个文件
+            Path tmp = Files.createTempFile(directory, sha, ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                out.write(extraction.text().getBytes(StandardCharsets.UTF_8));
+            }
+            Path pagesTmp = null;
+            if (extraction.pageEnds() != null) {
+                pagesTmp = Files.createTempFile(directory, sha, ".tmp");
+                Files.writeString(pagesTmp, Arrays.stream(extraction.pageEnds())
+                        .mapToObj(String::valueOf).collect(Collectors.joining(",")), StandardCharsets.UTF_8);
+            }
+            Path pagesSource = pagesTmp;
+            // 在该 key 的 compute 内替换文件，与同一 sha 的淘汰删除互斥
+            files.asMap().compute(sha, (key, previous) -> {
+                try {
+                    Path target = fileOf(key);
+                    if (pagesSource != null) {
+                        Files.move(pagesSource, pagesFileOf(key), StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                    } else {
+                        Files.deleteIfExists(pagesFileOf(key));
+                    }
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    return Files.size(target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // 缓存写失败不影响提取结果
+            log.warn("Failed to write extracted text cache file {}", sha, e);
+        }
+    }
+
+    private void loadExisting() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            // 按修改时间从旧到新放入，使 LRU 顺序大致延续
+            List<Path> cached = stream
+                    .filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparing(this::lastModified))
+                    .toList();
+            for (Path path : cached) {
+                String name = path.getFileName().toString();
+                files.put(name.substring(0, name.length() - FILE_SUFFIX.length()), Files.size(path));
+            }
+            log.info("Loaded {} extracted text cache files from {}", cached.size(), directory);
+        } catch (IOException e) {
+            log.warn("Failed to scan extracted text cache directory {}", directory, e);
+        }
+        loadUrlIndex();
+    }
+
+    /**
+     * 从 url-index.tsv 恢复 URL 索引，只保留文件仍存在的记录，并重写为压缩后的内容
+     * 每行为 {@code sha256 \t etag \t length \t url}；没有版本信息的旧格式记录无法校验，直接丢弃
+     */
+    private void loadUrlIndex() {
+        Path indexFile = directory.resolve(URL_INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        Map<String, UrlEntry> live = new LinkedHashMap<>();
+        try (Stream<String> lines = Files.lines(indexFile, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                String[] fields = line.split("\t", 4);
+                if (fields.length == 4 && files.asMap().containsKey(fields[0])) {
+                    try {
+                        UrlEntry entry = new UrlEntry(fields[0], new PdfSource.ObjectVersion(
+                                fields[1].isEmpty() ? null : fields[1], Long.parseLong(fields[2])));
+                        // 同一 URL 以最后一条为准
+                        live.remove(fields[3]);
+                        live.put(fields[3], entry);
+                    } catch (NumberFormatException e) {
+                        log.debug("Skipping malformed URL index line: {}", line);
+                    }
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to read extracted text URL index {}", indexFile, e);
+            return;
+        }
+        urlIndex.putAll(live);
+        rewriteUrlIndex(live);
+        log.info("Loaded {} extracted text URL index entries", live.size());
+    }
+
+    private synchronized void appendUrlIndex(String url, UrlEntry entry) {
+        if (!isIndexable(url, entry)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve(URL_INDEX_FILE), indexLine(url, entry) + System.lineSeparator(),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // 只影响重启后 URL 快速路径是否命中
+            log.warn("Failed to append extracted text URL index", e);
+            return;
+        }
+        // 同一 URL 的更新、过期与被淘汰文件对应的记录只在重写时清除
+        if (++urlIndexAppends > Math.max(URL_INDEX_COMPACT_MIN_APPENDS, urlIndex.estimatedSize())) {
+            Map<String, UrlEntry> live = new LinkedHashMap<>();
+            urlIndex.asMap().forEach((key, value) -> {
+                if (files.asMap().containsKey(value.sha())) {
+                    live.put(key, value);
+                }
+            });
+            rewriteUrlIndex(live);
+        }
+    }
+
+    private synchronized void rewriteUrlIndex(Map<String, UrlEntry> live) {
+        Path indexFile = directory.resolve(URL_INDEX_FILE);
+        try {
+            Path tmp = Files.createTempFile(directory, URL_INDEX_FILE, ".tmp");
+            Files.write(tmp, live.entrySet().stream()
+                            .filter(e -> isIndexable(e.getKey(), e.getValue()))
+                            .map(e -> indexLine(e.getKey(), e.getValue()))
+                            .toList(),
+                    StandardCharsets.UTF_8);
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            urlIndexAppends = 0;
+        } catch (IOException e) {
+            log.warn("Failed to compact extracted text URL index {}", indexFile, e);
+        }
+    }
+
+    private static boolean isIndexable(String url, UrlEntry entry) {
+        String etag = entry.version().etag();
+        return url.indexOf('\n') < 0 && url.indexOf('\r') < 0
+                && (etag == null || etag.indexOf('\t') < 0 && etag.indexOf('\n') < 0 && etag.indexOf('\r') < 0);
+    }
+
+    private static String indexLine(String url, UrlEntry entry) {
+        PdfSource.ObjectVersion version = entry.version();
+        return entry.sha() + '\t' + (version.etag() == null ? "" : version.etag()) + '\t' + version.length()
+                + '\t' + url;
+    }
+
+    private FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(String sha) {
+        try {
+            Files.deleteIfExists(fileOf(sha));
+            Files.deleteIfExists(pagesFileOf(sha));
+        } catch (IOException e) {
+            log.warn("Failed to delete extracted text cache file {}", sha, e);
+        }
+    }
+
+    private Path fileOf(String sha) {
+        return directory.resolve(sha + FILE_SUFFIX);
+    }
+
+    private Path pagesFileOf(String sha) {
+        return directory.resolve(sha + PAGES_SUFFIX);
+    }
+
+    /**
+     * URL 索引记录
+     *
+     * @param sha     内容 SHA-256
+     * @param version 提取时的对象版本
+     */
+    private record UrlEntry(String sha, PdfSource.ObjectVersion version) {
+    }
+
+    /**
+     * 一次提取的结果
+     *
+     * @param text     全文（可能已截断）
+     * @param pageEnds 各页在全文中的结束位置，文本被截断时为 null
+     */
+    public record Extraction(String text, int[] pageEnds) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.constant.LlmPriority;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.ChatUsage;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 受 LlmGovernor 限流的模型装饰器
+ * 每次调用先按输入估算 token 申请配额，拿到许可后再调用原始模型，结束（完成、失败或取消）时归还
+ *
+ * @author lushihao
+ */
+public class GovernedModel implements Model {
+
+    private final Model delegate;
+    private final LlmGovernor governor;
+    private final String provider;
+    private final LlmPriority priority;
+
+    public GovernedModel(Model delegate, LlmGovernor governor, String provider, LlmPriority priority) {
+        this.delegate = delegate;
+        this.governor = governor;
+        this.provider = provider;
+        this.priority = priority;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+        int estimated = estimateTokens(messages);
+        return governor.acquire(provider, priority, estimated)
+                // defer：delegate 同步抛出的异常也要走到 doFinally 归还许可
+                .flatMapMany(permit -> Flux.defer(() -> delegate.stream(messages, tools, options))
+                        .doOnNext(response -> {
+                            ChatUsage usage = response.getUsage();
+                            if (usage != null) {
+                                permit.recordUsage(usage.getInputTokens() + usage.getOutputTokens());
+                            }
+                        })
+                        .doFinally(signal -> permit.release()));
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    private int estimateTokens(List<Msg> messages) {
+        int tokens = 0;
+        if (messages != null) {
+            for (Msg msg : messages) {
+                tokens += TokenEstimator.estimate(msg.getTextContent());
+            }
+        }
+        return Math.max(tokens, 1);
+    }
+}
@@ -0,0 +1,235 @@
+package com.zhemu.paperinsight.agent.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * 纯 Java 实现的 HNSW 图
+ * <p>
+ * 节点以连续的序号 (ordinal) 标识，向量本身不在图里保存，而是通过 {@link Vectors} 读取
+ * （MmapHnswStore 中为内存映射文件）。相似度为归一化向量的点积，越大越相似。
+ * 非线程安全：写入需要外部互斥，检索可与其他检索并发。
+ *
+ * @author lushihao
+ */
+class HnswIndex {
+
+    /**
+     * 向量访问
+     */
+    interface Vectors {
+
+        /**
+         * 查询向量与第 ord 个向量的相似度
+         */
+        float similarity(float[] query, int ord);
+
+        /**
+         * 读取第 ord 个向量
+         */
+        float[] get(int ord);
+    }
+
+    /**
+     * 检索结果
+     */
+    record Neighbor(int ord, float score) {
+    }
+
+    private final Vectors vectors;
+    private final int m;
+    private final int maxConn0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    // links[ord][level] = {count, n1, n2, ...}
+    private int[][][] links = new int[1024][][];
+    private int size = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(Vectors vectors, int m, int efConstruction) {
+        this.vectors = vectors;
+        this.m = m;
+        this.maxConn0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 插入下一个节点，序号必须等于当前 size
+     */
+    void insert(int ord) {
+        if (ord != size) {
+            throw new IllegalArgumentException("Expected ordinal " + size + " but got " + ord);
+        }
+        float[] vector = vectors.get(ord);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+
+        if (ord == links.length) {
+            links = Arrays.copyOf(links, links.length * 2);
+        }
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[maxConn(l) + 1];
+        }
+        links[ord] = nodeLinks;
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = ord;
+            maxLevel = level;
+            return;
+        }
+
+        // 1. 高层贪心下降到新节点所在层
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+
+        // 2. 逐层找邻居并建立双向连接
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Neighbor> candidates = searchLayer(vector, current, efConstruction, l, null);
+            int count = Math.min(m, candidates.size());
+            for (int i = 0; i < count; i++) {
+                int neighbor = candidates.get(i).ord();
+                addLink(ord, neighbor, l);
+                addLink(neighbor, ord, l);
+            }
+            if (!candidates.isEmpty()) {
+                current = candidates.get(0).ord();
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = ord;
+        }
+    }
+
+    /**
+     * 近似 kNN 检索
+     *
+     * @param query  归一化后的查询向量
+     * @param k      返回数量
+     * @param ef     候选队列大小，越大召回越高
+     * @param accept 结果过滤条件（如已删除、doc_id），为 null 表示不过滤；
+     *               不满足条件的节点仍参与图遍历
+     * @return 按相似度降序的结果
+     */
+    List<Neighbor> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        List<Neighbor> results = searchLayer(query, current, Math.max(ef, k), 0, accept);
+        return results.size() > k ? results.subList(0, k) : results;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int best = start;
+        float bestScore = vectors.similarity(query, start);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = links[best][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float score = vectors.similarity(query, neighbors[i]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = neighbors[i];
+                    changed = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 单层 best-first 检索。带过滤条件时结果队列只收满足条件的节点，
+     * 队列未满前不会提前停止，因此过滤越严遍历的节点越多。
+     */
+    private List<Neighbor> searchLayer(float[] query, int start, int ef, int level, IntPredicate accept) {
+        BitSet visited = new BitSet(size);
+        // 候选：相似度大的优先
+        PriorityQueue<Neighbor> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.score(), a.score()));
+        // 结果：相似度小的在堆顶，便于淘汰
+        PriorityQueue<Neighbor> results = new PriorityQueue<>((a, b) -> Float.compare(a.score(), b.score()));
+
+        Neighbor first = new Neighbor(start, vectors.similarity(query, start));
+        visited.set(start);
+        candidates.add(first);
+        if (accept == null || accept.test(start)) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Neighbor candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int[] neighbors = links[candidate.ord()][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int next = neighbors[i];
+                if (visited.get(next)) {
+                    continue;
+                }
+                visited.set(next);
+                float score = vectors.similarity(query, next);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Neighbor neighbor = new Neighbor(next, score);
+                    candidates.add(neighbor);
+                    if (accept == null || accept.test(next)) {
+                        results.add(neighbor);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Neighbor> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return sorted;
+    }
+
+    private void addLink(int from, int to, int level) {
+        int[] neighbors = links[from][level];
+        int count = neighbors[0];
+        if (count < neighbors.length - 1) {
+            neighbors[count + 1] = to;
+            neighbors[0] = count + 1;
+            return;
+        }
+        // 已满：保留与 from 最相似的 maxConn 个
+        float[] base = vectors.get(from);
+        Neighbor[] all = new Neighbor[count + 1];
+        for (int i = 1; i <= count; i++) {
+            all[i - 1] = new Neighbor(neighbors[i], vectors.similarity(base, neighbors[i]));
+        }
+        all[count] = new Neighbor(to, vectors.similarity(base, to));
+        Arrays.sort(all, (a, b) -> Float.compare(b.score(), a.score()));
+        for (int i = 0; i < count; i++) {
+            neighbors[i + 1] = all[i].ord();
+        }
+    }
+
+    private int maxConn(int level) {
+        return level == 0 ? maxConn0 : m;
+    }
+}
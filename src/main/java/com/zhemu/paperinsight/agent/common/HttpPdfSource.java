@@ -0,0 +1,114 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * 外部地址的 HTTP 读取（兜底来源）
+ * 带连接/读取超时，建立连接失败或 5xx 时按退避重试；续传时使用 Range 请求
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class HttpPdfSource implements PdfSource {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    public HttpPdfSource(AgentPromptConfig promptConfig) {
+        this.connectTimeoutMs = promptConfig.getTools().getDownloadConnectTimeoutMs();
+        this.readTimeoutMs = promptConfig.getTools().getDownloadReadTimeoutMs();
+    }
+
+    @Override
+    public boolean supports(String pdfUrl) {
+        return pdfUrl != null && (pdfUrl.startsWith("http://") || pdfUrl.startsWith("https://"));
+    }
+
+    @Override
+    public PdfStream open(String pdfUrl, long offset) throws IOException {
+        IOException last = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                return connect(pdfUrl, offset);
+            } catch (FileNotFoundException e) {
+                // 4xx 重试无意义
+                throw e;
+            } catch (IOException e) {
+                last = e;
+                log.warn("Failed to open {} (attempt {}/{}): {}", pdfUrl, attempt, MAX_ATTEMPTS, e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    sleep(RETRY_BACKOFF_MS * attempt);
+                }
+            }
+        }
+        throw last;
+    }
+
+    private PdfStream connect(String pdfUrl, long offset) throws IOException {
+        URLConnection connection = new URL(pdfUrl).openConnection();
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+        if (offset > 0) {
+            connection.setRequestProperty("Range", "bytes=" + offset + "-");
+        }
+        if (connection instanceof HttpURLConnection http) {
+            int status = http.getResponseCode();
+            if (status >= 400) {
+                http.disconnect();
+                String message = "HTTP " + status + " for " + pdfUrl;
+                throw status < 500 ? new FileNotFoundException(message) : new IOException(message);
+            }
+            if (offset > 0 && status != HttpURLConnection.HTTP_PARTIAL) {
+                http.disconnect();
+                throw new IOException("Server does not support range requests: " + pdfUrl);
+            }
+        }
+        return new PdfStream(connection.getInputStream(), connection.getContentLengthLong(),
+                connection.getHeaderField("ETag"));
+    }
+
+    @Override
+    public ObjectVersion stat(String pdfUrl) throws IOException {
+        URLConnection connection = new URL(pdfUrl).openConnection();
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+        if (!(connection instanceof HttpURLConnection http)) {
+            return null;
+        }
+        try {
+            http.setRequestMethod("HEAD");
+            int status = http.getResponseCode();
+            if (status >= 400) {
+                String message = "HTTP " + status + " for " + pdfUrl;
+                throw status < 500 ? new FileNotFoundException(message) : new IOException(message);
+            }
+            return new ObjectVersion(http.getHeaderField("ETag"), http.getContentLengthLong());
+        } finally {
+            http.disconnect();
+        }
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while retrying download", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.zhemu.paperinsight.agent.common;
+
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import io.agentscope.core.rag.store.dto.SearchDocumentDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 混合检索知识库
+ * <p>
+ * 检索时同时把原始问题文本和问题向量交给 {@link PaperVectorStore#hybridSearch}，
+ * ES 下由 BM25 + kNN 两路召回后做 RRF 融合，使模型名、公式符号等精确词在首次检索即可命中；
+ * 不支持全文检索的向量库退化为纯向量检索。分数阈值只过滤向量一路，见 hybridSearch 说明。
+ * 写入路径与 SimpleKnowledge 一致：先嵌入再写入向量库。
+ *
+ * @author lushihao
+ */
+public class HybridKnowledge implements Knowledge {
+
+    // 写入时并发嵌入的数量
+    private static final int EMBED_CONCURRENCY = 8;
+
+    private final PaperVectorStore store;
+    private final EmbeddingModel embeddingModel;
+    // 为 null 时检索全库，否则只检索该论文的 chunk
+    private final String docId;
+
+    public HybridKnowledge(PaperVectorStore store, EmbeddingModel embeddingModel, String docId) {
+        this.store = store;
+        this.embeddingModel = embeddingModel;
+        this.docId = docId;
+    }
+
+    @Override
+    public Mono<Void> addDocuments(List<Document> documents) {
+        if (documents == null || documents.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(documents)
+                .flatMapSequential(doc -> embeddingModel.embed(doc.getMetadata().getContent())
+                        .map(embedding -> {
+                            doc.setEmbedding(embedding);
+                            return doc;
+                        }), EMBED_CONCURRENCY)
+                .collectList()
+                .flatMap(store::add);
+    }
+
+    @Override
+    public Mono<List<Document>> retrieve(String query, RetrieveConfig config) {
+        if (query == null || query.isBlank()) {
+            return Mono.just(List.of());
+        }
+        return embeddingModel.embed(TextBlock.builder().text(query).build())
+                .flatMap(embedding -> store.hybridSearch(query, SearchDocumentDto.builder()
+                        .queryEmbedding(embedding)
+                        .limit(config.getLimit())
+                        .scoreThreshold(config.getScoreThreshold())
+                        .build(), docId));
+    }
+}
@@ -0,0 +1,73 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.mapper.PaperInfoMapper;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.knowledge.SimpleKnowledge;
+
+/**
+ * 知识库工厂
+ * 根据检索模式 (vector / hybrid) 构建全库或单篇论文范围的知识库
+ * 混合检索由 PaperVectorStore#hybridSearch 实现，嵌入式向量库下退化为纯向量检索
+ * 内容重复的论文共享首次入库论文的 chunk，单篇论文范围按 paper_info.chunk_doc_id 定位
+ *
+ * @author lushihao
+ */
+public class KnowledgeFactory {
+
+    /**
+     * 纯向量检索
+     */
+    public static final String MODE_VECTOR = "vector";
+
+    /**
+     * BM25 + 向量混合检索 (RRF 融合)
+     */
+    public static final String MODE_HYBRID = "hybrid";
+
+    private final PaperVectorStore store;
+    private final EmbeddingModel embeddingModel;
+    private final String retrievalMode;
+    private final PaperInfoMapper paperInfoMapper;
+
+    public KnowledgeFactory(PaperVectorStore store, EmbeddingModel embeddingModel, String retrievalMode,
+            PaperInfoMapper paperInfoMapper) {
+        this.store = store;
+        this.embeddingModel = embeddingModel;
+        this.retrievalMode = retrievalMode;
+        this.paperInfoMapper = paperInfoMapper;
+    }
+
+    /**
+     * 全库知识库
+     *
+     * @return Knowledge
+     */
+    public Knowledge global() {
+        return create(null);
+    }
+
+    /**
+     * 单篇论文知识库，检索只打分该论文的 chunk
+     *
+     * @param paperId 论文ID
+     * @return Knowledge
+     */
+    public Knowledge forPaper(Long paperId) {
+        if (paperId == null) {
+            return create(null);
+        }
+        String docId = paperInfoMapper.selectChunkDocIdById(paperId);
+        return create(docId == null ? String.valueOf(paperId) : docId);
+    }
+
+    private Knowledge create(String docId) {
+        if (MODE_HYBRID.equalsIgnoreCase(retrievalMode)) {
+            return new HybridKnowledge(store, embeddingModel, docId);
+        }
+        return SimpleKnowledge.builder()
+                .embeddingStore(docId == null ? store : store.scopedTo(docId))
+                .embeddingModel(embeddingModel)
+                .build();
+    }
+}
@@ -0,0 +1,283 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.constant.LlmPriority;
+import io.agentscope.core.model.Model;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大模型调用限流器
+ * <p>
+ * 所有 Model 实例（对话与各分析智能体）按 provider 共享一组限额：并发上限 + 每分钟 token 的令牌桶。
+ * 拿不到配额的调用进入按优先级排序的等待队列，对话总是排在分析前面；排队超过期限的调用以
+ * {@link TimeoutException} 失败，不会无限堆积。调用前按输入估算 token 预扣，结束后按实际用量多退少补。
+ * 等待耗时、队列长度、在途数与排队超时数通过 Micrometer 导出。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+public class LlmGovernor {
+
+    private static final String METRIC_NAME = "paper_insight.llm.governor";
+
+    private final AgentPromptConfig.GovernorProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderLimiter> limiters = new ConcurrentHashMap<>();
+
+    public LlmGovernor(AgentPromptConfig promptConfig, MeterRegistry meterRegistry) {
+        this.properties = promptConfig.getGovernor();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 用限流包装模型
+     *
+     * @param delegate 原始模型
+     * @param provider 模型提供商，同一 provider 的所有模型共享限额
+     * @param priority 该模型调用的优先级
+     * @return 受限流的模型；未启用时原样返回
+     */
+    public Model govern(Model delegate, String provider, LlmPriority priority) {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return delegate;
+        }
+        return new GovernedModel(delegate, this, provider, priority);
+    }
+
+    /**
+     * 申请一次调用的配额
+     *
+     * @param provider        模型提供商
+     * @param priority        优先级
+     * @param estimatedTokens 预估 token 数
+     * @return 获得配额后发出许可，用完必须 release；排队超时以 TimeoutException 失败
+     */
+    public Mono<Permit> acquire(String provider, LlmPriority priority, int estimatedTokens) {
+        ProviderLimiter limiter = limiters.computeIfAbsent(provider, ProviderLimiter::new);
+        return Mono.<Permit>create(sink -> limiter.enqueue(new Waiter(priority, estimatedTokens, sink)))
+                // 放行与取消同时发生时，被丢弃的许可要归还
+                .doOnDiscard(Permit.class, Permit::release);
+    }
+
+    private Duration queueTimeout(LlmPriority priority) {
+        int seconds = priority == LlmPriority.INTERACTIVE ? properties.getInteractiveQueueTimeoutSeconds()
+                : properties.getBatchQueueTimeoutSeconds();
+        return Duration.ofSeconds(seconds);
+    }
+
+    /**
+     * 一次调用的配额许可
+     */
+    public static final class Permit {
+
+        private final ProviderLimiter limiter;
+        private final int reservedTokens;
+        private final AtomicBoolean released = new AtomicBoolean();
+        // 未上报用量时为 -1，按预扣数结算
+        private volatile int usedTokens = -1;
+
+        private Permit(ProviderLimiter limiter, int reservedTokens) {
+            this.limiter = limiter;
+            this.reservedTokens = reservedTokens;
+        }
+
+        /**
+         * 记录实际用量（流式响应中取最大值）
+         */
+        public void recordUsage(int totalTokens) {
+            if (totalTokens > usedTokens) {
+                usedTokens = totalTokens;
+            }
+        }
+
+        /**
+         * 归还并发配额，并按实际用量修正令牌桶；重复调用无副作用
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                int used = usedTokens < 0 ? reservedTokens : usedTokens;
+                limiter.release(used - reservedTokens);
+            }
+        }
+    }
+
+    /**
+     * 排队中的调用
+     */
+    private static final class Waiter {
+
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        private final LlmPriority priority;
+        private final int tokens;
+        private final MonoSink<Permit> sink;
+        private final long sequence = SEQUENCE.incrementAndGet();
+        private final long enqueuedNanos = System.nanoTime();
+        // 受 ProviderLimiter 锁保护
+        private boolean finished;
+        private Disposable deadline;
+
+        private Waiter(LlmPriority priority, int tokens, MonoSink<Permit> sink) {
+            this.priority = priority;
+            this.tokens = tokens;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * 单个 provider 的并发与令牌桶状态，所有状态变更在对象锁内完成，回调在锁外执行
+     */
+    private final class ProviderLimiter {
+
+        private final String provider;
+        private final int maxConcurrency;
+        private final double capacity;
+        private final double tokensPerNano;
+        private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+                Comparator.comparing((Waiter w) -> w.priority).thenComparingLong(w -> w.sequence));
+        private final AtomicLong inFlight = new AtomicLong();
+        private final Counter timeouts;
+
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private Disposable refillTimer;
+
+        private ProviderLimiter(String provider) {
+            this.provider = provider;
+            this.maxConcurrency = properties.maxConcurrencyOf(provider);
+            this.capacity = properties.tokensPerMinuteOf(provider);
+            this.tokensPerNano = capacity / TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+            this.timeouts = Counter.builder(METRIC_NAME + ".timeouts").tag("provider", provider)
+                    .register(meterRegistry);
+            meterRegistry.gauge(METRIC_NAME + ".queue.size", Tags.of("provider", provider), this,
+                    ProviderLimiter::queueSize);
+            meterRegistry.gauge(METRIC_NAME + ".in_flight", Tags.of("provider", provider), inFlight);
+            log.info("LLM governor for {}: maxConcurrency {}, tokensPerMinute {}", provider, maxConcurrency,
+                    (long) capacity);
+        }
+
+        private synchronized double queueSize() {
+            return queue.size();
+        }
+
+        private void enqueue(Waiter waiter) {
+            synchronized (this) {
+                queue.add(waiter);
+                waiter.deadline = Schedulers.parallel().schedule(() -> expire(waiter),
+                        queueTimeout(waiter.priority).toMillis(), TimeUnit.MILLISECONDS);
+            }
+            waiter.sink.onCancel(() -> cancel(waiter));
+            drain();
+        }
+
+        private void expire(Waiter waiter) {
+            synchronized (this) {
+                if (waiter.finished) {
+                    return;
+                }
+                waiter.finished = true;
+                queue.remove(waiter);
+            }
+            timeouts.increment();
+            waiter.sink.error(new TimeoutException("LLM queue wait exceeded "
+                    + queueTimeout(waiter.priority).toSeconds() + "s for provider " + provider));
+        }
+
+        private void cancel(Waiter waiter) {
+            synchronized (this) {
+                if (waiter.finished) {
+                    return;
+                }
+                waiter.finished = true;
+                queue.remove(waiter);
+                waiter.deadline.dispose();
+            }
+            drain();
+        }
+
+        private void release(int tokenCorrection) {
+            synchronized (this) {
+                inFlight.decrementAndGet();
+                // 实际用量超出预扣时补扣，允许透支到负值以推迟后续调用；少用的部分退回
+                tokens = Math.max(-capacity, Math.min(capacity, tokens - tokenCorrection));
+            }
+            drain();
+        }
+
+        /**
+         * 按优先级依次放行：并发与 token 都够时放行队首；token 不够时等补充后再试，队首未放行前后面的都不放行
+         */
+        private void drain() {
+            List<Waiter> granted = new ArrayList<>();
+            synchronized (this) {
+                refill();
+                while (!queue.isEmpty() && inFlight.get() < maxConcurrency) {
+                    Waiter head = queue.peek();
+                    // 单次需求超过桶容量时按容量计，避免永远拿不到
+                    double needed = Math.min(head.tokens, capacity);
+                    if (tokens < needed) {
+                        scheduleRefill(needed - tokens);
+                        break;
+                    }
+                    queue.poll();
+                    head.finished = true;
+                    head.deadline.dispose();
+                    tokens -= needed;
+                    inFlight.incrementAndGet();
+                    granted.add(head);
+                }
+            }
+            for (Waiter waiter : granted) {
+                long waitNanos = System.nanoTime() - waiter.enqueuedNanos;
+                Timer.builder(METRIC_NAME + ".queue.wait")
+                        .tag("provider", provider)
+                        .tag("priority", waiter.priority.getValue())
+                        .register(meterRegistry)
+                        .record(waitNanos, TimeUnit.NANOSECONDS);
+                waiter.sink.success(new Permit(this, (int) Math.min(waiter.tokens, capacity)));
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+
+        private void scheduleRefill(double missingTokens) {
+            if (refillTimer != null && !refillTimer.isDisposed()) {
+                return;
+            }
+            long delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(10), (long) (missingTokens / tokensPerNano));
+            refillTimer = Schedulers.parallel().schedule(() -> {
+                synchronized (this) {
+                    refillTimer = null;
+                }
+                drain();
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,579 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.exception.VectorStoreException;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.store.dto.SearchDocumentDto;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 嵌入式向量库：向量存于内存映射文件，检索使用纯 Java HNSW 图
+ * <p>
+ * 面向不部署 ES 集群的单机场景，目录结构：
+ * <ul>
+ * <li>{@code vectors.f32}：按序号连续存放的归一化 float32 向量，分段 mmap；</li>
+ * <li>{@code chunks.log}：追加写的 JSON 行日志，记录每个序号对应的 chunk 与删除操作。</li>
+ * </ul>
+ * 启动时回放日志并由 mmap 中的向量重建 HNSW 图；删除为墓碑标记，不回收空间。
+ * 每批日志一次写入，写入失败时截回批次开始位置；启动时截掉崩溃留下的不完整尾部，
+ * 保证重试与之后的追加不会被残留记录挡住。
+ * doc_id 过滤时，若该论文的 chunk 数不多则直接精确计算，否则在图检索时过滤结果。
+ * 得分与 ES cosine 一致：(1 + cos) / 2。
+ *
+ * @author lushihao
+ */
+@Slf4j
+public class MmapHnswStore implements PaperVectorStore, AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private static final ObjectReader CONTENT_READER = OBJECT_MAPPER.readerFor(ContentBlock.class);
+
+    private static final String VECTOR_FILE = "vectors.f32";
+    private static final String LOG_FILE = "chunks.log";
+    private static final String OP_ADD = "add";
+    private static final String OP_DELETE = "del";
+    // 每个 mmap 分段存放的向量数
+    private static final int SEGMENT_VECTORS = 4096;
+    // 单篇论文 chunk 数不超过该值时精确检索
+    private static final int EXACT_SEARCH_THRESHOLD = 5000;
+    private static final int REPLAY_BUFFER_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final int dimensions;
+    private final int efSearch;
+    private final FileChannel vectorChannel;
+    private final FileChannel logChannel;
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private final List<MappedByteBuffer> mappedSegments = new ArrayList<>();
+    private final HnswIndex index;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<String, Integer> ordById = new HashMap<>();
+    private final Map<String, List<Integer>> ordsByDocId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean closed = false;
+
+    public MmapHnswStore(Path directory, int dimensions, int m, int efConstruction, int efSearch)
+            throws VectorStoreException {
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.efSearch = efSearch;
+        this.index = new HnswIndex(new MappedVectors(), m, efConstruction);
+        try {
+            Files.createDirectories(directory);
+            this.vectorChannel = FileChannel.open(directory.resolve(VECTOR_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replayLog();
+            this.logChannel = FileChannel.open(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            log.info("MmapHnswStore loaded {} chunks ({} deleted) from {}", chunks.size(), deleted.cardinality(),
+                    directory);
+        } catch (IOException e) {
+            throw new VectorStoreException("Failed to open embedded vector store at " + directory, e);
+        }
+    }
+
+    @Override
+    public Mono<Void> add(List<Document> documents) {
+        if (documents == null || documents.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    lock.writeLock().lock();
+                    try {
+                        ensureNotClosed();
+                        appendDocuments(documents);
+                        return documents.size();
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then()
+                .doOnError(e -> log.error("Failed to add documents to embedded store", e))
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("Failed to add documents", e));
+    }
+
+    @Override
+    public Mono<List<Document>> search(SearchDocumentDto searchDocumentDto) {
+        return search(searchDocumentDto, null);
+    }
+
+    @Override
+    public Mono<List<Document>> search(SearchDocumentDto searchDocumentDto, String docId) {
+        return Mono.fromCallable(() -> {
+                    lock.readLock().lock();
+                    try {
+                        ensureNotClosed();
+                        return executeSearch(searchDocumentDto, docId);
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(e -> log.error("Error during embedded vector search", e))
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("Vector search failed", e));
+    }
+
+    @Override
+    public Mono<List<Document>> searchByText(String keyword, int limit) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return Mono.just(new ArrayList<>());
+        }
+        String needle = keyword.trim().toLowerCase(Locale.ROOT);
+        return Mono.fromCallable(() -> {
+                    lock.readLock().lock();
+                    try {
+                        ensureNotClosed();
+                        // 无倒排索引，线性扫描，适用于小规模数据
+                        List<Document> results = new ArrayList<>();
+                        for (int ord = 0; ord < chunks.size() && results.size() < limit; ord++) {
+                            Chunk chunk = chunks.get(ord);
+                            if (!deleted.get(ord) && chunk.text() != null
+                                    && chunk.text().toLowerCase(Locale.ROOT).contains(needle)) {
+                                results.add(toDocument(chunk, null));
+                            }
+                        }
+                        return results;
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Boolean> delete(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Document ID cannot be null or empty"));
+        }
+        return Mono.fromCallable(() -> {
+                    lock.writeLock().lock();
+                    try {
+                        ensureNotClosed();
+                        Integer ord = ordById.get(id);
+                        if (ord == null || deleted.get(ord)) {
+                            return false;
+                        }
+                        appendLog(List.of(new LogEntry(OP_DELETE, ord, id, null, null, null, null)));
+                        markDeleted(ord);
+                        return true;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("Failed to delete document from embedded store", e));
+    }
+
+    @Override
+    public Mono<Long> deleteByDocIds(Collection<String> docIds) {
+        if (docIds == null || docIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Mono.fromCallable(() -> {
+                    lock.writeLock().lock();
+                    try {
+                        ensureNotClosed();
+                        List<LogEntry> entries = new ArrayList<>();
+                        for (String docId : docIds.stream().distinct().toList()) {
+                            for (int ord : ordsByDocId.getOrDefault(docId, List.of())) {
+                                entries.add(new LogEntry(OP_DELETE, ord, chunks.get(ord).id(), null, null, null, null));
+                            }
+                        }
+                        appendLog(entries);
+                        entries.forEach(entry -> markDeleted(entry.ord()));
+                        return (long) entries.size();
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("Failed to delete documents by doc_id", e));
+    }
+
+    @Override
+    public Flux<String> listDocIds() {
+        return Mono.fromCallable(() -> {
+                    lock.readLock().lock();
+                    try {
+                        return List.copyOf(ordsByDocId.keySet());
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                })
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            mappedSegments.forEach(MappedByteBuffer::force);
+            logChannel.close();
+            vectorChannel.close();
+        } catch (IOException e) {
+            log.warn("Error closing embedded vector store", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Document> executeSearch(SearchDocumentDto dto, String docId) throws VectorStoreException {
+        double[] queryEmbedding = dto.getQueryEmbedding();
+        if (queryEmbedding.length != dimensions) {
+            throw new VectorStoreException("Embedding dimension mismatch");
+        }
+        float[] query = normalize(queryEmbedding);
+        int limit = dto.getLimit();
+
+        List<HnswIndex.Neighbor> neighbors;
+        if (docId != null) {
+            List<Integer> ords = ordsByDocId.getOrDefault(docId, List.of());
+            IntPredicate inDoc = ord -> !deleted.get(ord) && docId.equals(chunks.get(ord).docId());
+            neighbors = ords.size() <= EXACT_SEARCH_THRESHOLD
+                    ? exactSearch(query, ords, limit)
+                    : index.search(query, limit, efSearch, inDoc);
+        } else {
+            IntPredicate live = ord -> !deleted.get(ord);
+            neighbors = index.search(query, limit, efSearch, deleted.isEmpty() ? null : live);
+        }
+
+        Double threshold = dto.getScoreThreshold();
+        List<Document> results = new ArrayList<>(neighbors.size());
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            double score = (1 + neighbor.score()) / 2;
+            if (threshold != null && score < threshold) {
+                continue;
+            }
+            results.add(toDocument(chunks.get(neighbor.ord()), score));
+        }
+        return results;
+    }
+
+    private List<HnswIndex.Neighbor> exactSearch(float[] query, List<Integer> ords, int limit) {
+        PriorityQueue<HnswIndex.Neighbor> top = new PriorityQueue<>(
+                Comparator.comparingDouble(HnswIndex.Neighbor::score));
+        for (int ord : ords) {
+            if (deleted.get(ord)) {
+                continue;
+            }
+            top.add(new HnswIndex.Neighbor(ord, similarity(query, ord)));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<HnswIndex.Neighbor> sorted = new ArrayList<>(top);
+        sorted.sort(Comparator.comparingDouble(HnswIndex.Neighbor::score).reversed());
+        return sorted;
+    }
+
+    /**
+     * 写入一批文档：先整批校验与序列化，再写向量并 force，之后才写日志并刷盘，最后更新内存索引。
+     * 校验失败时整批不生效；日志记录落盘前对应向量一定已落盘
+     */
+    private void appendDocuments(List<Document> documents) throws IOException, VectorStoreException {
+        for (Document doc : documents) {
+            if (doc.getEmbedding() == null || doc.getEmbedding().length != dimensions) {
+                throw new VectorStoreException("Document must have an embedding of dimension " + dimensions);
+            }
+            if (doc.getMetadata() == null) {
+                throw new VectorStoreException("Document metadata cannot be null");
+            }
+        }
+        int firstOrd = chunks.size();
+        List<LogEntry> entries = new ArrayList<>(documents.size());
+        for (Document doc : documents) {
+            DocumentMetadata meta = doc.getMetadata();
+            String contentJson = OBJECT_MAPPER.writeValueAsString(meta.getContent());
+            entries.add(new LogEntry(OP_ADD, firstOrd + entries.size(), doc.getId(), meta.getDocId(),
+                    meta.getChunkId(), meta.getContentText(), contentJson));
+        }
+
+        for (int i = 0; i < documents.size(); i++) {
+            writeVector(firstOrd + i, normalize(documents.get(i).getEmbedding()));
+        }
+        forceSegments(firstOrd, firstOrd + documents.size() - 1);
+
+        appendLog(entries);
+
+        for (LogEntry entry : entries) {
+            // 同 ID 重复写入视为更新：旧序号打墓碑
+            Integer previous = ordById.get(entry.id());
+            if (previous != null && !deleted.get(previous)) {
+                markDeleted(previous);
+            }
+            register(entry);
+        }
+    }
+
+    /**
+     * 回放日志。只回放以换行结尾的完整记录：崩溃留下的半行、以及与存储状态不一致的记录之后的内容
+     * 会被截掉，否则之后追加的记录会永远排在它们后面无法回放。重复的序号（同一批次重试写入）跳过
+     */
+    private void replayLog() throws IOException {
+        Path logFile = directory.resolve(LOG_FILE);
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        long vectorsOnDisk = vectorChannel.size() / ((long) dimensions * Float.BYTES);
+        // 最后一条已回放记录（含换行）的结束位置
+        long validEnd = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = Files.newInputStream(logFile)) {
+            byte[] buffer = new byte[REPLAY_BUFFER_BYTES];
+            long position = 0;
+            int read;
+            replay:
+            while ((read = in.read(buffer)) != -1) {
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    line.write(buffer, from, i - from);
+                    from = i + 1;
+                    Replay result = replayLine(line.toString(StandardCharsets.UTF_8), vectorsOnDisk);
+                    line.reset();
+                    if (result == Replay.STOP) {
+                        break replay;
+                    }
+                    if (result == Replay.APPLIED) {
+                        validEnd = position + i + 1;
+                    }
+                }
+                line.write(buffer, from, read - from);
+                position += read;
+            }
+        }
+
+        long size = Files.size(logFile);
+        if (validEnd < size) {
+            log.warn("Truncating {} trailing bytes of {} that could not be replayed", size - validEnd, logFile);
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+    private Replay replayLine(String line, long vectorsOnDisk) throws IOException {
+        if (line.isBlank()) {
+            return Replay.SKIPPED;
+        }
+        LogEntry entry;
+        try {
+            entry = OBJECT_MAPPER.readValue(line, LogEntry.class);
+        } catch (IOException e) {
+            log.warn("Skipping corrupt log line in {}", directory.resolve(LOG_FILE));
+            return Replay.SKIPPED;
+        }
+        if (OP_ADD.equals(entry.op())) {
+            if (entry.ord() < chunks.size() && entry.id() != null && entry.id().equals(chunks.get(entry.ord()).id())) {
+                return Replay.APPLIED;
+            }
+            if (entry.ord() != chunks.size() || entry.ord() >= vectorsOnDisk) {
+                log.warn("Log entry ordinal {} does not match store state, stopping replay", entry.ord());
+                return Replay.STOP;
+            }
+            Integer previous = ordById.get(entry.id());
+            if (previous != null && !deleted.get(previous)) {
+                markDeleted(previous);
+            }
+            register(entry);
+        } else if (OP_DELETE.equals(entry.op()) && entry.ord() < chunks.size()) {
+            markDeleted(entry.ord());
+        }
+        return Replay.APPLIED;
+    }
+
+    private void register(LogEntry entry) throws IOException {
+        int ord = entry.ord();
+        ensureSegment(ord);
+        chunks.add(new Chunk(entry.id(), entry.docId(), entry.chunkId(), entry.text(), entry.content()));
+        ordById.put(entry.id(), ord);
+        if (entry.docId() != null) {
+            ordsByDocId.computeIfAbsent(entry.docId(), k -> new ArrayList<>()).add(ord);
+        }
+        index.insert(ord);
+    }
+
+    private void markDeleted(int ord) {
+        deleted.set(ord);
+        Chunk chunk = chunks.get(ord);
+        if (chunk.docId() != null) {
+            List<Integer> ords = ordsByDocId.get(chunk.docId());
+            if (ords != null) {
+                ords.remove(Integer.valueOf(ord));
+                if (ords.isEmpty()) {
+                    ordsByDocId.remove(chunk.docId());
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次写入整批日志；写入失败时截回写入前的位置，避免重试时留下重复序号
+     */
+    private void appendLog(List<LogEntry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (LogEntry entry : entries) {
+            sb.append(OBJECT_MAPPER.writeValueAsString(entry)).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        long start = logChannel.size();
+        try {
+            while (bytes.hasRemaining()) {
+                logChannel.write(bytes);
+            }
+        } catch (IOException e) {
+            try {
+                logChannel.truncate(start);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+    }
+
+    private void writeVector(int ord, float[] vector) throws IOException {
+        ensureSegment(ord);
+        FloatBuffer segment = segments.get(ord / SEGMENT_VECTORS);
+        segment.put((ord % SEGMENT_VECTORS) * dimensions, vector);
+    }
+
+    private void ensureSegment(int ord) throws IOException {
+        int segmentIndex = ord / SEGMENT_VECTORS;
+        while (segments.size() <= segmentIndex) {
+            long segmentBytes = (long) SEGMENT_VECTORS * dimensions * Float.BYTES;
+            MappedByteBuffer mapped = vectorChannel.map(FileChannel.MapMode.READ_WRITE,
+                    segments.size() * segmentBytes, segmentBytes);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            mappedSegments.add(mapped);
+            segments.add(mapped.asFloatBuffer());
+        }
+    }
+
+    private void forceSegments(int fromOrd, int toOrd) {
+        for (int i = fromOrd / SEGMENT_VECTORS; i <= toOrd / SEGMENT_VECTORS && i < mappedSegments.size(); i++) {
+            mappedSegments.get(i).force();
+        }
+    }
+
+    private float similarity(float[] query, int ord) {
+        FloatBuffer segment = segments.get(ord / SEGMENT_VECTORS);
+        int offset = (ord % SEGMENT_VECTORS) * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * segment.get(offset + i);
+        }
+        return sum;
+    }
+
+    private Document toDocument(Chunk chunk, Double score) {
+        ContentBlock content;
+        try {
+            content = CONTENT_READER.readValue(chunk.contentJson());
+        } catch (Exception e) {
+            content = TextBlock.builder().text(chunk.text()).build();
+        }
+        Document doc = new Document(new DocumentMetadata(content, chunk.docId(), chunk.chunkId()));
+        if (score != null) {
+            doc.setScore(score);
+        }
+        return doc;
+    }
+
+    private float[] normalize(double[] embedding) {
+        double norm = 0;
+        for (double v : embedding) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] vector = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = norm == 0 ? 0 : (float) (embedding[i] / norm);
+        }
+        return vector;
+    }
+
+    private void ensureNotClosed() throws VectorStoreException {
+        if (closed) {
+            throw new VectorStoreException("MmapHnswStore has been closed");
+        }
+    }
+
+    /**
+     * 图检索时读取 mmap 中的向量
+     */
+    private final class MappedVectors implements HnswIndex.Vectors {
+
+        @Override
+        public float similarity(float[] query, int ord) {
+            return MmapHnswStore.this.similarity(query, ord);
+        }
+
+        @Override
+        public float[] get(int ord) {
+            float[] vector = new float[dimensions];
+            segments.get(ord / SEGMENT_VECTORS).get((ord % SEGMENT_VECTORS) * dimensions, vector);
+            return vector;
+        }
+    }
+
+    private record Chunk(String id, String docId, String chunkId, String text, String contentJson) {
+    }
+
+    private enum Replay {
+        APPLIED, SKIPPED, STOP
+    }
+
+    private record LogEntry(String op, int ord, String id, String docId, String chunkId, String text,
+            String content) {
+    }
+}
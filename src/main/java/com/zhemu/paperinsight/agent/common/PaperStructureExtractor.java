@@ -0,0 +1,167 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.constant.PaperSection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 论文结构化提取
+ * <p>
+ * 基于章节标题行的启发式规则，把 PDF 提取出的全文切分为标题、摘要、引言、方法、实验、结论、参考文献等章节。
+ * 标题行需独占一行，可带 "3"、"3."、"III."、"第三章"、"三、" 之类的一级编号；
+ * 二级编号（如 "3.1"、"（一）"）视为章节内的小节。中英文章节名均可识别，中文标题内的空格（如 "引　言"）会被忽略。
+ * 引言之后、实验之前未识别名称的一级编号章节归入方法（论文通常以模型名等自定义名称命名方法章节）。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+public class PaperStructureExtractor {
+
+    // 标题行最大长度，超过则视为正文
+    private static final int MAX_HEADING_LENGTH = 80;
+    private static final int MAX_HEADING_WORDS = 10;
+
+    private static final String CN_NUMBER = "[一二三四五六七八九十]{1,3}";
+
+    // 摘要常与正文在同一行："Abstract—We propose ..." / "Abstract. We ..." / "摘要：本文提出 ..."
+    private static final Pattern ABSTRACT = Pattern.compile(
+            "^(?:abstract\\b|摘\\s*要(?=[\\s:：]|$))\\s*[:：.\\-—–]?\\s*(?<body>.*)$",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CHARACTER_CLASS);
+    // 一级编号：阿拉伯数字或罗马数字加可选的点；中文的 "第三章"、"三、"、"3、"
+    private static final Pattern TOP_LEVEL_NUMBER = Pattern.compile("^(?:(?:\\d{1,2}|[IVX]{1,5})\\.?\\s+"
+            + "|第(?:" + CN_NUMBER + "|\\d{1,2})章\\s*|(?:" + CN_NUMBER + "|\\d{1,2})\\s*[、．]\\s*)(?<name>\\S.*)$");
+    private static final Pattern SUB_LEVEL_NUMBER = Pattern.compile(
+            "^(?:\\d{1,2}(\\.\\d{1,2})+\\.?\\s+|[（(](?:" + CN_NUMBER + "|\\d{1,2})[）)]\\s*)\\S.*$");
+    // 中文标题常用空格对齐（"引　言"），匹配前去掉汉字之间的空白
+    private static final Pattern CJK_SPACES = Pattern.compile("(?<=\\p{IsHan})\\s+(?=\\p{IsHan})",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static final Map<PaperSection, Pattern> HEADINGS = new LinkedHashMap<>();
+
+    static {
+        HEADINGS.put(PaperSection.INTRODUCTION, heading(
+                "introduction|background and motivation|引言|绪论|前言|导论|概述"));
+        HEADINGS.put(PaperSection.METHOD, heading(
+                "methods?|methodology|approach|our approach|proposed (method|approach|framework|model)"
+                        + "|method(ology)? and materials|materials and methods|model|framework"
+                        + "|problem (formulation|definition|statement)|preliminaries"
+                        + "|(研究|本文|所提)?方法(论)?|模型(设计)?|算法(设计)?|系统(设计|架构)|总体设计"
+                        + "|问题(定义|描述|形式化)|预备知识"));
+        HEADINGS.put(PaperSection.EXPERIMENTS, heading(
+                "experiments?|experimental (results|setup|evaluation|study)|evaluation|results"
+                        + "|results and (discussion|analysis)|empirical (study|evaluation|results)"
+                        + "|experiments? and results|ablation stud(y|ies)"
+                        + "|(消融|仿真)?实验(结果|设置|设计|评估|分析|与分析|与结果|结果与分析)?"
+                        + "|结果与(讨论|分析)|(性能)?评估"));
+        HEADINGS.put(PaperSection.CONCLUSION, heading(
+                "conclusions?|concluding remarks|conclusions? and future work|discussion and conclusions?"
+                        + "|summary and conclusions?|discussion"
+                        + "|结论|总结|结语|结束语|讨论|(结论|总结)与展望|讨论与结论"));
+        HEADINGS.put(PaperSection.REFERENCES, heading("references|bibliography|literature cited|参考文献"));
+        HEADINGS.put(PaperSection.OTHER, heading(
+                "related work|related works|literature review|background|acknowledge?ments?|appendix.*"
+                        + "|limitations|broader impacts?|ethics statement"
+                        + "|相关工作|相关研究|(国内外)?研究现状|文献综述|致谢|附录.*|局限性"));
+    }
+
+    private static Pattern heading(String names) {
+        return Pattern.compile("^(" + names + ")\\s*[:：]?$", Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * 提取论文结构
+     *
+     * @param text 全文
+     * @return 结构化论文，未识别到任何章节时全部正文归入 OTHER
+     */
+    public StructuredPaper extract(String text) {
+        Map<PaperSection, StringBuilder> buffers = new EnumMap<>(PaperSection.class);
+        String title = "";
+        // null 表示尚未遇到任何章节标题（标题、作者等前置信息）
+        PaperSection current = null;
+        boolean experimentsSeen = false;
+
+        for (String rawLine : text.split("\\R")) {
+            String line = rawLine.strip();
+            if (line.isEmpty()) {
+                append(buffers, current, rawLine);
+                continue;
+            }
+
+            if (current == null && title.isEmpty()) {
+                title = line;
+                continue;
+            }
+
+            if (!buffers.containsKey(PaperSection.ABSTRACT) && current != PaperSection.REFERENCES) {
+                Matcher abstractMatcher = ABSTRACT.matcher(line);
+                if (abstractMatcher.matches()) {
+                    current = PaperSection.ABSTRACT;
+                    buffers.put(PaperSection.ABSTRACT, new StringBuilder());
+                    append(buffers, current, abstractMatcher.group("body"));
+                    continue;
+                }
+            }
+
+            PaperSection next = detectHeading(line, current, experimentsSeen);
+            if (next != null) {
+                current = next;
+                experimentsSeen |= next == PaperSection.EXPERIMENTS;
+                buffers.computeIfAbsent(current, k -> new StringBuilder());
+                continue;
+            }
+            append(buffers, current, rawLine);
+        }
+
+        Map<PaperSection, String> sections = new EnumMap<>(PaperSection.class);
+        buffers.forEach((section, sb) -> {
+            if (!sb.toString().isBlank()) {
+                sections.put(section, sb.toString());
+            }
+        });
+        StructuredPaper paper = new StructuredPaper(sections, title, text.length());
+        log.debug("Structured paper '{}': {}", title, sections.keySet());
+        return paper;
+    }
+
+    private PaperSection detectHeading(String line, PaperSection current, boolean experimentsSeen) {
+        if (line.length() > MAX_HEADING_LENGTH || line.split("\\s+").length > MAX_HEADING_WORDS
+                || SUB_LEVEL_NUMBER.matcher(line).matches()) {
+            return null;
+        }
+        Matcher numbered = TOP_LEVEL_NUMBER.matcher(line);
+        String name = CJK_SPACES.matcher(numbered.matches() ? numbered.group("name").strip() : line).replaceAll("");
+        for (Map.Entry<PaperSection, Pattern> entry : HEADINGS.entrySet()) {
+            if (entry.getValue().matcher(name).matches()) {
+                return entry.getKey();
+            }
+        }
+        // 未识别名称的一级编号章节：引言之后、实验之前的归入方法
+        if (numbered.matches() && looksLikeHeading(name) && !experimentsSeen
+                && (current == PaperSection.INTRODUCTION || current == PaperSection.METHOD
+                || current == PaperSection.OTHER)) {
+            return PaperSection.METHOD;
+        }
+        return null;
+    }
+
+    private boolean looksLikeHeading(String name) {
+        // 首字母大写（中文为汉字开头）、不以句号结尾，排除正文中以数字开头的句子或表格行
+        int first = name.codePointAt(0);
+        boolean han = Character.UnicodeScript.of(first) == Character.UnicodeScript.HAN;
+        return (han || Character.isUpperCase(first)) && !name.endsWith(".") && !name.endsWith("。")
+                && name.chars().filter(Character::isLetter).count() >= (han ? 2 : 3);
+    }
+
+    private void append(Map<PaperSection, StringBuilder> buffers, PaperSection section, String line) {
+        PaperSection target = section == null ? PaperSection.OTHER : section;
+        buffers.computeIfAbsent(target, k -> new StringBuilder()).append(line).append('\n');
+    }
+}
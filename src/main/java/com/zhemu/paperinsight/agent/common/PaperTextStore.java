@@ -0,0 +1,172 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.constant.PaperSection;
+import com.zhemu.paperinsight.mapper.PaperInfoMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按页索引的论文文本
+ * <p>
+ * 每篇论文首次被对话工具访问时按页提取一次，连同章节切分结果保存为
+ * {@code <extractCacheDir>/pages/<paperId>.json.gz}，之后按页码或章节名直接读取。
+ * 分析阶段已提取过的论文直接按 ExtractedTextCache 记录的页边界拆分全文，无需重新下载。
+ * PDF 地址变化（重新上传）时重建，论文物理删除时随 RAG chunk 一起清理。最近使用的论文在内存中保留一份。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+public class PaperTextStore {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path directory;
+    private final PaperInfoMapper paperInfoMapper;
+    private final ExtractedTextCache extractedTextCache;
+    private final PdfDownloader pdfDownloader;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final PaperStructureExtractor paperStructureExtractor;
+    private final LoadingCache<Long, PaperText> loaded;
+
+    public PaperTextStore(AgentPromptConfig promptConfig, PaperInfoMapper paperInfoMapper,
+            ExtractedTextCache extractedTextCache, PdfDownloader pdfDownloader, PdfTextExtractor pdfTextExtractor,
+            PaperStructureExtractor paperStructureExtractor) {
+        this.directory = Path.of(promptConfig.getTools().getExtractCacheDir(), "pages");
+        this.paperInfoMapper = paperInfoMapper;
+        this.extractedTextCache = extractedTextCache;
+        this.pdfDownloader = pdfDownloader;
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.paperStructureExtractor = paperStructureExtractor;
+        // 同一篇论文并发访问时只构建一次
+        this.loaded = Caffeine.newBuilder()
+                .maximumSize(64)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build(this::load);
+    }
+
+    /**
+     * 获取论文的按页文本，不存在时构建
+     *
+     * @param paperId 论文ID（调用方需已校验归属）
+     * @return 按页文本
+     * @throws IOException 论文不存在或提取失败
+     */
+    public PaperText get(long paperId) throws IOException {
+        try {
+            return loaded.get(paperId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 删除论文的按页文本
+     *
+     * @param paperId 论文ID
+     */
+    public void evict(long paperId) {
+        loaded.invalidate(paperId);
+        try {
+            Files.deleteIfExists(fileOf(paperId));
+        } catch (IOException e) {
+            log.warn("Failed to delete page-indexed text of paper {}", paperId, e);
+        }
+    }
+
+    private PaperText load(Long paperId) {
+        String pdfUrl = paperInfoMapper.selectCosUrlById(paperId);
+        if (pdfUrl == null) {
+            throw new UncheckedIOException(new IOException("Paper " + paperId + " not found"));
+        }
+        Path file = fileOf(paperId);
+        PaperText stored = read(file);
+        if (stored != null && pdfUrl.equals(stored.pdfUrl())) {
+            return stored;
+        }
+        try {
+            PaperText built = build(pdfUrl);
+            write(file, built);
+            return built;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PaperText build(String pdfUrl) throws IOException {
+        List<String> cachedPages = extractedTextCache.getPagesByUrl(pdfUrl);
+        if (cachedPages != null) {
+            log.info("Building page-indexed text for {} from extracted text cache", pdfUrl);
+            return build(pdfUrl, String.join("", cachedPages), cachedPages);
+        }
+        log.info("Building page-indexed text for {}", pdfUrl);
+        try (PdfDownloader.DownloadedPdf pdf = pdfDownloader.download(pdfUrl)) {
+            PdfTextExtractor.Result result = pdfTextExtractor.extract(pdf.file());
+            List<String> pages = result.pages().stream().map(PdfTextExtractor.PageText::text).toList();
+            return build(pdfUrl, result.text(), pages);
+        }
+    }
+
+    private PaperText build(String pdfUrl, String text, List<String> pages) {
+        StructuredPaper structured = paperStructureExtractor.extract(text);
+        return new PaperText(pdfUrl, structured.title(), pages, structured.sections());
+    }
+
+    private Path fileOf(long paperId) {
+        return directory.resolve(paperId + ".json.gz");
+    }
+
+    private PaperText read(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return OBJECT_MAPPER.readValue(in, PaperText.class);
+        } catch (IOException e) {
+            log.warn("Failed to read page-indexed text {}, rebuilding", file, e);
+            return null;
+        }
+    }
+
+    private void write(Path file, PaperText text) {
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                OBJECT_MAPPER.writeValue(out, text);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 写失败只影响下次是否需要重建
+            log.warn("Failed to write page-indexed text {}", file, e);
+        }
+    }
+
+    /**
+     * 论文的按页文本
+     *
+     * @param pdfUrl   构建时的 PDF 地址
+     * @param title    标题
+     * @param pages    各页文本，下标 0 为第 1 页
+     * @param sections 各章节正文
+     */
+    public record PaperText(String pdfUrl, String title, List<String> pages, Map<PaperSection, String> sections) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.zhemu.paperinsight.agent.common;
+
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.store.VDBStoreBase;
+import io.agentscope.core.rag.store.dto.SearchDocumentDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 论文向量库
+ * 在 VDBStoreBase 基础上增加按 doc_id (paperId) 过滤检索与全文检索，
+ * 由 ElasticsearchStore（集群部署）与 MmapHnswStore（单机嵌入式）实现
+ *
+ * @author lushihao
+ */
+public interface PaperVectorStore extends VDBStoreBase {
+
+    /**
+     * 向量检索，docId 不为空时只检索该论文的 chunk
+     *
+     * @param searchDocumentDto 检索条件
+     * @param docId             论文ID，为 null 时检索全库
+     * @return 命中的文档
+     */
+    Mono<List<Document>> search(SearchDocumentDto searchDocumentDto, String docId);
+
+    /**
+     * 按关键词全文检索
+     *
+     * @param keyword 关键词
+     * @param limit   最大返回数量
+     * @return 命中的文档
+     */
+    Mono<List<Document>> searchByText(String keyword, int limit);
+
+    /**
+     * 混合检索：关键词与向量两路召回后融合
+     * 默认退化为纯向量检索，支持全文检索的实现（ElasticsearchStore）覆盖为 BM25 + kNN 的 RRF 融合
+     * 分数阈值只作用于向量一路的相似度，融合后的 RRF 分数与余弦相似度不可比，不再按阈值过滤
+     *
+     * @param queryText         原始问题文本
+     * @param searchDocumentDto 问题向量、返回数量与向量相似度阈值
+     * @param docId             论文ID，为 null 时检索全库
+     * @return 命中的文档
+     */
+    default Mono<List<Document>> hybridSearch(String queryText, SearchDocumentDto searchDocumentDto, String docId) {
+        return search(searchDocumentDto, docId);
+    }
+
+    /**
+     * 删除若干论文的全部 chunk
+     *
+     * @param docIds 论文ID集合
+     * @return 删除的 chunk 数
+     */
+    Mono<Long> deleteByDocIds(Collection<String> docIds);
+
+    /**
+     * 遍历库中所有不同的 doc_id，用于与 paper_info 对账
+     *
+     * @return doc_id 流
+     */
+    Flux<String> listDocIds();
+
+    /**
+     * 只检索单篇论文的视图，写入与删除原样委托
+     *
+     * @param docId 论文ID
+     * @return VDBStoreBase
+     */
+    default VDBStoreBase scopedTo(String docId) {
+        if (docId == null || docId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Doc ID cannot be null or empty");
+        }
+        PaperVectorStore store = this;
+        return new VDBStoreBase() {
+            @Override
+            public Mono<Void> add(List<Document> documents) {
+                return store.add(documents);
+            }
+
+            @Override
+            public Mono<List<Document>> search(SearchDocumentDto searchDocumentDto) {
+                return store.search(searchDocumentDto, docId);
+            }
+
+            @Override
+            public Mono<Boolean> delete(String id) {
+                return store.delete(id);
+            }
+        };
+    }
+}
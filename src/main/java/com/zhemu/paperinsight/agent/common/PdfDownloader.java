@@ -0,0 +1,185 @@
+package com.zhemu.paperinsight.agent.common;
+
+import cn.hutool.core.util.HexUtil;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * PDF 下载
+ * <p>
+ * 按地址选择 PdfSource（本桶 COS 直读，外部地址走 HTTP），通过 FileChannel.transferFrom 分块写入临时文件，
+ * 不在堆上缓存整份 PDF；下载过程中累计校验 pdfMaxSize，超限立即中断，同时计算内容 SHA-256 供提取缓存使用。
+ * 读取中途断开时按已写入的长度发起范围读取续传。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+public class PdfDownloader {
+
+    // 每次 transferFrom 的最大字节数，也是超限时的最大多写量
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+
+    private final List<PdfSource> sources;
+    private final long maxSize;
+    private final int maxResumes;
+
+    public PdfDownloader(List<PdfSource> sources, AgentPromptConfig promptConfig) {
+        this.sources = sources;
+        this.maxSize = promptConfig.getTools().getPdfMaxSize();
+        this.maxResumes = promptConfig.getTools().getDownloadMaxResumes();
+    }
+
+    /**
+     * 下载 PDF 到临时文件
+     *
+     * @param pdfUrl PDF 地址
+     * @return 下载结果，使用完毕后 close 删除临时文件
+     * @throws IOException 下载失败或超过大小上限
+     */
+    public DownloadedPdf download(String pdfUrl) throws IOException {
+        PdfSource source = sourceFor(pdfUrl);
+        MessageDigest digest = sha256();
+        Path file = Files.createTempFile("paper-", ".pdf");
+        try (FileChannel target = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int resumes = 0;
+            String etag = null;
+            while (true) {
+                // 读取中断时从文件末尾续传
+                long offset = target.size();
+                try (PdfSource.PdfStream stream = source.open(pdfUrl, offset)) {
+                    if (etag == null) {
+                        etag = stream.etag();
+                    }
+                    long expectedSize = offset + stream.contentLength();
+                    if (stream.contentLength() >= 0 && expectedSize > maxSize) {
+                        throw new SizeLimitExceededException(
+                                "PDF size " + expectedSize + " exceeds limit " + maxSize + " bytes");
+                    }
+                    transfer(stream, target, digest);
+                    break;
+                } catch (SizeLimitExceededException e) {
+                    throw e;
+                } catch (IOException e) {
+                    // 没有任何进展（如打开失败）或续传次数用尽时放弃
+                    if (target.size() == offset || resumes >= maxResumes) {
+                        throw e;
+                    }
+                    resumes++;
+                    log.warn("Download of {} interrupted at {} bytes, resuming ({}/{}): {}", pdfUrl, target.size(),
+                            resumes, maxResumes, e.getMessage());
+                }
+            }
+            long size = target.size();
+            log.debug("Downloaded {} bytes from {} via {}", size, pdfUrl, source.getClass().getSimpleName());
+            // 中断时已读入摘要但未写入文件的字节会在续传时再读一遍，流式摘要不再可信，改为对完整文件重新计算
+            byte[] sha256 = resumes == 0 ? digest.digest() : digestOf(target);
+            return new DownloadedPdf(file, HexUtil.encodeHexStr(sha256), size, etag);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * 查询 PDF 当前的版本，不下载内容
+     *
+     * @param pdfUrl PDF 地址
+     * @return 对象版本，来源无法提供时返回 null
+     * @throws IOException 查询失败
+     */
+    public PdfSource.ObjectVersion stat(String pdfUrl) throws IOException {
+        return sourceFor(pdfUrl).stat(pdfUrl);
+    }
+
+    private PdfSource sourceFor(String pdfUrl) throws IOException {
+        for (PdfSource source : sources) {
+            if (source.supports(pdfUrl)) {
+                return source;
+            }
+        }
+        throw new IOException("Unsupported PDF URL: " + pdfUrl);
+    }
+
+    private void transfer(PdfSource.PdfStream stream, FileChannel target, MessageDigest digest) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(new DigestInputStream(stream.in(), digest));
+        long position = target.size();
+        long transferred;
+        // 阻塞流到达末尾时 transferFrom 返回 0
+        while ((transferred = target.transferFrom(channel, position, TRANSFER_CHUNK)) > 0) {
+            position += transferred;
+            if (position > maxSize) {
+                throw new SizeLimitExceededException("PDF exceeds limit " + maxSize + " bytes while downloading");
+            }
+        }
+    }
+
+    private static byte[] digestOf(FileChannel file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        int read;
+        while ((read = file.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 超过 pdfMaxSize，不做续传
+     */
+    private static final class SizeLimitExceededException extends IOException {
+
+        private SizeLimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 已下载的 PDF 临时文件
+     *
+     * @param file   临时文件
+     * @param sha256 内容 SHA-256
+     * @param size   字节数
+     * @param etag   下载时对象的 ETag，来源未提供时为 null
+     */
+    public record DownloadedPdf(Path file, String sha256, long size, String etag) implements AutoCloseable {
+
+        /**
+         * 下载时的对象版本
+         */
+        public PdfSource.ObjectVersion version() {
+            return new PdfSource.ObjectVersion(etag, size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
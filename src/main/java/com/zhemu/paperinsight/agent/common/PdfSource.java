@@ -0,0 +1,88 @@
+package com.zhemu.paperinsight.agent.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDF 读取来源
+ * 按 URL 选择实现：本桶 COS 地址走 SDK 直读，其他地址走 HTTP
+ *
+ * @author lushihao
+ */
+public interface PdfSource {
+
+    /**
+     * 是否能读取该地址
+     *
+     * @param pdfUrl PDF 地址
+     * @return 是否支持
+     */
+    boolean supports(String pdfUrl);
+
+    /**
+     * 从指定偏移开始读取，用于断点续传
+     *
+     * @param pdfUrl PDF 地址
+     * @param offset 起始字节
+     * @return 读取流，调用方负责关闭
+     * @throws IOException 打开失败，或来源不支持范围读取
+     */
+    PdfStream open(String pdfUrl, long offset) throws IOException;
+
+    /**
+     * 查询对象当前的版本，不读取内容，用于判断按 URL 缓存的结果是否仍然有效
+     *
+     * @param pdfUrl PDF 地址
+     * @return 对象版本，来源无法提供时返回 null
+     * @throws IOException 查询失败
+     */
+    default ObjectVersion stat(String pdfUrl) throws IOException {
+        return null;
+    }
+
+    /**
+     * 已打开的 PDF 读取流
+     *
+     * @param in            内容流
+     * @param contentLength 本次读取的字节数，未知时为 -1
+     * @param etag          对象的 ETag，未知时为 null
+     */
+    record PdfStream(InputStream in, long contentLength, String etag) implements Closeable {
+
+        public PdfStream(InputStream in, long contentLength) {
+            this(in, contentLength, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 对象版本
+     *
+     * @param etag   ETag，未知时为 null
+     * @param length 对象总字节数，未知时为 -1
+     */
+    record ObjectVersion(String etag, long length) {
+
+        /**
+         * 是否与另一版本为同一内容：双方都已知的字段必须一致，且至少有一个字段可比较
+         *
+         * @param other 另一版本，可为 null
+         * @return 是否一致
+         */
+        public boolean matches(ObjectVersion other) {
+            if (other == null) {
+                return false;
+            }
+            boolean etagKnown = etag != null && other.etag() != null;
+            boolean lengthKnown = length >= 0 && other.length() >= 0;
+            return (etagKnown || lengthKnown)
+                    && (!etagKnown || etag.equals(other.etag()))
+                    && (!lengthKnown || length == other.length());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 按页并行的 PDF 文本提取引擎
+ * <p>
+ * 页数较多时把页码区间递归拆分到 ForkJoinPool，每个叶子任务各自打开同一临时文件的
+ * PDDocument（PDFBox 2.x 文档对象非线程安全，不能共享；文件内容由操作系统页缓存共享），
+ * 逐页提取后按页码顺序拼接。每页耗时随结果返回，便于定位慢页。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+public class PdfTextExtractor {
+
+    // 页数不超过该值时单线程提取，避免重复解析文档结构的开销
+    private static final int PARALLEL_MIN_PAGES = 16;
+
+    private final ForkJoinPool pool;
+    private final int pagesPerTask;
+
+    public PdfTextExtractor(AgentPromptConfig promptConfig) {
+        AgentPromptConfig.ToolProperties tools = promptConfig.getTools();
+        int parallelism = tools.getExtractParallelism() > 0
+                ? tools.getExtractParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+        this.pagesPerTask = Math.max(1, tools.getExtractPagesPerTask());
+    }
+
+    /**
+     * 提取 PDF 全部页的文本
+     *
+     * @param pdfFile PDF 文件
+     * @return 按页的提取结果
+     * @throws IOException 文件无法解析
+     */
+    public Result extract(Path pdfFile) throws IOException {
+        long start = System.nanoTime();
+        List<PageText> pages;
+        try (PDDocument document = load(pdfFile)) {
+            int pageCount = document.getNumberOfPages();
+            if (pageCount <= PARALLEL_MIN_PAGES) {
+                pages = stripPages(document, 1, pageCount);
+            } else {
+                try {
+                    pages = pool.invoke(new PageRangeTask(pdfFile, 1, pageCount));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+        Result result = new Result(pages, (System.nanoTime() - start) / 1_000_000);
+        logTimings(pdfFile, result);
+        return result;
+    }
+
+    /**
+     * 逐页流式提取，下游请求时才提取下一页，内存中只保留当前页文本
+     *
+     * @param pdfFile PDF 文件
+     * @return 按页码顺序的页文本流
+     */
+    public Flux<PageText> streamPages(Path pdfFile) {
+        return Flux.using(() -> load(pdfFile),
+                        document -> Flux.range(1, document.getNumberOfPages())
+                                .handle((Integer page, SynchronousSink<PageText> sink) -> {
+                                    try {
+                                        // 每页新建 stripper，开销远小于页内容解析
+                                        sink.next(stripPage(newStripper(), document, page));
+                                    } catch (IOException e) {
+                                        sink.error(e);
+                                    }
+                                }),
+                        this::closeQuietly)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static PDDocument load(Path pdfFile) throws IOException {
+        // 解析过程中的缓冲只落临时文件，不占用堆
+        return PDDocument.load(pdfFile.toFile(), MemoryUsageSetting.setupTempFileOnly());
+    }
+
+    private static List<PageText> stripPages(PDDocument document, int fromPage, int toPage) throws IOException {
+        PDFTextStripper stripper = newStripper();
+        List<PageText> pages = new ArrayList<>(toPage - fromPage + 1);
+        for (int page = fromPage; page <= toPage; page++) {
+            pages.add(stripPage(stripper, document, page));
+        }
+        return pages;
+    }
+
+    private static PDFTextStripper newStripper() throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        // 按位置排序，尽量保持格式
+        stripper.setSortByPosition(true);
+        return stripper;
+    }
+
+    private static PageText stripPage(PDFTextStripper stripper, PDDocument document, int page) throws IOException {
+        long start = System.nanoTime();
+        stripper.setStartPage(page);
+        stripper.setEndPage(page);
+        String text = stripper.getText(document);
+        return new PageText(page, text, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void closeQuietly(PDDocument document) {
+        try {
+            document.close();
+        } catch (IOException e) {
+            log.warn("Failed to close PDF document", e);
+        }
+    }
+
+    private void logTimings(Path pdfFile, Result result) {
+        PageText slowest = result.pages().stream()
+                .max((a, b) -> Long.compare(a.millis(), b.millis()))
+                .orElse(null);
+        log.info("Extracted {} pages from {} in {} ms (pool parallelism {}), slowest page {} took {} ms",
+                result.pages().size(), pdfFile.getFileName(), result.totalMillis(), pool.getParallelism(),
+                slowest == null ? "-" : slowest.page(), slowest == null ? 0 : slowest.millis());
+        if (log.isDebugEnabled()) {
+            result.pages().forEach(p -> log.debug("Page {}: {} chars, {} ms", p.page(), p.text().length(),
+                    p.millis()));
+        }
+    }
+
+    /**
+     * 页码区间任务：区间超过 pagesPerTask 时对半拆分
+     */
+    private final class PageRangeTask extends RecursiveTask<List<PageText>> {
+
+        private final Path pdfFile;
+        private final int fromPage;
+        private final int toPage;
+
+        private PageRangeTask(Path pdfFile, int fromPage, int toPage) {
+            this.pdfFile = pdfFile;
+            this.fromPage = fromPage;
+            this.toPage = toPage;
+        }
+
+        @Override
+        protected List<PageText> compute() {
+            if (toPage - fromPage + 1 <= pagesPerTask) {
+                try (PDDocument document = load(pdfFile)) {
+                    return stripPages(document, fromPage, toPage);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (fromPage + toPage) >>> 1;
+            PageRangeTask left = new PageRangeTask(pdfFile, fromPage, middle);
+            PageRangeTask right = new PageRangeTask(pdfFile, middle + 1, toPage);
+            right.fork();
+            List<PageText> pages = new ArrayList<>(left.compute());
+            pages.addAll(right.join());
+            return pages;
+        }
+    }
+
+    /**
+     * 单页提取结果
+     *
+     * @param page   页码（从 1 开始）
+     * @param text   页文本
+     * @param millis 提取耗时
+     */
+    public record PageText(int page, String text, long millis) {
+    }
+
+    /**
+     * 整篇提取结果
+     *
+     * @param pages       按页码排序的各页文本
+     * @param totalMillis 总耗时
+     */
+    public record Result(List<PageText> pages, long totalMillis) {
+
+        /**
+         * 拼接后的全文
+         */
+        public String text() {
+            StringBuilder sb = new StringBuilder();
+            pages.forEach(p -> sb.append(p.text()));
+            return sb.toString();
+        }
+
+        /**
+         * 各页在 {@link #text()} 中的结束位置，用于从全文还原各页
+         */
+        public int[] pageEnds() {
+            int[] ends = new int[pages.size()];
+            int end = 0;
+            for (int i = 0; i < ends.length; i++) {
+                end += pages.get(i).text().length();
+                ends[i] = end;
+            }
+            return ends;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.zhemu.paperinsight.agent.common;
+
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.reader.ReaderInput;
+import io.agentscope.core.rag.reader.SplitStrategy;
+import io.agentscope.core.rag.reader.TextReader;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 增量文本切分器
+ * <p>
+ * 按页喂入文本，每次把上一页剩下的尾块与新页拼接后交给 TextReader 切分，
+ * 除最后一块外全部输出，最后一块留作下一页的开头。这样段落跨页时不会被硬切，
+ * 块间 overlap 也能跨越页边界；内存中只保留一页文本加一个尾块。
+ * 非线程安全，单次入库内顺序调用。
+ *
+ * @author lushihao
+ */
+public class StreamingTextChunker {
+
+    private final TextReader textReader;
+    private String carry = "";
+
+    public StreamingTextChunker(int chunkSize, SplitStrategy splitStrategy, int overlap) {
+        this.textReader = new TextReader(chunkSize, splitStrategy, overlap);
+    }
+
+    /**
+     * 追加一段文本
+     *
+     * @param text 新页文本
+     * @return 已确定的 chunk 文本，可能为空
+     */
+    public Mono<List<String>> accept(String text) {
+        if (text == null || text.isBlank()) {
+            return Mono.just(List.of());
+        }
+        String input = carry.isEmpty() ? text : carry + "\n" + text;
+        return split(input).map(chunks -> {
+            if (chunks.isEmpty()) {
+                carry = "";
+                return chunks;
+            }
+            carry = chunks.get(chunks.size() - 1);
+            return chunks.subList(0, chunks.size() - 1);
+        });
+    }
+
+    /**
+     * 输出剩余的尾块
+     *
+     * @return 剩余 chunk 文本
+     */
+    public Mono<List<String>> flush() {
+        if (carry.isBlank()) {
+            return Mono.just(List.of());
+        }
+        String rest = carry;
+        carry = "";
+        return Mono.just(List.of(rest));
+    }
+
+    private Mono<List<String>> split(String text) {
+        return textReader.read(ReaderInput.fromString(text))
+                .map(docs -> docs.stream()
+                        .map(Document::getMetadata)
+                        .map(DocumentMetadata::getContentText)
+                        .filter(chunk -> chunk != null && !chunk.isBlank())
+                        .toList());
+    }
+}
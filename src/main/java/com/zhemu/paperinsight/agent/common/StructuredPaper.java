@@ -0,0 +1,58 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.constant.PaperSection;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按章节切分后的论文
+ *
+ * @param sections     各章节正文（不含 TITLE，标题单独保存）
+ * @param title        标题，未识别时为空串
+ * @param sourceLength 原始全文长度
+ * @author lushihao
+ */
+public record StructuredPaper(Map<PaperSection, String> sections, String title, int sourceLength) {
+
+    // 正文类章节缺失时用 OTHER 兜底，避免章节识别失败导致智能体拿不到正文
+    private static final Set<PaperSection> BODY_SECTIONS = EnumSet.of(
+            PaperSection.INTRODUCTION, PaperSection.METHOD, PaperSection.EXPERIMENTS, PaperSection.CONCLUSION);
+
+    /**
+     * 是否识别出了章节结构
+     */
+    public boolean isStructured() {
+        return sections.keySet().stream().anyMatch(s -> s != PaperSection.OTHER);
+    }
+
+    /**
+     * 拼接指定章节作为智能体输入
+     *
+     * @param wanted 需要的章节
+     * @return 按章节顺序拼接的文本
+     */
+    public String render(Collection<PaperSection> wanted) {
+        Set<PaperSection> selected = wanted.isEmpty()
+                ? EnumSet.noneOf(PaperSection.class)
+                : EnumSet.copyOf(wanted);
+        if (selected.stream().anyMatch(s -> BODY_SECTIONS.contains(s) && !sections.containsKey(s))) {
+            selected.add(PaperSection.OTHER);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (selected.contains(PaperSection.TITLE) && !title.isEmpty()) {
+            sb.append("# ").append(title).append("\n\n");
+        }
+        for (PaperSection section : selected) {
+            String content = sections.get(section);
+            if (section == PaperSection.TITLE || content == null || content.isBlank()) {
+                continue;
+            }
+            sb.append("## ").append(section.name()).append("\n").append(content.strip()).append("\n\n");
+        }
+        return sb.toString().strip();
+    }
+}
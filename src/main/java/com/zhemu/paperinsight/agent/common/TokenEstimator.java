@@ -0,0 +1,105 @@
+package com.zhemu.paperinsight.agent.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token 估算
+ * <p>
+ * 不依赖具体模型的分词器，按字符类别粗略估算：CJK 字符约 1 token/字，
+ * 其余字符（英文、数字、标点、空白）约 4 字符/token。用于判断是否超出预算与切分窗口，偏保守即可。
+ *
+ * @author lushihao
+ */
+public final class TokenEstimator {
+
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的 token 数
+     *
+     * @param text 文本
+     * @return token 数
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (isCjk(text.charAt(i))) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+    }
+
+    /**
+     * 按 token 预算切分为窗口，优先在段落（空行）处切开，单个段落超出预算时按行、再按字符硬切
+     *
+     * @param text      文本
+     * @param maxTokens 每个窗口的最大 token 数
+     * @return 窗口列表，保持原文顺序
+     */
+    public static List<String> split(String text, int maxTokens) {
+        List<String> windows = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (String piece : pieces(text, maxTokens)) {
+            int tokens = estimate(piece);
+            if (currentTokens + tokens > maxTokens && !current.isEmpty()) {
+                windows.add(current.toString());
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            current.append(piece);
+            currentTokens += tokens;
+        }
+        if (!current.toString().isBlank()) {
+            windows.add(current.toString());
+        }
+        return windows;
+    }
+
+    /**
+     * 切成不超过预算的片段：段落 → 行 → 定长
+     */
+    private static List<String> pieces(String text, int maxTokens) {
+        List<String> pieces = new ArrayList<>();
+        for (String paragraph : text.split("(?<=\\n\\s{0,8}\\n)")) {
+            if (estimate(paragraph) <= maxTokens) {
+                pieces.add(paragraph);
+                continue;
+            }
+            for (String line : paragraph.split("(?<=\\n)")) {
+                if (estimate(line) <= maxTokens) {
+                    pieces.add(line);
+                    continue;
+                }
+                // 按最坏情况（全 CJK）定长切分，保证每段不超预算
+                for (int start = 0; start < line.length(); start += maxTokens) {
+                    pieces.add(line.substring(start, Math.min(line.length(), start + maxTokens)));
+                }
+            }
+        }
+        return pieces;
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES
+                || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS;
+    }
+}
@@ -1,9 +1,13 @@
 package com.zhemu.paperinsight.agent.config;
 
+import com.zhemu.paperinsight.agent.constant.PaperSection;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +24,37 @@ public class AgentPromptConfig {
     // 定义工具组配置，Key为组名（如 "common-tools"）
     private Map<String, ToolGroupDef> toolGroups;
     private ToolProperties tools = new ToolProperties();
+    private AnalysisProperties analysis = new AnalysisProperties();
+    private GovernorProperties governor = new GovernorProperties();
+    // 分析智能体的章节路由，Key为智能体配置Key，未配置的智能体使用除参考文献外的全部章节
+    private Map<String, List<PaperSection>> sectionRouting = defaultSectionRouting();
+
+    /**
+     * 获取智能体需要的章节
+     *
+     * @param agentKey 智能体配置Key
+     * @return 章节列表
+     */
+    public List<PaperSection> sectionsFor(String agentKey) {
+        List<PaperSection> sections = sectionRouting.get(agentKey);
+        if (sections != null) {
+            return sections;
+        }
+        return List.copyOf(EnumSet.complementOf(EnumSet.of(PaperSection.REFERENCES)));
+    }
+
+    private static Map<String, List<PaperSection>> defaultSectionRouting() {
+        Map<String, List<PaperSection>> routing = new HashMap<>();
+        routing.put("summary", List.of(PaperSection.TITLE, PaperSection.ABSTRACT, PaperSection.INTRODUCTION,
+                PaperSection.CONCLUSION));
+        routing.put("innovation", List.of(PaperSection.TITLE, PaperSection.ABSTRACT, PaperSection.INTRODUCTION,
+                PaperSection.METHOD, PaperSection.CONCLUSION));
+        routing.put("methodology", List.of(PaperSection.TITLE, PaperSection.ABSTRACT, PaperSection.METHOD,
+                PaperSection.EXPERIMENTS));
+        routing.put("score", List.of(PaperSection.TITLE, PaperSection.ABSTRACT, PaperSection.INTRODUCTION,
+                PaperSection.METHOD, PaperSection.EXPERIMENTS, PaperSection.CONCLUSION));
+        return routing;
+    }
 
     @Data
     public static class AgentProperties {
@@ -41,6 +76,74 @@ public class AgentPromptConfig {
     public static class ToolProperties {
         private Integer pdfMaxSize = 52428800; // 50MB
         private Integer textMaxLength = 1000000;
+        // PDF 文本提取缓存：本地目录 / 压缩后总大小上限 / 过期时间
+        private String extractCacheDir = "./data/extract-cache";
+        private Long extractCacheMaxBytes = 1073741824L; // 1GB
+        private Integer extractCacheTtlHours = 72;
+        // 按页并行提取：并行度（0 表示 CPU 核数）/ 每个任务处理的页数
+        private Integer extractParallelism = 0;
+        private Integer extractPagesPerTask = 8;
+        // 外部地址下载：连接/读取超时（毫秒），读取中断后的最大续传次数
+        private Integer downloadConnectTimeoutMs = 10000;
+        private Integer downloadReadTimeoutMs = 60000;
+        private Integer downloadMaxResumes = 3;
+        // 对话按页读取工具：单次最多返回的页数 / 字符数
+        private Integer pageToolMaxPages = 10;
+        private Integer pageToolMaxChars = 20000;
+    }
+
+    /**
+     * 论文分析配置
+     */
+    @Data
+    public static class AnalysisProperties {
+        // 分析模式：separate 为四个智能体分别分析，fused 为单次调用输出全部维度（缺失字段回退到对应智能体）
+        private String mode = "separate";
+        // 单个智能体输入超过该 token 数时走 map-reduce
+        private Integer tokenBudget = 24000;
+        // map 阶段每个窗口的 token 数
+        private Integer windowTokens = 12000;
+        // 每个智能体 map 阶段的最大并发窗口数
+        private Integer mapConcurrency = 4;
+        // 单次模型调用超时（秒）/ 整篇分析超时（分钟）
+        private Integer callTimeoutSeconds = 300;
+        private Integer timeoutMinutes = 10;
+        // 提示词版本，为空时按提示词与模型配置自动生成；内容相同的论文只复用同一版本的分析结果
+        private String promptVersion;
+        // 内容相同（PDF 字节或归一化文本一致）的论文直接复用已有分析结果与 RAG chunk
+        private Boolean dedupEnabled = true;
+    }
+
+    /**
+     * 大模型调用限流配置（对话与分析共用）
+     */
+    @Data
+    public static class GovernorProperties {
+        private Boolean enabled = true;
+        // 每个 provider 的默认并发上限与每分钟 token 数，可在 providers 中按 provider 覆盖
+        private Integer maxConcurrency = 8;
+        private Integer tokensPerMinute = 300000;
+        private Map<String, ProviderLimit> providers = new HashMap<>();
+        // 排队超时（秒）：对话用户在等，超时更短
+        private Integer interactiveQueueTimeoutSeconds = 30;
+        private Integer batchQueueTimeoutSeconds = 600;
+
+        public int maxConcurrencyOf(String provider) {
+            ProviderLimit limit = providers.get(provider);
+            return limit != null && limit.getMaxConcurrency() != null ? limit.getMaxConcurrency() : maxConcurrency;
+        }
+
+        public int tokensPerMinuteOf(String provider) {
+            ProviderLimit limit = providers.get(provider);
+            return limit != null && limit.getTokensPerMinute() != null ? limit.getTokensPerMinute()
+                    : tokensPerMinute;
+        }
+    }
+
+    @Data
+    public static class ProviderLimit {
+        private Integer maxConcurrency;
+        private Integer tokensPerMinute;
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.zhemu.paperinsight.agent.config;
 
+import com.zhemu.paperinsight.agent.common.LlmGovernor;
+import com.zhemu.paperinsight.agent.constant.LlmPriority;
 import io.agentscope.core.formatter.dashscope.DashScopeChatFormatter;
 import io.agentscope.core.formatter.openai.OpenAIChatFormatter;
 import io.agentscope.core.model.DashScopeChatModel;
@@ -22,6 +24,7 @@ import org.springframework.context.annotation.Configuration;
 public class AgentScopeModelConfig {
     // 用于兜底的模型配置
     private static final String PROVIDER_OPENAI = "openai";
+    private static final String PROVIDER_DASHSCOPE = "dashscope";
 
     @Value("${agent.agents.common.provider:dashscope}")
     private String modelProvider;
@@ -62,8 +65,8 @@ public class AgentScopeModelConfig {
     private String chatProvider;
 
     @Bean
-    public Model model() {
-        return modelFactory().createModel(null, false);
+    public Model model(ModelFactory modelFactory) {
+        return modelFactory.createModel(null, false);
     }
 
     private boolean isValidUrl(String url) {
@@ -75,15 +78,16 @@ public class AgentScopeModelConfig {
      * 专门用于 ChatAgent
      */
     @Bean("thinkingModel")
-    public Model thinkingModel() {
+    public Model thinkingModel(ModelFactory modelFactory) {
         // 使用 chatModelName, chatApiKey, chatBaseUrl (如果有配置)
         // 开启 thinking 模式 (取决于 chatThink，默认为 false，但 ChatAgent 场景下用户可能会开启)
-        return modelFactory().createModel(chatModelName, chatApiKey, chatBaseUrl,
-                Boolean.TRUE.equals(chatThink), chatProvider);
+        // 用户在等待回复，排队时优先于后台分析
+        return modelFactory.createModel(chatModelName, chatApiKey, chatBaseUrl,
+                Boolean.TRUE.equals(chatThink), chatProvider, LlmPriority.INTERACTIVE);
     }
 
     @Bean
-    public ModelFactory modelFactory() {
+    public ModelFactory modelFactory(LlmGovernor llmGovernor) {
         CommonModelProperties commonProps = new CommonModelProperties(
                 modelProvider,
                 dashscopeApiKey,
@@ -92,7 +96,7 @@ public class AgentScopeModelConfig {
                 openaiApiKey,
                 openaiModelName,
                 openaiBaseUrl);
-        return new ModelFactory(commonProps);
+        return new ModelFactory(commonProps, llmGovernor);
     }
 
     /**
@@ -108,11 +112,16 @@ public class AgentScopeModelConfig {
             String oaBaseUrl) {
     }
 
+    /**
+     * 模型工厂，创建的模型都经过 LlmGovernor 限流，未指定优先级时按后台分析（BATCH）处理
+     */
     public static class ModelFactory {
         private final CommonModelProperties config;
+        private final LlmGovernor governor;
 
-        public ModelFactory(CommonModelProperties config) {
+        public ModelFactory(CommonModelProperties config, LlmGovernor governor) {
             this.config = config;
+            this.governor = governor;
         }
 
         public Model createModel(String customModelName) {
@@ -130,10 +139,42 @@ public class AgentScopeModelConfig {
 
         public Model createModel(String customModelName, String customApiKey, String customBaseUrl,
                 boolean enableThinking, String customProvider) {
+            return createModel(customModelName, customApiKey, customBaseUrl, enableThinking, customProvider,
+                    LlmPriority.BATCH);
+        }
+
+        public Model createModel(String customModelName, String customApiKey, String customBaseUrl,
+                boolean enableThinking, String customProvider, LlmPriority priority) {
+            String provider = resolveProvider(customProvider);
+            String governorKey = PROVIDER_OPENAI.equalsIgnoreCase(provider) ? PROVIDER_OPENAI : PROVIDER_DASHSCOPE;
+            return governor.govern(createRawModel(customModelName, customApiKey, customBaseUrl, enableThinking,
+                    provider), governorKey, priority);
+        }
+
+        /**
+         * 描述按给定参数实际会使用的模型（回退到全局默认值之后），不含 API Key
+         *
+         * @return provider|modelName|baseUrl|think
+         */
+        public String describeModel(String customModelName, String customBaseUrl, boolean enableThinking,
+                String customProvider) {
+            String provider = resolveProvider(customProvider);
+            boolean openai = PROVIDER_OPENAI.equalsIgnoreCase(provider);
+            String modelName = (customModelName != null && !customModelName.isEmpty()) ? customModelName
+                    : openai ? config.oaDefaultModel() : config.dsDefaultModel();
+            String baseUrl = (customBaseUrl != null && !customBaseUrl.isEmpty()) ? customBaseUrl
+                    : openai ? config.oaBaseUrl() : config.dsBaseUrl();
+            return (openai ? PROVIDER_OPENAI : PROVIDER_DASHSCOPE) + '|' + modelName + '|' + baseUrl + '|'
+                    + enableThinking;
+        }
+
+        private String resolveProvider(String customProvider) {
             // 确定最终使用的 provider，优先使用 customProvider
-            String provider = (customProvider != null && !customProvider.isEmpty()) ? customProvider
-                    : config.provider();
+            return (customProvider != null && !customProvider.isEmpty()) ? customProvider : config.provider();
+        }
 
+        private Model createRawModel(String customModelName, String customApiKey, String customBaseUrl,
+                boolean enableThinking, String provider) {
             if (PROVIDER_OPENAI.equalsIgnoreCase(provider)) {
                 String modelName = (customModelName != null && !customModelName.isEmpty()) ? customModelName
                         : config.oaDefaultModel();
@@ -1,6 +1,7 @@
 package com.zhemu.paperinsight.agent.config;
 
-import com.zhemu.paperinsight.agent.common.ElasticsearchStore;
+import com.zhemu.paperinsight.agent.common.KnowledgeFactory;
+import com.zhemu.paperinsight.agent.common.PaperTextStore;
 import com.zhemu.paperinsight.agent.core.ChatAgent;
 import io.agentscope.core.embedding.EmbeddingModel;
 import io.agentscope.core.model.Model;
@@ -23,8 +24,11 @@ public class ChatAgentConfig {
     public ChatAgent chatAgent(@org.springframework.beans.factory.annotation.Qualifier("thinkingModel") Model model,
             AgentPromptConfig promptConfig,
             Knowledge knowledge,
+            KnowledgeFactory knowledgeFactory,
+            PaperTextStore paperTextStore,
             org.springframework.context.ApplicationContext applicationContext,
             DataSource dataSource) {
-        return new ChatAgent(model, promptConfig, knowledge, applicationContext, dataSource);
+        return new ChatAgent(model, promptConfig, knowledge, knowledgeFactory, paperTextStore, applicationContext,
+                dataSource);
     }
 }
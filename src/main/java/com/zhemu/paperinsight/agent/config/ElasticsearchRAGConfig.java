@@ -1,13 +1,23 @@
 package com.zhemu.paperinsight.agent.config;
 
+import com.zhemu.paperinsight.agent.common.CachingEmbeddingModel;
 import com.zhemu.paperinsight.agent.common.ElasticsearchStore;
+import com.zhemu.paperinsight.agent.common.KnowledgeFactory;
+import com.zhemu.paperinsight.agent.common.MmapHnswStore;
+import com.zhemu.paperinsight.agent.common.PaperVectorStore;
+import com.zhemu.paperinsight.mapper.PaperInfoMapper;
 import io.agentscope.core.embedding.EmbeddingModel;
 import io.agentscope.core.embedding.dashscope.DashScopeTextEmbedding;
 import io.agentscope.core.rag.Knowledge;
-import io.agentscope.core.rag.knowledge.SimpleKnowledge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * Elasticsearch RAG 配置类
@@ -29,6 +39,52 @@ public class ElasticsearchRAGConfig {
     @Value("${agent.agents.dashscope.api-key}")
     private String dashscopeApiKey;
 
+    // 嵌入缓存：本地最大条目数与 Redis 过期天数
+    @Value("${agent.embedding.cache.local-max-size:20000}")
+    private long embeddingCacheLocalMaxSize;
+
+    @Value("${agent.embedding.cache.redis-ttl-days:7}")
+    private long embeddingCacheRedisTtlDays;
+
+    // 批量写入：单批最大文档数 / 最大字节数 / 并发中的批次数
+    @Value("${agent.rag.bulk.max-docs:500}")
+    private int bulkMaxDocs;
+
+    @Value("${agent.rag.bulk.max-bytes:5242880}")
+    private long bulkMaxBytes;
+
+    @Value("${agent.rag.bulk.concurrency:2}")
+    private int bulkConcurrency;
+
+    // 检索模式：vector (纯向量) / hybrid (BM25 + 向量 RRF 融合)
+    @Value("${agent.rag.retrieval-mode:hybrid}")
+    private String retrievalMode;
+
+    // 向量存储方案：float (hnsw) / int8_hnsw / bbq_hnsw，仅在新建索引时生效
+    @Value("${agent.rag.index-profile:float}")
+    private String indexProfile;
+
+    // 检索结果是否返回向量（默认不返回，减少响应体积）
+    @Value("${agent.rag.include-vectors:false}")
+    private boolean includeVectors;
+
+    // 检索 / 写入是否使用异步客户端（不占用 boundedElastic 线程）
+    @Value("${agent.rag.async-client:true}")
+    private boolean asyncClient;
+
+    // 嵌入式向量库 (agent.rag.store=embedded)：数据目录与 HNSW 参数
+    @Value("${agent.rag.embedded.path:./data/vector-store}")
+    private String embeddedPath;
+
+    @Value("${agent.rag.embedded.m:16}")
+    private int embeddedM;
+
+    @Value("${agent.rag.embedded.ef-construction:100}")
+    private int embeddedEfConstruction;
+
+    @Value("${agent.rag.embedded.ef-search:64}")
+    private int embeddedEfSearch;
+
     private static final String ES_INDEX_NAME = "paper_insight_rag";
     // text-embedding-v3 输出维度
     private static final int EMBEDDING_DIMENSIONS = 1024;
@@ -39,12 +95,19 @@ public class ElasticsearchRAGConfig {
      * @return ElasticsearchStore
      */
     @Bean
+    @ConditionalOnProperty(name = "agent.rag.store", havingValue = "elasticsearch", matchIfMissing = true)
     public ElasticsearchStore elasticsearchStore() {
         try {
             return ElasticsearchStore.builder()
                     .url(esUrl)
                     .indexName(ES_INDEX_NAME)
                     .dimensions(EMBEDDING_DIMENSIONS)
+                    .indexProfile(ElasticsearchStore.IndexProfile.fromValue(indexProfile))
+                    .bulkMaxDocs(bulkMaxDocs)
+                    .bulkMaxBytes(bulkMaxBytes)
+                    .bulkConcurrency(bulkConcurrency)
+                    .includeVectors(includeVectors)
+                    .asyncClient(asyncClient)
                     // .username(esUsername) // 如果需要认证
                     // .password(esPassword)
                     .build();
@@ -54,31 +117,61 @@ public class ElasticsearchRAGConfig {
     }
 
     /**
-     * 嵌入模型
+     * 嵌入式向量库 Bean，单机部署时替代 ES
+     *
+     * @return MmapHnswStore
+     */
+    @Bean
+    @ConditionalOnProperty(name = "agent.rag.store", havingValue = "embedded")
+    public MmapHnswStore mmapHnswStore() {
+        try {
+            return new MmapHnswStore(Path.of(embeddedPath), EMBEDDING_DIMENSIONS, embeddedM, embeddedEfConstruction,
+                    embeddedEfSearch);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create MmapHnswStore", e);
+        }
+    }
+
+    /**
+     * 嵌入模型（外层包装 Caffeine + Redis 两级缓存）
      * 
+     * @param stringRedisTemplate Redis 客户端
+     * @param meterRegistry       指标注册表
      * @return EmbeddingModel
      */
     @Bean
-    public EmbeddingModel embeddingModel() {
-        return DashScopeTextEmbedding.builder()
+    public EmbeddingModel embeddingModel(StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        EmbeddingModel dashScopeEmbedding = DashScopeTextEmbedding.builder()
                 .apiKey(dashscopeApiKey)
                 .modelName("text-embedding-v3")
                 .dimensions(EMBEDDING_DIMENSIONS)
                 .build();
+        return new CachingEmbeddingModel(dashScopeEmbedding, stringRedisTemplate, meterRegistry,
+                embeddingCacheLocalMaxSize, Duration.ofDays(embeddingCacheRedisTtlDays));
+    }
+
+    /**
+     * 知识库工厂，按检索模式构建全库/单篇论文知识库
+     *
+     * @param paperVectorStore 向量库 (ES 或嵌入式，由 agent.rag.store 决定)
+     * @param embeddingModel   嵌入模型
+     * @param paperInfoMapper  用于解析论文共享的 chunk doc_id
+     * @return KnowledgeFactory
+     */
+    @Bean
+    public KnowledgeFactory knowledgeFactory(PaperVectorStore paperVectorStore, EmbeddingModel embeddingModel,
+            PaperInfoMapper paperInfoMapper) {
+        return new KnowledgeFactory(paperVectorStore, embeddingModel, retrievalMode, paperInfoMapper);
     }
 
     /**
      * 知识库
      * 
-     * @param elasticsearchStore
-     * @param embeddingModel
+     * @param knowledgeFactory 知识库工厂
      * @return
      */
     @Bean
-    public Knowledge knowledge(ElasticsearchStore elasticsearchStore, EmbeddingModel embeddingModel) {
-        return SimpleKnowledge.builder()
-                .embeddingStore(elasticsearchStore)
-                .embeddingModel(embeddingModel)
-                .build();
+    public Knowledge knowledge(KnowledgeFactory knowledgeFactory) {
+        return knowledgeFactory.global();
     }
 }
@@ -33,6 +33,11 @@ public enum AgentType {
      */
     SCORE("score", "score_agent"),
 
+    /**
+     * 融合分析智能体（单次调用输出全部维度）
+     */
+    FUSED("fused", "fused_agent"),
+
     /**
      * 对话智能体
      */
@@ -0,0 +1,27 @@
+package com.zhemu.paperinsight.agent.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 大模型调用优先级
+ * 排队时高优先级（声明在前）总是先于低优先级获得并发与 token 配额
+ *
+ * @author lushihao
+ */
+@Getter
+@AllArgsConstructor
+public enum LlmPriority {
+
+    /**
+     * 交互式对话，用户在等待
+     */
+    INTERACTIVE("interactive"),
+
+    /**
+     * 后台论文分析
+     */
+    BATCH("batch");
+
+    private final String value;
+}
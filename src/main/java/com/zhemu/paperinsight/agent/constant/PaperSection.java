@@ -0,0 +1,50 @@
+package com.zhemu.paperinsight.agent.constant;
+
+/**
+ * 论文章节
+ * 用于结构化提取与分析智能体的章节路由
+ *
+ * @author lushihao
+ */
+public enum PaperSection {
+
+    /**
+     * 标题
+     */
+    TITLE,
+
+    /**
+     * 摘要
+     */
+    ABSTRACT,
+
+    /**
+     * 引言
+     */
+    INTRODUCTION,
+
+    /**
+     * 方法
+     */
+    METHOD,
+
+    /**
+     * 实验
+     */
+    EXPERIMENTS,
+
+    /**
+     * 结论
+     */
+    CONCLUSION,
+
+    /**
+     * 参考文献
+     */
+    REFERENCES,
+
+    /**
+     * 其他（相关工作、附录、作者信息及未识别的正文）
+     */
+    OTHER
+}
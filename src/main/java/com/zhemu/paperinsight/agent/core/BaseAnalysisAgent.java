@@ -27,6 +27,8 @@ public abstract class BaseAnalysisAgent {
     protected final Model model;
     protected final AgentPromptConfig.AgentProperties properties;
     protected final String agentName;
+    // 实际生效的模型（含回退到的全局默认模型），用于计算分析提示词版本
+    private final String modelDescription;
 
     protected BaseAnalysisAgent(AgentScopeModelConfig.ModelFactory modelFactory,
             AgentPromptConfig.AgentProperties properties, String agentName) {
@@ -42,6 +44,17 @@ public abstract class BaseAnalysisAgent {
                 properties.getProvider());
         this.properties = properties;
         this.agentName = agentName;
+        this.modelDescription = modelFactory.describeModel(properties.getModelName(), properties.getBaseUrl(),
+                Boolean.TRUE.equals(properties.getThink()), properties.getProvider());
+    }
+
+    /**
+     * 影响分析输出的有效配置：模型、系统提示词（含子类填入的内置默认值）与最大迭代次数
+     *
+     * @return 配置描述
+     */
+    public String fingerprint() {
+        return modelDescription + '|' + properties.getMaxIterations() + '|' + properties.getSysPrompt();
     }
 
     /**
@@ -1,7 +1,10 @@
 package com.zhemu.paperinsight.agent.core;
 
+import com.zhemu.paperinsight.agent.common.KnowledgeFactory;
+import com.zhemu.paperinsight.agent.common.PaperTextStore;
 import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
 import com.zhemu.paperinsight.agent.constant.AgentType;
+import com.zhemu.paperinsight.agent.tools.PaperPageTools;
 import io.agentscope.core.ReActAgent;
 import io.agentscope.core.agent.Event;
 import io.agentscope.core.memory.LongTermMemoryMode;
@@ -49,8 +52,12 @@ public class ChatAgent {
     private final AgentPromptConfig.AgentProperties properties;
     // 模型名称
     private final String agentName;
-    // 知识库
+    // 知识库（全库检索，未绑定论文时使用）
     private final Knowledge knowledge;
+    // 知识库工厂，用于构建按论文过滤的知识库
+    private final KnowledgeFactory knowledgeFactory;
+    // 按页索引的论文文本，供绑定论文的会话按页/按章节读取
+    private final PaperTextStore paperTextStore;
 
     // Spring 上下文，用于获取工具 Bean
     private final org.springframework.context.ApplicationContext applicationContext;
@@ -68,6 +75,8 @@ public class ChatAgent {
     public ChatAgent(Model model,
             AgentPromptConfig promptConfig,
             Knowledge knowledge,
+            KnowledgeFactory knowledgeFactory,
+            PaperTextStore paperTextStore,
             org.springframework.context.ApplicationContext applicationContext,
             DataSource dataSource) {
         this.model = model;
@@ -75,6 +84,8 @@ public class ChatAgent {
         this.properties = promptConfig.getAgents().get(AgentType.CHAT.getConfigKey());
         this.agentName = AgentType.CHAT.getAgentName();
         this.knowledge = knowledge;
+        this.knowledgeFactory = knowledgeFactory;
+        this.paperTextStore = paperTextStore;
         this.applicationContext = applicationContext;
         this.dataSource = dataSource;
 
@@ -130,6 +141,20 @@ public class ChatAgent {
      * @return Flux of Events from the agent
      */
     public Flux<Event> stream(Msg msg, String sessionId, String userId) {
+        return stream(msg, sessionId, userId, null);
+    }
+
+    /**
+     * Stream method scoped to one paper: agentic RAG only retrieves chunks
+     * whose doc_id equals the given paperId.
+     *
+     * @param msg       the user message
+     * @param sessionId the chat session id
+     * @param userId    the user id
+     * @param paperId   the paper bound to the session, or null for global retrieval
+     * @return Flux of Events from the agent
+     */
+    public Flux<Event> stream(Msg msg, String sessionId, String userId, Long paperId) {
         // 检查是否有正在运行的实例，如果有则先终止
         if (activeAgents.containsKey(sessionId)) {
             log.warn("Active agent already exists for session {}, interrupting it first.", sessionId);
@@ -165,11 +190,20 @@ public class ChatAgent {
             }
         }
 
+        // 绑定论文的会话：注册只能读取该论文的按页/按章节工具
+        if (paperId != null) {
+            AgentPromptConfig.ToolProperties tools = promptConfig.getTools();
+            toolkit.registration()
+                    .tool(new PaperPageTools(paperTextStore, paperId, tools.getPageToolMaxPages(),
+                            tools.getPageToolMaxChars()))
+                    .apply();
+        }
+
         AutoContextConfig autoContextConfig = AutoContextConfig.builder().tokenRatio(0.4).lastKeep(10).build();
         // Use AutoContextMemory, support context auto compression
         AutoContextMemory memory = new AutoContextMemory(autoContextConfig, model);
         MysqlSession mysqlSession = new MysqlSession(dataSource, "paper_insight", null, true);
-        ReActAgent agent = createAgent(toolkit, memory, userId);
+        ReActAgent agent = createAgent(toolkit, memory, userId, resolveKnowledge(paperId));
 
         // 注册到活跃列表
         activeAgents.put(sessionId, agent);
@@ -187,10 +221,20 @@ public class ChatAgent {
                         });
     }
 
+    /**
+     * 获取会话使用的知识库：绑定论文时在 kNN 内按 doc_id 过滤，避免其他论文的 chunk 挤占 top-k
+     */
+    private Knowledge resolveKnowledge(Long paperId) {
+        if (paperId == null) {
+            return knowledge;
+        }
+        return knowledgeFactory.forPaper(paperId);
+    }
+
     /**
      * 创建 Agentic RAG ReActAgent
      */
-    private ReActAgent createAgent(Toolkit toolkit, Memory memory, String userId) {
+    private ReActAgent createAgent(Toolkit toolkit, Memory memory, String userId, Knowledge knowledge) {
 
 
 
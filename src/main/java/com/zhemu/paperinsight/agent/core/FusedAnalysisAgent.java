@@ -0,0 +1,50 @@
+package com.zhemu.paperinsight.agent.core;
+
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.config.AgentScopeModelConfig;
+import com.zhemu.paperinsight.agent.constant.AgentType;
+import org.springframework.stereotype.Component;
+
+/**
+ * 融合分析智能体
+ * 一次调用同时输出摘要、创新点、方法与评分的结构化 JSON；
+ * 未在 agent.agents.fused 中配置时使用全局模型与内置提示词
+ *
+ * @author lushihao
+ */
+@Component
+public class FusedAnalysisAgent extends BaseAnalysisAgent {
+
+    /**
+     * 内置系统提示词，输出字段与 PaperAnalysisAgent 的解析保持一致，score 沿用 ScoreAgent 的输出结构
+     */
+    public static final String DEFAULT_SYS_PROMPT = """
+            你是一名资深的学术论文审稿人。请阅读用户提供的论文内容，一次性完成以下四项分析，
+            并只输出一个 JSON 对象，不要输出任何其他文字：
+            {
+              "summary": "论文摘要总结（Markdown）",
+              "innovation_points": "论文的主要创新点（Markdown 列表）",
+              "methods": "论文采用的研究方法与实验设计（Markdown）",
+              "score": 评分对象，结构见下
+            }
+            score 必须严格使用以下结构：
+            %s
+            若某项无法从内容中得出，将该字段置为空字符串或省略，不要编造。
+            """.formatted(ScoreAgent.OUTPUT_SCHEMA);
+
+    public FusedAnalysisAgent(AgentScopeModelConfig.ModelFactory modelFactory, AgentPromptConfig promptConfig) {
+        super(modelFactory, fusedProperties(promptConfig), AgentType.FUSED.getAgentName());
+    }
+
+    private static AgentPromptConfig.AgentProperties fusedProperties(AgentPromptConfig promptConfig) {
+        AgentPromptConfig.AgentProperties properties = promptConfig.getAgents() == null ? null
+                : promptConfig.getAgents().get(AgentType.FUSED.getConfigKey());
+        if (properties == null) {
+            properties = new AgentPromptConfig.AgentProperties();
+        }
+        if (properties.getSysPrompt() == null || properties.getSysPrompt().isBlank()) {
+            properties.setSysPrompt(DEFAULT_SYS_PROMPT);
+        }
+        return properties;
+    }
+}
@@ -13,6 +13,26 @@ import org.springframework.stereotype.Component;
 @Component
 public class ScoreAgent extends BaseAnalysisAgent {
 
+    /**
+     * 评分输出结构，前端雷达图按 dimensions 的四个字段与各自满分渲染；融合模式的内置提示词引用同一结构
+     */
+    public static final String OUTPUT_SCHEMA = """
+            {
+              "score": 0-100 的整数总分（四个维度得分之和）,
+              "dimensions": {
+                "innovation": 0-30 的整数,
+                "technical": 0-30 的整数,
+                "practicality": 0-20 的整数,
+                "writing": 0-20 的整数
+              },
+              "reasoning": "评分理由"
+            }""";
+
+    /**
+     * 评分结果中各维度得分的字段名
+     */
+    public static final String FIELD_DIMENSIONS = "dimensions";
+
     public ScoreAgent(AgentScopeModelConfig.ModelFactory modelFactory, AgentPromptConfig promptConfig) {
         super(modelFactory,
                 promptConfig.getAgents().get(AgentType.SCORE.getConfigKey()),
@@ -0,0 +1,117 @@
+package com.zhemu.paperinsight.agent.tools;
+
+import com.zhemu.paperinsight.agent.common.PaperTextStore;
+import com.zhemu.paperinsight.agent.constant.PaperSection;
+import io.agentscope.core.tool.Tool;
+import io.agentscope.core.tool.ToolParam;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * 论文按页/按章节读取工具
+ * 按会话创建并绑定会话所属论文，智能体只能读取该论文，按需拉取片段而不是整篇全文
+ *
+ * @author lushihao
+ */
+@Slf4j
+public class PaperPageTools {
+
+    private static final String SECTION_NAMES = Arrays.stream(PaperSection.values())
+            .map(s -> s.name().toLowerCase(Locale.ROOT))
+            .collect(Collectors.joining(", "));
+
+    private final PaperTextStore paperTextStore;
+    private final long paperId;
+    private final int maxPages;
+    private final int maxChars;
+
+    public PaperPageTools(PaperTextStore paperTextStore, long paperId, int maxPages, int maxChars) {
+        this.paperTextStore = paperTextStore;
+        this.paperId = paperId;
+        this.maxPages = maxPages;
+        this.maxChars = maxChars;
+    }
+
+    @Tool(name = "get_pages", description = "Read pages of the current paper by page number (1-based, inclusive). "
+            + "Prefer this over extracting the whole PDF.")
+    public String getPages(
+            @ToolParam(name = "from_page", description = "First page, starting from 1") Integer fromPage,
+            @ToolParam(name = "to_page", description = "Last page (inclusive)") Integer toPage) {
+        try {
+            PaperTextStore.PaperText text = paperTextStore.get(paperId);
+            int pageCount = text.pages().size();
+            int from = Math.max(1, fromPage == null ? 1 : fromPage);
+            int to = Math.min(pageCount, toPage == null ? from : toPage);
+            if (from > to) {
+                return "Invalid page range. The paper has " + pageCount + " pages.";
+            }
+            // 单次最多返回 maxPages 页
+            int end = Math.min(to, from + maxPages - 1);
+            StringBuilder sb = new StringBuilder();
+            for (int page = from; page <= end; page++) {
+                sb.append("--- Page ").append(page).append(" ---\n").append(text.pages().get(page - 1)).append('\n');
+            }
+            if (end < to) {
+                sb.append("[Only pages ").append(from).append('-').append(end)
+                        .append(" returned; request the rest separately.]");
+            }
+            return truncate(sb.toString());
+        } catch (Exception e) {
+            log.error("Failed to read pages {}-{} of paper {}", fromPage, toPage, paperId, e);
+            return "Error reading pages: " + e.getMessage();
+        }
+    }
+
+    // 注解属性只能是编译期常量，章节名与 PaperSection 保持一致，未命中时的提示按枚举生成
+    @Tool(name = "get_section", description = "Read one section of the current paper. Section names: "
+            + "title, abstract, introduction, method, experiments, conclusion, references, "
+            + "other (related work, appendix and unclassified text).")
+    public String getSection(
+            @ToolParam(name = "name", description = "Section name, e.g. method") String name) {
+        try {
+            PaperTextStore.PaperText text = paperTextStore.get(paperId);
+            PaperSection section = parseSection(name);
+            if (section == null) {
+                return "Unknown section '" + name + "'. Section names: " + SECTION_NAMES + ".";
+            }
+            // 标题单独保存，不在章节正文中
+            String content = section == PaperSection.TITLE ? text.title() : text.sections().get(section);
+            if (content == null || content.isBlank()) {
+                return "Section '" + name + "' not found. Available sections: "
+                        + text.sections().keySet().stream()
+                        .map(s -> s.name().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.joining(", "))
+                        + ". The paper has " + text.pages().size() + " pages; use get_pages otherwise.";
+            }
+            return truncate(content.strip());
+        } catch (Exception e) {
+            log.error("Failed to read section {} of paper {}", name, paperId, e);
+            return "Error reading section: " + e.getMessage();
+        }
+    }
+
+    private PaperSection parseSection(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = name.trim().toUpperCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        // 容忍 "methods"、"intro" 之类的写法
+        return Arrays.stream(PaperSection.values())
+                .filter(s -> s.name().startsWith(normalized) || normalized.startsWith(s.name()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private String truncate(String content) {
+        if (content.length() <= maxChars) {
+            return content;
+        }
+        return content.substring(0, maxChars) + "\n[Truncated at " + maxChars + " chars; use get_pages for the rest.]";
+    }
+}
@@ -1,44 +1,117 @@
 package com.zhemu.paperinsight.agent.tools;
 
+import com.zhemu.paperinsight.agent.common.ExtractedTextCache;
+import com.zhemu.paperinsight.agent.common.PdfDownloader;
+import com.zhemu.paperinsight.agent.common.PdfTextExtractor;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
 import io.agentscope.core.tool.Tool;
 import io.agentscope.core.tool.ToolParam;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
+import java.nio.file.Path;
 
 /**
  * PDF 提取工具
- * 用于从 PDF 文件 URL 中提取纯文本内容
+ * 用于从 PDF 文件 URL 中提取纯文本内容，结果经 ExtractedTextCache 缓存
  * @author lushihao
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class PdfExtractionTool {
 
+    private final ExtractedTextCache extractedTextCache;
+    private final PdfDownloader pdfDownloader;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final AgentPromptConfig promptConfig;
+
     @Tool(description = "Extract text content from a PDF file URL. Useful for reading papers.")
     public String extractPdfText(
             @ToolParam(name = "pdf_url", description = "The URL of the PDF file") String pdfUrl) {
+        try {
+            return extractText(pdfUrl);
+        } catch (Exception e) {
+            log.error("Failed to extract PDF text from URL: {}", pdfUrl, e);
+            return "Error extracting PDF: " + e.getMessage();
+        }
+    }
 
-        log.info("Starting PDF extraction from URL: {}", pdfUrl);
-        try (InputStream inputStream = new URL(pdfUrl).openStream();
-                PDDocument document = PDDocument.load(inputStream)) {
+    /**
+     * 提取 PDF 文本，失败时抛出异常
+     *
+     * @param pdfUrl PDF 地址
+     * @return 文本
+     * @throws Exception 下载或提取失败
+     */
+    public String extractText(String pdfUrl) throws Exception {
+        // 同一 URL 已提取过则直接返回，无需下载
+        String cached = extractedTextCache.getByUrl(pdfUrl);
+        if (cached != null) {
+            log.info("Extracted text cache hit for URL: {}", pdfUrl);
+            return cached;
+        }
+        return downloadAndExtract(pdfUrl).text();
+    }
 
-            PDFTextStripper stripper = new PDFTextStripper();
-            // 按位置排序，尽量保持格式
-            stripper.setSortByPosition(true);
+    /**
+     * 提取 PDF 文本并写入缓存，返回文本引用（内容 SHA-256），供分析流水线在阶段间传递
+     *
+     * @param pdfUrl PDF 地址
+     * @return 内容 SHA-256
+     * @throws Exception 下载或提取失败
+     */
+    public String extractToCache(String pdfUrl) throws Exception {
+        String sha256 = extractedTextCache.shaOf(pdfUrl);
+        if (sha256 != null && extractedTextCache.getBySha(sha256) != null) {
+            log.info("Extracted text cache hit for URL: {}", pdfUrl);
+            return sha256;
+        }
+        return downloadAndExtract(pdfUrl).sha256();
+    }
 
-            String text = stripper.getText(document);
-            log.info("Successfully extracted {} chars from PDF", text.length());
+    /**
+     * 按文本引用读取文本；引用不在本机缓存（其他节点提取或已淘汰）时按 URL 重新提取
+     *
+     * @param sha256 内容 SHA-256，可为 null
+     * @param pdfUrl PDF 地址
+     * @return 文本
+     * @throws Exception 下载或提取失败
+     */
+    public String textOf(String sha256, String pdfUrl) throws Exception {
+        String text = sha256 == null ? null : extractedTextCache.getBySha(sha256);
+        if (text != null) {
             return text;
+        }
+        if (sha256 != null) {
+            log.info("Text reference {} not in local cache, extracting from URL: {}", sha256, pdfUrl);
+        }
+        return extractText(pdfUrl);
+    }
 
-        } catch (IOException e) {
-            log.error("Failed to extract PDF text from URL: {}", pdfUrl, e);
-            return "Error extracting PDF: " + e.getMessage();
+    private Extracted downloadAndExtract(String pdfUrl) throws Exception {
+        log.info("Starting PDF extraction from URL: {}", pdfUrl);
+        try (PdfDownloader.DownloadedPdf pdf = pdfDownloader.download(pdfUrl)) {
+            String text = extractedTextCache.getOrExtract(pdfUrl, pdf, () -> extract(pdf.file()));
+            log.info("Successfully extracted {} chars from PDF ({} bytes)", text.length(), pdf.size());
+            return new Extracted(pdf.sha256(), text);
         }
     }
+
+    private ExtractedTextCache.Extraction extract(Path pdfFile) throws IOException {
+        PdfTextExtractor.Result result = pdfTextExtractor.extract(pdfFile);
+        String text = result.text();
+        int maxLength = promptConfig.getTools().getTextMaxLength();
+        if (text.length() > maxLength) {
+            log.warn("Extracted text truncated from {} to {} chars", text.length(), maxLength);
+            // 截断后页边界不完整，不记录
+            return new ExtractedTextCache.Extraction(text.substring(0, maxLength), null);
+        }
+        return new ExtractedTextCache.Extraction(text, result.pageEnds());
+    }
+
+    private record Extracted(String sha256, String text) {
+    }
 }
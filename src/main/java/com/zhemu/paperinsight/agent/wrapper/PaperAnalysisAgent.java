@@ -1,26 +1,43 @@
 package com.zhemu.paperinsight.agent.wrapper;
 
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.zhemu.paperinsight.agent.common.PaperStructureExtractor;
+import com.zhemu.paperinsight.agent.common.StructuredPaper;
+import com.zhemu.paperinsight.agent.common.TokenEstimator;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.constant.AgentType;
+import com.zhemu.paperinsight.agent.core.BaseAnalysisAgent;
+import com.zhemu.paperinsight.agent.core.FusedAnalysisAgent;
 import com.zhemu.paperinsight.agent.core.InnovationAgent;
 import com.zhemu.paperinsight.agent.core.MethodologyAgent;
 import com.zhemu.paperinsight.agent.core.ScoreAgent;
 import com.zhemu.paperinsight.agent.core.SummaryAgent;
 import com.zhemu.paperinsight.agent.tools.PdfExtractionTool;
 import com.zhemu.paperinsight.model.entity.PaperInsight;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import com.zhemu.paperinsight.model.enums.InsightStatusEnum;
 import io.agentscope.core.message.Msg;
 import io.agentscope.core.message.TextBlock;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple4;
 
 import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 论文分析智能体包装类 (Orchestrator)
- * 负责协调 PDF 提取和多个子智能体(Agent)的并行工作
+ * 负责协调 PDF 提取和多个子智能体(Agent)的并行工作，各维度完成即发出结果，便于逐个持久化；
+ * agent.analysis.mode=fused 时改为单次调用输出全部维度，缺失的维度再由对应子智能体补齐
  * 
  * @author lushihao
  */
@@ -29,43 +46,300 @@ import java.time.Duration;
 @RequiredArgsConstructor
 public class PaperAnalysisAgent {
 
+    private static final String FUSED_MODE = "fused";
+    // 融合模式输出的字段名，与 FusedAnalysisAgent.DEFAULT_SYS_PROMPT 一致
+    private static final String FIELD_SUMMARY = "summary";
+    private static final String FIELD_INNOVATION = "innovation_points";
+    private static final String FIELD_METHODS = "methods";
+    private static final String FIELD_SCORE = "score";
+
+    // map-reduce 合并阶段的指令
+    private static final String REDUCE_PROMPT =
+            "以下是同一篇论文各部分的分析结果，请合并为对整篇论文的最终分析，并严格按要求的格式输出。\n\n";
+    private static final String MERGE_PROMPT =
+            "以下是同一篇论文若干部分的分析结果，请合并为一份要点，供后续与其他部分再次合并。\n\n";
+
     private final PdfExtractionTool pdfExtractionTool;
+    private final PaperStructureExtractor paperStructureExtractor;
+    private final AgentPromptConfig promptConfig;
     private final SummaryAgent summaryAgent;
     private final InnovationAgent innovationAgent;
     private final MethodologyAgent methodologyAgent;
     private final ScoreAgent scoreAgent;
+    private final FusedAnalysisAgent fusedAnalysisAgent;
 
     /**
-     * 执行全量分析
-     * 
-     * @param paperId 论文ID
-     * @param pdfUrl  PDF文件地址
-     * @return 分析结果实体
+     * 分析提示词版本，用于判断已有分析结果能否被内容相同的论文复用
+     * 显式配置 agent.analysis.prompt-version 时直接使用；否则由分析模式、token 预算与窗口、合并指令，
+     * 以及各智能体实际生效的模型、提示词（含内置默认值）与章节路由摘要得出
+     *
+     * @return 版本号
+     */
+    public String promptVersion() {
+        AgentPromptConfig.AnalysisProperties analysis = promptConfig.getAnalysis();
+        if (StrUtil.isNotBlank(analysis.getPromptVersion())) {
+            return analysis.getPromptVersion();
+        }
+        StringBuilder source = new StringBuilder()
+                .append(analysis.getMode()).append('|').append(analysis.getTokenBudget())
+                .append('|').append(analysis.getWindowTokens())
+                .append('|').append(REDUCE_PROMPT).append('|').append(MERGE_PROMPT);
+        for (InsightDimensionEnum dimension : InsightDimensionEnum.values()) {
+            appendFingerprint(source, agentTypeOf(dimension), agentOf(dimension));
+        }
+        appendFingerprint(source, AgentType.FUSED, fusedAnalysisAgent);
+        return DigestUtil.sha256Hex(source.toString()).substring(0, 16);
+    }
+
+    private void appendFingerprint(StringBuilder source, AgentType agentType, BaseAnalysisAgent agent) {
+        source.append('\n').append(agentType.getConfigKey())
+                .append('|').append(agent.fingerprint())
+                .append('|').append(promptConfig.sectionsFor(agentType.getConfigKey()));
+    }
+
+    /**
+     * 分维度分析，每个维度完成（或失败）后立即发出结果，调用方可逐个持久化；
+     * 整体超时后未完成的维度以失败结果发出
+     *
+     * @param textSha256 提取阶段产出的文本引用，为空或本机未命中时按 pdfUrl 提取
+     * @param pdfUrl     PDF文件地址
+     * @param dimensions 需要分析的维度
+     * @return 各维度结果，按完成先后顺序
      */
-    public Mono<PaperInsight> analyzePaper(Long paperId, String pdfUrl) {
-        return Mono.fromCallable(() -> pdfExtractionTool.extractPdfText(pdfUrl))
-                .flatMap(text -> {
-                    // 并行执行4个分析任务
-                    Mono<Msg> summaryTask = summaryAgent.analyze(text);
-                    Mono<Msg> innovationTask = innovationAgent.analyze(text);
-                    Mono<Msg> methodologyTask = methodologyAgent.analyze(text);
-                    Mono<Msg> scoreTask = scoreAgent.analyze(text);
-
-                    return Mono.zip(summaryTask, innovationTask, methodologyTask, scoreTask)
-                            .map(tuple -> buildPaperInsight(paperId, tuple))
-                            .timeout(Duration.ofMinutes(10)); // 防止一直卡住
+    public Flux<DimensionResult> analyzeDimensions(String textSha256, String pdfUrl,
+            Set<InsightDimensionEnum> dimensions) {
+        return Flux.defer(() -> {
+            Set<InsightDimensionEnum> pending = EnumSet.noneOf(InsightDimensionEnum.class);
+            pending.addAll(dimensions);
+            // 整体截止时间：每个元素的超时都订阅同一个缓存的 delay，到点即超时，而不是限制相邻元素的间隔
+            Mono<Long> deadline = Mono.delay(Duration.ofMinutes(promptConfig.getAnalysis().getTimeoutMinutes()))
+                    .cache();
+            return Mono.fromCallable(() -> pdfExtractionTool.textOf(textSha256, pdfUrl))
+                    .map(paperStructureExtractor::extract)
+                    .flatMapMany(paper -> FUSED_MODE.equalsIgnoreCase(promptConfig.getAnalysis().getMode())
+                            && dimensions.size() > 1
+                            ? analyzeFused(paper, dimensions)
+                            : Flux.fromIterable(dimensions).flatMap(dimension -> analyzeDimension(dimension, paper)))
+                    .doOnNext(result -> pending.remove(result.dimension()))
+                    .timeout(deadline, result -> deadline)
+                    .onErrorResume(TimeoutException.class, e -> {
+                        log.warn("Analysis timed out, unfinished dimensions: {}", pending);
+                        return Flux.fromIterable(List.copyOf(pending))
+                                .map(dimension -> DimensionResult.failed(dimension, e));
+                    });
+        });
+    }
+
+    /**
+     * 单个维度交给对应智能体，只接收路由到的章节；失败转为失败结果，不影响其他维度。
+     * 智能体被禁用时没有输出，同样转为失败结果，否则该维度会一直停留在待分析
+     */
+    private Mono<DimensionResult> analyzeDimension(InsightDimensionEnum dimension, StructuredPaper paper) {
+        AgentType agentType = agentTypeOf(dimension);
+        return runForText(agentType, agentOf(dimension), paper)
+                .map(content -> DimensionResult.success(dimension, content))
+                .switchIfEmpty(Mono.fromSupplier(() -> DimensionResult.failed(dimension,
+                        new IllegalStateException("Agent " + agentType.getAgentName() + " is disabled"))))
+                .onErrorResume(e -> {
+                    log.error("Analysis of {} failed", dimension.getValue(), e);
+                    return Mono.just(DimensionResult.failed(dimension, e));
                 });
     }
 
-    private PaperInsight buildPaperInsight(Long paperId, Tuple4<Msg, Msg, Msg, Msg> tuple) {
-        String summary = extractContent(tuple.getT1());
-        String innovation = extractContent(tuple.getT2());
-        String methods = extractContent(tuple.getT3());
-        String scoreJson = extractContent(tuple.getT4());
+    /**
+     * 融合模式：一次调用输出全部维度，缺失或无法解析的维度单独回退到对应智能体
+     */
+    private Flux<DimensionResult> analyzeFused(StructuredPaper paper, Set<InsightDimensionEnum> dimensions) {
+        return run(AgentType.FUSED, fusedAnalysisAgent, paper)
+                .map(this::extractContent)
+                .map(this::parseFused)
+                .onErrorResume(e -> {
+                    log.warn("Fused analysis failed, falling back to per-agent analysis", e);
+                    return Mono.just(new JSONObject());
+                })
+                .defaultIfEmpty(new JSONObject())
+                .flatMapMany(json -> Flux.fromIterable(dimensions).flatMap(dimension -> {
+                    String value = fusedField(json, dimension);
+                    if (value != null && !value.isBlank()) {
+                        return Mono.just(DimensionResult.success(dimension, value));
+                    }
+                    log.info("Fused output lacks {}, falling back to {}", dimension.getValue(),
+                            agentTypeOf(dimension).getAgentName());
+                    return analyzeDimension(dimension, paper);
+                }));
+    }
+
+    /**
+     * 将维度结果转为只含该维度列的 PaperInsight，配合按非空字段更新实现分维度写入
+     *
+     * @param paperId 论文ID
+     * @param result  维度结果
+     * @return 待更新的字段
+     */
+    public PaperInsight toInsight(Long paperId, DimensionResult result) {
+        PaperInsight insight = PaperInsight.builder().paperId(paperId).build();
+        int status = result.isSuccess() ? InsightStatusEnum.Success.getValue() : InsightStatusEnum.Failed.getValue();
+        switch (result.dimension()) {
+            case Summary -> {
+                insight.setSummaryMarkdown(result.content());
+                insight.setSummaryStatus(status);
+            }
+            case Innovation -> {
+                insight.setInnovationPoints(result.content());
+                insight.setInnovationStatus(status);
+            }
+            case Methods -> {
+                insight.setMethods(result.content());
+                insight.setMethodsStatus(status);
+            }
+            case Score -> {
+                if (result.isSuccess()) {
+                    applyScore(insight, result.content());
+                }
+                insight.setScoreStatus(status);
+            }
+        }
+        return insight;
+    }
+
+    String fusedField(JSONObject json, InsightDimensionEnum dimension) {
+        return switch (dimension) {
+            case Summary -> json.getStr(FIELD_SUMMARY);
+            case Innovation -> innovationField(json);
+            case Methods -> json.getStr(FIELD_METHODS);
+            case Score -> scoreField(json);
+        };
+    }
+
+    private AgentType agentTypeOf(InsightDimensionEnum dimension) {
+        return switch (dimension) {
+            case Summary -> AgentType.SUMMARY;
+            case Innovation -> AgentType.INNOVATION;
+            case Methods -> AgentType.METHODOLOGY;
+            case Score -> AgentType.SCORE;
+        };
+    }
+
+    private BaseAnalysisAgent agentOf(InsightDimensionEnum dimension) {
+        return switch (dimension) {
+            case Summary -> summaryAgent;
+            case Innovation -> innovationAgent;
+            case Methods -> methodologyAgent;
+            case Score -> scoreAgent;
+        };
+    }
+
+    JSONObject parseFused(String content) {
+        try {
+            return JSONUtil.parseObj(cleanJsonString(content));
+        } catch (Exception e) {
+            log.warn("Failed to parse fused analysis JSON: {}", content);
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * 创新点可能被输出为数组，转为 Markdown 列表
+     */
+    private String innovationField(JSONObject json) {
+        Object value = json.get(FIELD_INNOVATION);
+        if (value instanceof JSONArray array) {
+            StringBuilder sb = new StringBuilder();
+            array.forEach(item -> sb.append("- ").append(item).append("\n"));
+            return sb.toString().trim();
+        }
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 评分需为含整数 score 与 dimensions 对象（ScoreAgent.OUTPUT_SCHEMA）的对象，否则视为缺失，交给评分智能体补齐
+     */
+    private String scoreField(JSONObject json) {
+        JSONObject score = json.get(FIELD_SCORE) instanceof JSONObject object ? object : null;
+        if (score == null || score.getInt(FIELD_SCORE) == null
+                || !(score.get(ScoreAgent.FIELD_DIMENSIONS) instanceof JSONObject)) {
+            return null;
+        }
+        return score.toString();
+    }
+
+    private Mono<String> runForText(AgentType agentType, BaseAnalysisAgent agent, StructuredPaper paper) {
+        return run(agentType, agent, paper).map(this::extractContent);
+    }
+
+    /**
+     * 执行单个智能体：输入在预算内时直接调用；否则按窗口并发 map，再合并为最终结果
+     */
+    private Mono<Msg> run(AgentType agentType, BaseAnalysisAgent agent, StructuredPaper paper) {
+        AgentPromptConfig.AnalysisProperties analysis = promptConfig.getAnalysis();
+        String input = inputFor(agentType, paper);
+        int tokens = TokenEstimator.estimate(input);
+        if (tokens <= analysis.getTokenBudget()) {
+            return call(agent, input);
+        }
+
+        List<String> windows = TokenEstimator.split(input, analysis.getWindowTokens());
+        log.info("{} input ~{} tokens exceeds budget {}, map-reduce over {} windows", agentType.getAgentName(),
+                tokens, analysis.getTokenBudget(), windows.size());
+        return Flux.range(0, windows.size())
+                .flatMapSequential(i -> call(agent, mapPrompt(i, windows.size(), windows.get(i)))
+                        .map(this::extractContent), analysis.getMapConcurrency())
+                .collectList()
+                .flatMap(partials -> reduce(agentType, agent, partials));
+    }
+
+    /**
+     * 合并各窗口的分析结果；合并输入仍超预算时先分组合并为中间结果再继续
+     */
+    private Mono<Msg> reduce(AgentType agentType, BaseAnalysisAgent agent, List<String> partials) {
+        AgentPromptConfig.AnalysisProperties analysis = promptConfig.getAnalysis();
+        String joined = joinPartials(partials);
+        if (partials.size() <= 1 || TokenEstimator.estimate(joined) <= analysis.getTokenBudget()) {
+            return call(agent, REDUCE_PROMPT + joined);
+        }
+        List<String> groups = TokenEstimator.split(joined, analysis.getWindowTokens());
+        if (groups.size() >= partials.size()) {
+            // 单条结果已接近窗口大小，分组无法继续收敛，直接合并
+            return call(agent, REDUCE_PROMPT + joined);
+        }
+        log.info("{} reduce input exceeds budget, merging {} partials in {} groups", agentType.getAgentName(),
+                partials.size(), groups.size());
+        return Flux.fromIterable(groups)
+                .flatMapSequential(group -> call(agent, MERGE_PROMPT + group).map(this::extractContent),
+                        analysis.getMapConcurrency())
+                .collectList()
+                .flatMap(merged -> reduce(agentType, agent, merged));
+    }
+
+    private Mono<Msg> call(BaseAnalysisAgent agent, String content) {
+        return agent.analyze(content)
+                .timeout(Duration.ofSeconds(promptConfig.getAnalysis().getCallTimeoutSeconds()));
+    }
+
+    private String mapPrompt(int index, int total, String window) {
+        return "以下是一篇论文的第 " + (index + 1) + "/" + total + " 部分。请只分析这一部分的内容，"
+                + "输出与任务相关的要点，结果将与其他部分合并。\n\n" + window;
+    }
 
+    private String joinPartials(List<String> partials) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < partials.size(); i++) {
+            sb.append("### Part ").append(i + 1).append("\n").append(partials.get(i)).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private String inputFor(AgentType agentType, StructuredPaper paper) {
+        String input = paper.render(promptConfig.sectionsFor(agentType.getConfigKey()));
+        log.info("{} input: {} of {} chars (sections detected: {})", agentType.getAgentName(), input.length(),
+                paper.sourceLength(), paper.sections().keySet());
+        return input;
+    }
+
+    private void applyScore(PaperInsight insight, String scoreJson) {
         Integer finalScore = 0;
         String validScoreJson = "{}"; // 默认空JSON对象
-        
+
         try {
             // 尝试从JSON中解析分数
             // 有时候模型可能输出 ```json ... ``` 格式，需要清洗
@@ -82,14 +356,8 @@ public class PaperAnalysisAgent {
             validScoreJson = errorJson.toString();
         }
 
-        return PaperInsight.builder()
-                .paperId(paperId)
-                .summaryMarkdown(summary)
-                .innovationPoints(innovation)
-                .methods(methods)
-                .score(finalScore)
-                .scoreDetails(validScoreJson)
-                .build();
+        insight.setScore(finalScore);
+        insight.setScoreDetails(validScoreJson);
     }
 
     /**
@@ -122,4 +390,26 @@ public class PaperAnalysisAgent {
         }
         return sb.toString().trim();
     }
+
+    /**
+     * 单个维度的分析结果
+     *
+     * @param dimension 维度
+     * @param content   结果文本，失败时为 null
+     * @param error     失败原因，成功时为 null
+     */
+    public record DimensionResult(InsightDimensionEnum dimension, String content, String error) {
+
+        public static DimensionResult success(InsightDimensionEnum dimension, String content) {
+            return new DimensionResult(dimension, content, null);
+        }
+
+        public static DimensionResult failed(InsightDimensionEnum dimension, Throwable error) {
+            return new DimensionResult(dimension, null, String.valueOf(error));
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
 }
@@ -1,9 +1,22 @@
 package com.zhemu.paperinsight.config;
 
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * RabbitMQ 消息队列配置类
  * 
@@ -16,8 +29,30 @@ public class RabbitMqConfig {
     // 登录验证码队列
     public static final String LOGIN_EMAIL_CODE_QUEUE = "email.code.queue";
 
-    // 论文分析队列
+    // 论文分析流水线：提取 → 分析 → 持久化/通知 → RAG 入库，各阶段独立队列与并发
+    // 提取阶段（入口，发起分析时投递到这里）
     public static final String PAPER_ANALYSIS_QUEUE = "paper.analysis.queue";
+    // 分析阶段
+    public static final String PAPER_ANALYZE_QUEUE = "paper.analysis.analyze.queue";
+    // 持久化/通知阶段
+    public static final String PAPER_PERSIST_QUEUE = "paper.analysis.persist.queue";
+    // RAG 入库阶段
+    public static final String PAPER_INDEX_QUEUE = "paper.analysis.index.queue";
+
+    // 阶段失败的延迟重试：消息先投递到延迟交换机，按退避时长路由到对应 TTL 队列，
+    // 过期后死信到重试交换机，再按原阶段队列名路由回去。路由键为 "<延迟毫秒>.<阶段队列名>"
+    public static final String ANALYSIS_DELAY_EXCHANGE = "paper.analysis.delay.exchange";
+    public static final String ANALYSIS_RETRY_EXCHANGE = "paper.analysis.retry.exchange";
+    public static final String ANALYSIS_DELAY_QUEUE_PREFIX = "paper.analysis.delay.";
+
+    // 各阶段监听容器
+    public static final String EXTRACT_CONTAINER_FACTORY = "extractContainerFactory";
+    public static final String ANALYSIS_CONTAINER_FACTORY = "analysisContainerFactory";
+    public static final String PERSIST_CONTAINER_FACTORY = "persistContainerFactory";
+    public static final String INDEX_CONTAINER_FACTORY = "indexContainerFactory";
+
+    // 响应式消费时的默认在途任务上限
+    public static final String DEFAULT_ANALYSIS_MAX_IN_FLIGHT = "32";
 
     @Bean
     public Queue codeQueue() {
@@ -29,4 +64,120 @@ public class RabbitMqConfig {
         return new Queue(PAPER_ANALYSIS_QUEUE, true);
     }
 
+    @Bean
+    public Queue analyzeQueue() {
+        return new Queue(PAPER_ANALYZE_QUEUE, true);
+    }
+
+    @Bean
+    public Queue persistQueue() {
+        return new Queue(PAPER_PERSIST_QUEUE, true);
+    }
+
+    @Bean
+    public Queue indexQueue() {
+        return new Queue(PAPER_INDEX_QUEUE, true);
+    }
+
+    /**
+     * 延迟重试拓扑：每个退避档位一个 TTL 队列（队列名带延迟时长，调整配置后声明新队列而不是与旧参数冲突），
+     * 各阶段队列绑定到重试交换机
+     */
+    @Bean
+    public Declarables analysisRetryDeclarables(
+            @Value("${paper.analysis.retry.max-attempts:3}") int maxAttempts,
+            @Value("${paper.analysis.retry.initial-delay-ms:10000}") long initialDelayMs,
+            @Value("${paper.analysis.retry.multiplier:4}") int multiplier) {
+        TopicExchange delayExchange = new TopicExchange(ANALYSIS_DELAY_EXCHANGE, true, false);
+        TopicExchange retryExchange = new TopicExchange(ANALYSIS_RETRY_EXCHANGE, true, false);
+        List<Declarable> declarables = new ArrayList<>(List.of(delayExchange, retryExchange));
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long delayMs = retryDelayMs(initialDelayMs, multiplier, attempt);
+            Queue delayQueue = QueueBuilder.durable(ANALYSIS_DELAY_QUEUE_PREFIX + delayMs)
+                    .ttl((int) delayMs)
+                    .deadLetterExchange(ANALYSIS_RETRY_EXCHANGE)
+                    .build();
+            declarables.add(delayQueue);
+            declarables.add(BindingBuilder.bind(delayQueue).to(delayExchange).with(delayMs + ".#"));
+        }
+        for (String stageQueue : List.of(PAPER_ANALYSIS_QUEUE, PAPER_ANALYZE_QUEUE, PAPER_PERSIST_QUEUE,
+                PAPER_INDEX_QUEUE)) {
+            declarables.add(new Binding(stageQueue, Binding.DestinationType.QUEUE, ANALYSIS_RETRY_EXCHANGE,
+                    "*." + stageQueue, null));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * 第 attempt 次重试前的等待时长（指数退避）
+     */
+    public static long retryDelayMs(long initialDelayMs, int multiplier, int attempt) {
+        long delay = initialDelayMs;
+        for (int i = 1; i < attempt; i++) {
+            delay *= multiplier;
+        }
+        return delay;
+    }
+
+    /**
+     * 提取阶段：PDF 解析吃 CPU，并发按核数配置，每个消费者一次只取一条
+     */
+    @Bean(EXTRACT_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory extractContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${paper.analysis.stage.extract.concurrency:2}") int concurrency,
+            @Value("${paper.analysis.stage.extract.prefetch:1}") int prefetch) {
+        return stageContainerFactory(configurer, connectionFactory, concurrency, prefetch);
+    }
+
+    /**
+     * 分析阶段：受大模型调用耗时限制。响应式消费时在途任务上限由各消费者共享，
+     * prefetch 按消费者数均分（向上取整），未 ack 的消息总数与可同时处理的数量一致
+     */
+    @Bean(ANALYSIS_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory analysisContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${paper.analysis.stage.analyze.concurrency:4}") int concurrency,
+            @Value("${paper.analysis.stage.analyze.prefetch:1}") int prefetch,
+            @Value("${paper.analysis.consumer.reactive:false}") boolean reactive,
+            @Value("${paper.analysis.consumer.max-in-flight:" + DEFAULT_ANALYSIS_MAX_IN_FLIGHT + "}") int maxInFlight) {
+        // prefetch 按 channel（即每个消费者）生效，直接用 maxInFlight 会让未 ack 总数放大 concurrency 倍
+        int consumers = Math.max(1, concurrency);
+        int effectivePrefetch = reactive ? (maxInFlight + consumers - 1) / consumers : prefetch;
+        return stageContainerFactory(configurer, connectionFactory, concurrency, effectivePrefetch);
+    }
+
+    /**
+     * 持久化/通知阶段：只有数据库写入，单条很快
+     */
+    @Bean(PERSIST_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory persistContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${paper.analysis.stage.persist.concurrency:2}") int concurrency,
+            @Value("${paper.analysis.stage.persist.prefetch:16}") int prefetch) {
+        return stageContainerFactory(configurer, connectionFactory, concurrency, prefetch);
+    }
+
+    /**
+     * RAG 入库阶段：受 Embedding 与 ES 写入限制
+     */
+    @Bean(INDEX_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory indexContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${paper.analysis.stage.index.concurrency:2}") int concurrency,
+            @Value("${paper.analysis.stage.index.prefetch:1}") int prefetch) {
+        return stageContainerFactory(configurer, connectionFactory, concurrency, prefetch);
+    }
+
+    private SimpleRabbitListenerContainerFactory stageContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            int concurrency, int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(concurrency);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+
 }
@@ -12,6 +12,12 @@ public interface RedisConstants {
     public static final String LOGIN_EMAIL_CODE = "email:login:code:";
     public static final Long LOGIN_EMAIL_CODE_TTL = 5L;
 
+    // 2. 向量嵌入缓存 (key: 前缀 + 模型名:维度:文本SHA-256)
+    public static final String EMBEDDING_CACHE_KEY = "embedding:cache:";
+
+    // 2.1 RAG 孤儿 chunk 对账锁，多实例部署时只允许一个实例执行
+    public static final String RAG_SWEEP_LOCK_KEY = "rag:sweep:lock";
+
     // 3.访客统计
     public static final String VISITOR_DAILY_KEY = "visitor:daily:";
     public static final String VISITOR_TOTAL_KEY = "visitor:total";
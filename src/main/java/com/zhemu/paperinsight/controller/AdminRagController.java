@@ -0,0 +1,86 @@
+package com.zhemu.paperinsight.controller;
+
+import com.zhemu.paperinsight.agent.common.ElasticsearchStore;
+import com.zhemu.paperinsight.annotation.AuthCheck;
+import com.zhemu.paperinsight.common.BaseResponse;
+import com.zhemu.paperinsight.common.ResultUtils;
+import com.zhemu.paperinsight.exception.BusinessException;
+import com.zhemu.paperinsight.exception.ErrorCode;
+import com.zhemu.paperinsight.exception.ThrowUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * RAG 向量索引运维-管理员
+ *
+ * @author lushihao
+ */
+@RestController
+@RequestMapping("/admin/rag")
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "agent.rag.store", havingValue = "elasticsearch", matchIfMissing = true)
+public class AdminRagController {
+
+    private final ElasticsearchStore elasticsearchStore;
+
+    /**
+     * 将 RAG 索引迁移到新的向量存储方案 (float / int8_hnsw / bbq_hnsw)
+     * 重建在后台执行：拷贝期间写入同时落到新旧索引，拷贝完成后读写别名原子切换，结果见 /rebuild/status
+     *
+     * @param profile 目标方案
+     * @return 是否已提交
+     */
+    @PostMapping("/migrate")
+    @AuthCheck(mustRole = "admin")
+    public BaseResponse<Boolean> migrate(@RequestParam("profile") String profile) {
+        ElasticsearchStore.IndexProfile target;
+        try {
+            target = ElasticsearchStore.IndexProfile.fromValue(profile);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的索引方案: " + profile);
+        }
+        submitRebuild(target);
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 按当前配置的向量方案重建 RAG 索引（用于 mapping 升级，不停服）
+     *
+     * @return 是否已提交
+     */
+    @PostMapping("/reindex")
+    @AuthCheck(mustRole = "admin")
+    public BaseResponse<Boolean> reindex() {
+        submitRebuild(elasticsearchStore.getIndexProfile());
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 查询当前或最近一次索引重建的状态，失败时包含错误信息
+     *
+     * @return 重建状态
+     */
+    @GetMapping("/rebuild/status")
+    @AuthCheck(mustRole = "admin")
+    public BaseResponse<ElasticsearchStore.RebuildStatus> rebuildStatus() {
+        return ResultUtils.success(elasticsearchStore.getRebuildStatus());
+    }
+
+    /**
+     * 重建锁在订阅时同步获取，加锁保证检查与提交之间不会插入另一个请求
+     */
+    private synchronized void submitRebuild(ElasticsearchStore.IndexProfile target) {
+        ThrowUtils.throwIf(elasticsearchStore.isRebuilding(), ErrorCode.OPERATION_ERROR, "索引重建进行中，请稍后再试");
+        elasticsearchStore.rebuildIndex(target)
+                .subscribe(
+                        index -> log.info("RAG index rebuilt with {} ({})", target, index),
+                        e -> log.error("RAG index rebuild with {} failed", target, e));
+    }
+}
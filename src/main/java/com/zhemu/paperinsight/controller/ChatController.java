@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zhemu.paperinsight.agent.core.ChatAgent;
 import com.zhemu.paperinsight.annotation.AuthCheck;
 import com.zhemu.paperinsight.model.dto.chat.ChatEvent;
+import com.zhemu.paperinsight.model.entity.PaperChatSession;
 import com.zhemu.paperinsight.model.vo.ChatHistoryMessageVO;
 import com.zhemu.paperinsight.exception.ErrorCode;
 import com.zhemu.paperinsight.exception.ThrowUtils;
@@ -69,7 +70,8 @@ public class ChatController {
             HttpServletRequest request) {
         long userId = sysUserService.getLoginUser(request).getId();
         // Verify ownership (anti-IDOR)
-        if (paperChatSessionService.getOwnedSession(chatId, userId) == null) {
+        PaperChatSession session = paperChatSessionService.getOwnedSession(chatId, userId);
+        if (session == null) {
             return Flux.just(ServerSentEvent.builder(serializeSafely(ChatEvent.error(0, "NO_AUTH", "No permission")))
                     .build());
         }
@@ -86,7 +88,7 @@ public class ChatController {
                 .content(TextBlock.builder().text(userQuery).build())
                 .build();
         // 3. 处理流失对话
-        processStream(chatAgent.stream(msg, chatId, String.valueOf(userId)), sink, seq);
+        processStream(chatAgent.stream(msg, chatId, String.valueOf(userId), session.getPaperId()), sink, seq);
         // 4. 流式返回
         return sink.asFlux()
                 .doOnCancel(() -> log.info("Client disconnected from stream"));
@@ -9,6 +9,7 @@ import com.zhemu.paperinsight.common.ResultUtils;
 import com.zhemu.paperinsight.exception.ErrorCode;
 import com.zhemu.paperinsight.exception.ThrowUtils;
 import com.zhemu.paperinsight.model.dto.paper.PaperAddRequest;
+import com.zhemu.paperinsight.model.dto.paper.PaperInsightRetryRequest;
 import com.zhemu.paperinsight.model.dto.paper.PaperQueryRequest;
 import com.zhemu.paperinsight.model.dto.paper.PaperUpdateRequest;
 import com.zhemu.paperinsight.model.entity.PaperInfo;
@@ -144,4 +145,19 @@ public class PaperController {
         PaperDetailVO vo = paperInfoService.getPaperDetail(id, userId);
         return ResultUtils.success(vo);
     }
+
+    /**
+     * 重新分析失败的维度
+     *
+     * @param retryRequest 重试请求
+     * @return 重新提交的维度
+     */
+    @PostMapping("/insight/retry")
+    @AuthCheck
+    public BaseResponse<List<String>> retryFailedAnalysis(
+            @RequestBody @Validated PaperInsightRetryRequest retryRequest) {
+        ThrowUtils.throwIf(retryRequest == null, ErrorCode.PARAMS_ERROR);
+        List<String> dimensions = paperInfoService.retryFailedAnalysis(retryRequest.getPaperId());
+        return ResultUtils.success(dimensions);
+    }
 }
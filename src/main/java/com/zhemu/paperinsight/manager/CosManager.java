@@ -4,6 +4,9 @@ import com.qcloud.cos.COSClient;
 import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
 import com.qcloud.cos.region.Region;
@@ -49,6 +52,26 @@ public class CosManager {
      */
     private String baseUrl;
 
+    /**
+     * 建立连接超时（毫秒）
+     */
+    private Integer connectionTimeout = 5000;
+
+    /**
+     * 读取超时（毫秒）
+     */
+    private Integer socketTimeout = 30000;
+
+    /**
+     * 连接池最大连接数
+     */
+    private Integer maxConnections = 64;
+
+    /**
+     * SDK 内部失败重试次数
+     */
+    private Integer maxErrorRetry = 3;
+
     private COSClient cosClient;
 
     /**
@@ -58,6 +81,10 @@ public class CosManager {
     public void init() {
         COSCredentials cred = new BasicCOSCredentials(secretId, secretKey);
         ClientConfig clientConfig = new ClientConfig(new Region(region));
+        clientConfig.setConnectionTimeout(connectionTimeout);
+        clientConfig.setSocketTimeout(socketTimeout);
+        clientConfig.setMaxConnectionsCount(maxConnections);
+        clientConfig.setMaxErrorRetry(maxErrorRetry);
         cosClient = new COSClient(cred, clientConfig);
     }
 
@@ -87,6 +114,66 @@ public class CosManager {
         return cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 读取对象（范围读取）
+     * 调用方负责关闭返回的 COSObject，以便连接归还连接池
+     *
+     * @param key        唯一键
+     * @param rangeStart 起始字节（含）
+     * @param rangeEnd   结束字节（含），-1 表示读到末尾
+     * @return COS 对象
+     */
+    public COSObject openObject(String key, long rangeStart, long rangeEnd) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucket, key);
+        if (rangeStart > 0 || rangeEnd >= 0) {
+            getObjectRequest.setRange(rangeStart, rangeEnd);
+        }
+        return cosClient.getObject(getObjectRequest);
+    }
+
+    /**
+     * 读取整个对象
+     *
+     * @param key 唯一键
+     * @return COS 对象
+     */
+    public COSObject openObject(String key) {
+        return openObject(key, 0, -1);
+    }
+
+    /**
+     * 查询对象元数据（ETag、大小等），不读取内容
+     *
+     * @param key 唯一键
+     * @return 对象元数据
+     */
+    public ObjectMetadata getObjectMetadata(String key) {
+        return cosClient.getObjectMetadata(bucket, key);
+    }
+
+    /**
+     * 从本桶的访问地址解析对象 Key
+     *
+     * @param url 访问地址
+     * @return 对象 Key，不是本桶地址时返回 null
+     */
+    public String resolveKey(String url) {
+        if (url == null || baseUrl == null) {
+            return null;
+        }
+        String prefix = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        if (!url.startsWith(prefix)) {
+            return null;
+        }
+        String key = url.substring(prefix.length());
+        int queryIndex = key.indexOf('?');
+        if (queryIndex >= 0) {
+            key = key.substring(0, queryIndex);
+        }
+        // getFileUrl 直接拼接 Key，未做编码，这里原样还原
+        return key.isEmpty() ? null : key;
+    }
+
     /**
      * 删除对象
      *
@@ -0,0 +1,29 @@
+package com.zhemu.paperinsight.mapper;
+
+import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 论文分析任务检查点 Mapper
+ * @author lushihao
+ */
+public interface PaperAnalysisTaskMapper extends BaseMapper<PaperAnalysisTask> {
+
+    /**
+     * 查找内容相同且已用同一提示词版本完整分析成功的其他论文（跨用户，供分析去重）
+     * 只认全量分析跑完的记录，只重试部分维度的分析即使完成也不算
+     *
+     * @param textSha256    PDF 内容 SHA-256
+     * @param textHash      归一化文本 SHA-256，为 null 时只按内容匹配
+     * @param promptVersion 分析提示词版本
+     * @param paperId       当前论文ID（排除自身）
+     * @param doneStage     完成阶段 (AnalysisStageEnum.Done)
+     * @return 论文ID，没有时返回 null
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    Long selectAnalyzedDuplicate(@Param("textSha256") String textSha256, @Param("textHash") String textHash,
+            @Param("promptVersion") String promptVersion, @Param("paperId") Long paperId,
+            @Param("doneStage") int doneStage);
+}
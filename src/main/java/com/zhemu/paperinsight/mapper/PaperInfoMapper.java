@@ -1,9 +1,11 @@
 package com.zhemu.paperinsight.mapper;
 
+import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zhemu.paperinsight.model.entity.PaperInfo;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,4 +30,29 @@ public interface PaperInfoMapper extends BaseMapper<PaperInfo> {
      * 物理删除论文
      */
     int physicalDeletePaper(@Param("id") Long id);
+
+    /**
+     * 查询仍存在的论文ID（含回收站中的论文，跨用户，供 RAG 孤儿 chunk 对账）
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    List<Long> selectExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 查询未删除论文的 PDF 地址（跨用户，供已校验会话归属的对话工具在无用户上下文的线程中使用）
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    String selectCosUrlById(@Param("id") Long id);
+
+    /**
+     * 查询论文 RAG chunk 的 doc_id：内容重复而共享 chunk 的论文返回被共享论文的 doc_id，否则为自身ID
+     * （跨用户，调用方需已校验归属）
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    String selectChunkDocIdById(@Param("id") Long id);
+
+    /**
+     * 查询一批 doc_id 中仍被论文共享引用的（跨用户，含回收站中的论文，供 RAG chunk 清理）
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    List<String> selectReferencedChunkDocIds(@Param("docIds") Collection<String> docIds);
 }
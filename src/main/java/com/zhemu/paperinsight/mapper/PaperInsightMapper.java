@@ -1,7 +1,9 @@
 package com.zhemu.paperinsight.mapper;
 
+import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zhemu.paperinsight.model.entity.PaperInsight;
+import org.apache.ibatis.annotations.Param;
 
 /**
 * @author lushihao
@@ -11,6 +13,11 @@ import com.zhemu.paperinsight.model.entity.PaperInsight;
 */
 public interface PaperInsightMapper extends BaseMapper<PaperInsight> {
 
+    /**
+     * 按论文ID查询分析结果（跨用户，供分析去重复制已有结果）
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    PaperInsight selectByPaperIdAcrossUsers(@Param("paperId") Long paperId);
 }
 
 
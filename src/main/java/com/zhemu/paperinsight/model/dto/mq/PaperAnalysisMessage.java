@@ -7,9 +7,11 @@ import lombok.NoArgsConstructor;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 论文分析任务消息
+ * 提取、分析、入库各阶段共用，后一阶段所需的产出按引用携带
  * 
  * @author lushihao
  */
@@ -36,4 +38,24 @@ public class PaperAnalysisMessage implements Serializable {
      * 用户ID (可选，用于后续通知)
      */
     private Long userId;
+
+    /**
+     * 需要分析的维度 (InsightDimensionEnum 的 value)，为空时分析全部维度
+     */
+    private List<String> dimensions;
+
+    /**
+     * 本次分析的运行ID，由提取阶段生成，贯穿后续各阶段
+     */
+    private String runId;
+
+    /**
+     * 提取文本的引用（PDF 内容 SHA-256），由提取阶段写入，分析阶段据此读取文本
+     */
+    private String textSha256;
+
+    /**
+     * 当前阶段已重试次数，进入下一阶段时清零
+     */
+    private Integer attempt;
 }
@@ -0,0 +1,44 @@
+package com.zhemu.paperinsight.model.dto.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 单个维度的分析结果消息（分析阶段 → 持久化阶段）
+ *
+ * @author lushihao
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaperInsightResultMessage implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 原始任务（论文、用户、运行ID、本次分析的全部维度）
+     */
+    private PaperAnalysisMessage task;
+
+    /**
+     * 维度 (InsightDimensionEnum 的 value)
+     */
+    private String dimension;
+
+    /**
+     * 结果文本，失败时为空
+     */
+    private String content;
+
+    /**
+     * 失败原因，成功时为空
+     */
+    private String error;
+}
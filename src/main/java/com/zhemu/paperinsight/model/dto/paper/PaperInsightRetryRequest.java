@@ -0,0 +1,26 @@
+package com.zhemu.paperinsight.model.dto.paper;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 重试失败维度请求
+ * @author lushihao
+ */
+@Data
+public class PaperInsightRetryRequest implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 论文ID
+     */
+    @NotNull(message = "论文id不能为空")
+    @Min(value = 1, message = "论文id必须大于0")
+    private Long paperId;
+}
@@ -0,0 +1,90 @@
+package com.zhemu.paperinsight.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableLogic;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 论文分析任务检查点表
+ * @author lushihao
+ */
+@TableName(value = "paper_analysis_task")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaperAnalysisTask implements Serializable {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 运行ID
+     */
+    private String runId;
+
+    /**
+     * 论文ID
+     */
+    private Long paperId;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 是否全量分析 (0-只重试部分维度, 1-全部维度)
+     */
+    private Integer fullRun;
+
+    /**
+     * 待执行阶段 (AnalysisStageEnum)
+     */
+    private Integer stage;
+
+    /**
+     * 提取文本引用 (PDF 内容 SHA-256)
+     */
+    private String textSha256;
+
+    /**
+     * 归一化文本 SHA-256，用于识别字节不同但内容相同的 PDF
+     */
+    private String textHash;
+
+    /**
+     * 分析提示词版本
+     */
+    private String promptVersion;
+
+    /**
+     * 当前阶段已重试次数
+     */
+    private Integer attempt;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+
+    @TableLogic
+    private Integer isDelete;
+
+    @Serial
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
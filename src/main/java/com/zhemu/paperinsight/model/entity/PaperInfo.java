@@ -78,6 +78,11 @@ public class PaperInfo implements Serializable {
      */
     private LocalDate publishDate;
 
+    /**
+     * 共享的 RAG chunk doc_id，内容重复的论文指向首次入库的论文；为空时为自身ID
+     */
+    private String chunkDocId;
+
     /**
      * 创建时间
      */
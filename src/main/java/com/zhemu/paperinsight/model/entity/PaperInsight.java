@@ -63,6 +63,26 @@ public class PaperInsight implements Serializable {
      */
     private String scoreDetails;
 
+    /**
+     * 摘要状态 0-待分析 1-已完成 2-失败
+     */
+    private Integer summaryStatus;
+
+    /**
+     * 创新点状态 0-待分析 1-已完成 2-失败
+     */
+    private Integer innovationStatus;
+
+    /**
+     * 方法论状态 0-待分析 1-已完成 2-失败
+     */
+    private Integer methodsStatus;
+
+    /**
+     * 评分状态 0-待分析 1-已完成 2-失败
+     */
+    private Integer scoreStatus;
+
     /**
      * 创建时间
      */
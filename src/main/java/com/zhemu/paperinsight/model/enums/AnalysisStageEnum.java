@@ -0,0 +1,38 @@
+package com.zhemu.paperinsight.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 论文分析流水线阶段枚举
+ * 检查点中记录的是下一个待执行的阶段，只会前进
+ * @author lushihao
+ */
+@Getter
+public enum AnalysisStageEnum {
+
+    Extract("提取", 0),
+    Analyze("分析", 1),
+    Persist("持久化", 2),
+    Index("RAG入库", 3),
+    Done("完成", 4);
+
+    private final String desc;
+    private final int value;
+
+    AnalysisStageEnum(String desc, int value) {
+        this.desc = desc;
+        this.value = value;
+    }
+
+    public static AnalysisStageEnum getEnumByValue(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        for (AnalysisStageEnum anEnum : AnalysisStageEnum.values()) {
+            if (anEnum.value == value) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
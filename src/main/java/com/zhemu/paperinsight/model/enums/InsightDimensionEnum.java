@@ -0,0 +1,59 @@
+package com.zhemu.paperinsight.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 论文分析维度枚举
+ * 每个维度对应 paper_insight 中的一组结果列与一个状态列，可单独持久化与重试
+ * @author lushihao
+ */
+@Getter
+public enum InsightDimensionEnum {
+
+    Summary("摘要", "summary"),
+    Innovation("创新点", "innovation"),
+    Methods("方法论", "methods"),
+    Score("评分", "score");
+
+    private final String desc;
+    private final String value;
+
+    InsightDimensionEnum(String desc, String value) {
+        this.desc = desc;
+        this.value = value;
+    }
+
+    public static InsightDimensionEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (InsightDimensionEnum anEnum : InsightDimensionEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析维度列表，为空或全部无法识别时返回全部维度
+     */
+    public static Set<InsightDimensionEnum> resolve(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EnumSet.allOf(InsightDimensionEnum.class);
+        }
+        Set<InsightDimensionEnum> dimensions = EnumSet.noneOf(InsightDimensionEnum.class);
+        for (String value : values) {
+            InsightDimensionEnum dimension = getEnumByValue(value);
+            if (dimension != null) {
+                dimensions.add(dimension);
+            }
+        }
+        return dimensions.isEmpty() ? EnumSet.allOf(InsightDimensionEnum.class) : dimensions;
+    }
+}
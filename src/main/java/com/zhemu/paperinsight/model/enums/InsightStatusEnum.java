@@ -0,0 +1,35 @@
+package com.zhemu.paperinsight.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 论文分析维度状态枚举
+ * @author lushihao
+ */
+@Getter
+public enum InsightStatusEnum {
+
+    Pending("待分析", 0),
+    Success("已完成", 1),
+    Failed("失败", 2);
+
+    private final String desc;
+    private final int value;
+
+    InsightStatusEnum(String desc, int value) {
+        this.desc = desc;
+        this.value = value;
+    }
+
+    public static InsightStatusEnum getEnumByValue(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        for (InsightStatusEnum anEnum : InsightStatusEnum.values()) {
+            if (anEnum.value == value) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
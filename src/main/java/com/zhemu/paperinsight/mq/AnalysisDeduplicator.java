@@ -0,0 +1,138 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.tools.PdfExtractionTool;
+import com.zhemu.paperinsight.agent.wrapper.PaperAnalysisAgent;
+import com.zhemu.paperinsight.common.UserContext;
+import com.zhemu.paperinsight.mapper.PaperInfoMapper;
+import com.zhemu.paperinsight.mapper.PaperInsightMapper;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.entity.PaperInfo;
+import com.zhemu.paperinsight.model.entity.PaperInsight;
+import com.zhemu.paperinsight.model.enums.InsightStatusEnum;
+import com.zhemu.paperinsight.model.enums.NotificationTypeEnum;
+import com.zhemu.paperinsight.service.NotificationService;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import com.zhemu.paperinsight.service.PaperInsightService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 论文分析去重
+ * <p>
+ * 内容指纹由 PDF 字节 SHA-256 与归一化文本 SHA-256（只保留字母数字并转小写）组成，后者用于识别
+ * 重新导出、另存等字节不同但内容相同的 PDF。提取阶段记录指纹后，查找已用同一提示词版本完整分析成功的论文：
+ * 命中时复制其分析结果，并让本论文共享其 RAG chunk（paper_info.chunk_doc_id），跳过分析、持久化与入库阶段。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalysisDeduplicator {
+
+    // 归一化文本过短（扫描件等提取不到文字）时不参与文本匹配，避免不同论文被误判为相同
+    private static final int MIN_NORMALIZED_LENGTH = 200;
+
+    private final PdfExtractionTool pdfExtractionTool;
+    private final PaperAnalysisTaskService paperAnalysisTaskService;
+    private final PaperInsightService paperInsightService;
+    private final PaperInsightMapper paperInsightMapper;
+    private final PaperInfoMapper paperInfoMapper;
+    private final NotificationService notificationService;
+    private final AgentPromptConfig promptConfig;
+    private final PaperAnalysisAgent paperAnalysisAgent;
+
+    /**
+     * 当前的分析提示词版本
+     */
+    public String promptVersion() {
+        return paperAnalysisAgent.promptVersion();
+    }
+
+    /**
+     * 计算提取文本的归一化哈希
+     *
+     * @param textSha256 提取文本引用 (PDF 内容 SHA-256)
+     * @param pdfUrl     PDF 地址，本机缓存未命中时重新提取
+     * @return 归一化文本 SHA-256，文本过短时返回 null
+     * @throws Exception 提取失败
+     */
+    public String textHashOf(String textSha256, String pdfUrl) throws Exception {
+        return textHash(pdfExtractionTool.textOf(textSha256, pdfUrl));
+    }
+
+    /**
+     * 内容相同的论文已分析过时复用其结果
+     *
+     * @param task       全量分析任务
+     * @param textSha256 PDF 内容 SHA-256
+     * @param textHash   归一化文本 SHA-256，可为 null
+     * @return 是否已复用；true 时本次分析无需继续
+     */
+    public boolean reuseIfAnalyzed(PaperAnalysisMessage task, String textSha256, String textHash) {
+        if (!Boolean.TRUE.equals(promptConfig.getAnalysis().getDedupEnabled())) {
+            return false;
+        }
+        Long sourcePaperId = paperAnalysisTaskService.findAnalyzedDuplicate(textSha256, textHash, promptVersion(),
+                task.getPaperId());
+        if (sourcePaperId == null) {
+            return false;
+        }
+        PaperInsight source = paperInsightMapper.selectByPaperIdAcrossUsers(sourcePaperId);
+        String chunkDocId = paperInfoMapper.selectChunkDocIdById(sourcePaperId);
+        if (source == null || chunkDocId == null) {
+            // 查找之后被物理删除
+            return false;
+        }
+
+        if (task.getUserId() != null) {
+            UserContext.setUserId(task.getUserId());
+        }
+        try {
+            PaperInsight copy = PaperInsight.builder()
+                    .summaryMarkdown(source.getSummaryMarkdown())
+                    .innovationPoints(source.getInnovationPoints())
+                    .methods(source.getMethods())
+                    .score(source.getScore())
+                    .scoreDetails(source.getScoreDetails())
+                    .summaryStatus(InsightStatusEnum.Success.getValue())
+                    .innovationStatus(InsightStatusEnum.Success.getValue())
+                    .methodsStatus(InsightStatusEnum.Success.getValue())
+                    .scoreStatus(InsightStatusEnum.Success.getValue())
+                    .build();
+            paperInsightService.update(copy, new UpdateWrapper<PaperInsight>().eq("paper_id", task.getPaperId()));
+            // chunk 按被共享论文的 doc_id 检索，不再重复切分与向量化
+            paperInfoMapper.update(null, new UpdateWrapper<PaperInfo>()
+                    .eq("id", task.getPaperId())
+                    .set("chunk_doc_id", chunkDocId));
+            notificationService.notifyPaperAnalysis(task.getUserId(), task.getPaperId(),
+                    NotificationTypeEnum.PaperAnalysisSuccess,
+                    "论文已完成分析，请前往详情页查看。",
+                    copy.getScore());
+        } finally {
+            UserContext.clear();
+        }
+        log.info("Reused analysis of paperId {} for identical paperId {}, chunks shared as doc_id {}",
+                sourcePaperId, task.getPaperId(), chunkDocId);
+        return true;
+    }
+
+    static String textHash(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        text.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .map(Character::toLowerCase)
+                .forEach(normalized::appendCodePoint);
+        if (normalized.length() < MIN_NORMALIZED_LENGTH) {
+            return null;
+        }
+        return DigestUtil.sha256Hex(normalized.toString());
+    }
+}
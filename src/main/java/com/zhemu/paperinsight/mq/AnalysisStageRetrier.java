@@ -0,0 +1,65 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.json.JSONUtil;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分析流水线阶段重试
+ * 阶段失败时按指数退避把消息经延迟队列投回原阶段队列，同时在检查点中记录失败；
+ * 超过最大次数时不再重试，由调用方做最终失败处理
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalysisStageRetrier {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final PaperAnalysisTaskService paperAnalysisTaskService;
+
+    @Value("${paper.analysis.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${paper.analysis.retry.initial-delay-ms:10000}")
+    private long initialDelayMs;
+
+    @Value("${paper.analysis.retry.multiplier:4}")
+    private int multiplier;
+
+    /**
+     * 安排一次延迟重试
+     *
+     * @param stageQueue 原阶段队列
+     * @param task       分析任务（attempt 会被加一）
+     * @param message    要重投的消息体（包含 task）
+     * @param error      失败原因
+     * @return 是否已安排重试；false 表示已用尽重试次数
+     */
+    public boolean retry(String stageQueue, PaperAnalysisMessage task, Object message, Throwable error) {
+        int attempt = (task.getAttempt() == null ? 0 : task.getAttempt()) + 1;
+        try {
+            paperAnalysisTaskService.recordFailure(task.getRunId(), attempt, error);
+        } catch (Exception e) {
+            log.warn("Failed to record failure for run {}", task.getRunId(), e);
+        }
+        if (attempt > maxAttempts) {
+            log.error("Stage {} of paperId {} failed after {} retries", stageQueue, task.getPaperId(), maxAttempts);
+            return false;
+        }
+        task.setAttempt(attempt);
+        long delayMs = RabbitMqConfig.retryDelayMs(initialDelayMs, multiplier, attempt);
+        rabbitTemplate.convertAndSend(RabbitMqConfig.ANALYSIS_DELAY_EXCHANGE, delayMs + "." + stageQueue,
+                JSONUtil.toJsonStr(message));
+        log.warn("Stage {} of paperId {} failed, retry {}/{} in {} ms", stageQueue, task.getPaperId(),
+                attempt, maxAttempts, delayMs);
+        return true;
+    }
+}
@@ -1,40 +1,40 @@
 package com.zhemu.paperinsight.mq;
 
 import cn.hutool.json.JSONUtil;
-import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.rabbitmq.client.Channel;
-import com.zhemu.paperinsight.agent.common.ElasticsearchStore;
-import com.zhemu.paperinsight.agent.tools.PdfExtractionTool;
 import com.zhemu.paperinsight.agent.wrapper.PaperAnalysisAgent;
-import com.zhemu.paperinsight.common.UserContext;
 import com.zhemu.paperinsight.config.RabbitMqConfig;
 import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
-import com.zhemu.paperinsight.model.entity.PaperInsight;
-import com.zhemu.paperinsight.model.entity.Notification;
-import com.zhemu.paperinsight.model.enums.NotificationTypeEnum;
-import com.zhemu.paperinsight.model.entity.PaperInfo;
-import com.zhemu.paperinsight.service.PaperInfoService;
-import com.zhemu.paperinsight.service.NotificationService;
-import com.zhemu.paperinsight.service.PaperInsightService;
-import io.agentscope.core.rag.Knowledge;
-import io.agentscope.core.rag.model.Document;
-import io.agentscope.core.rag.model.DocumentMetadata;
-import io.agentscope.core.rag.reader.ReaderInput;
-import io.agentscope.core.rag.reader.SplitStrategy;
-import io.agentscope.core.rag.reader.TextReader;
+import com.zhemu.paperinsight.model.dto.mq.PaperInsightResultMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DuplicateKeyException;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 /**
- * 论文分析任务消费者
+ * 论文分析流水线 - 分析阶段
+ * <p>
+ * 按提取阶段给出的文本引用读取全文，调用各子智能体分析，每个维度出结果后立即交给持久化阶段。
+ * 本阶段只读写检查点，不访问业务表；检查点显示分析已完成时跳过，整体失败时经延迟队列重试本阶段。
+ * 默认在监听线程上同步执行；paper.analysis.consumer.reactive=true 时改为响应式：
+ * 监听线程只负责提交，分析链路完成后再异步 ack/nack，同时在途任务数由信号量限制，
+ * 上限与各消费者 prefetch 之和一致，少量监听线程即可维持大量在途分析。
  *
  * @author lushihao
  */
@@ -44,172 +44,192 @@ import java.util.stream.Collectors;
 public class AnalysisTaskConsumer {
 
     private final PaperAnalysisAgent paperAnalysisAgent;
-    private final PaperInsightService paperInsightService;
-    private final NotificationService notificationService;
-    private final PaperInfoService paperInfoService;
-    private final Knowledge knowledge;
-    private final PdfExtractionTool pdfExtractionTool;
-    private final ElasticsearchStore elasticsearchStore;
-
-    @RabbitListener(queues = RabbitMqConfig.PAPER_ANALYSIS_QUEUE, ackMode = "MANUAL")
+    private final MessageProducer messageProducer;
+    private final PaperAnalysisTaskService paperAnalysisTaskService;
+    private final AnalysisStageRetrier analysisStageRetrier;
+
+    @Value("${paper.analysis.consumer.reactive:false}")
+    private boolean reactive;
+
+    @Value("${paper.analysis.consumer.max-in-flight:" + RabbitMqConfig.DEFAULT_ANALYSIS_MAX_IN_FLIGHT + "}")
+    private int maxInFlight;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new Semaphore(maxInFlight);
+        if (reactive) {
+            log.info("Analysis consumer in reactive mode, max in-flight tasks: {}", maxInFlight);
+        }
+    }
+
+    @RabbitListener(queues = RabbitMqConfig.PAPER_ANALYZE_QUEUE, ackMode = "MANUAL",
+            containerFactory = RabbitMqConfig.ANALYSIS_CONTAINER_FACTORY)
     public void receiveAnalysisTask(String messageStr, Channel channel, Message message) {
         log.info("Received analysis task: {}", messageStr);
         long deliveryTag = message.getMessageProperties().getDeliveryTag();
 
+        // 1. 解析消息
+        PaperAnalysisMessage task;
         try {
-            // 1. 解析消息
-            PaperAnalysisMessage task = JSONUtil.toBean(messageStr, PaperAnalysisMessage.class);
-            if (task == null || task.getPaperId() == null) {
-                log.warn("Invalid message format: {}", messageStr);
-                channel.basicAck(deliveryTag, false);
-                return;
-            }
-
-            // 设置用户上下文
-            if (task.getUserId() != null) {
-                UserContext.setUserId(task.getUserId());
-            }
+            task = JSONUtil.toBean(messageStr, PaperAnalysisMessage.class);
+        } catch (Exception e) {
+            task = null;
+        }
+        if (task == null || task.getPaperId() == null) {
+            log.warn("Invalid message format: {}", messageStr);
+            ack(channel, deliveryTag);
+            return;
+        }
 
-            // 2. 调用 Agent 进行分析 (同步等待结果)
-            PaperInsight paperInsight = paperAnalysisAgent.analyzePaper(task.getPaperId(), task.getPdfUrl()).block();
-
-                if (paperInsight != null) {
-                // 3. 更新数据库
-                UpdateWrapper<PaperInsight> updateWrapper = new UpdateWrapper<>();
-                updateWrapper.eq("paper_id", task.getPaperId());
-                paperInsightService.update(paperInsight, updateWrapper);
-                log.info("Analysis completed and saved for paperId: {}", task.getPaperId());
-
-                // 3.0 写入用户通知（幂等）
-                createNotificationSafely(task.getUserId(), task.getPaperId(), NotificationTypeEnum.PaperAnalysisSuccess,
-                        "论文已完成分析，请前往详情页查看。",
-                        paperInsight);
-
-                // 3.1 RAG 入库
-                try {
-                    log.info("Starting RAG indexing for paperId: {}", task.getPaperId());
-
-                    // 使用 PdfExtractionTool 提取文本（它内部处理了 URL 下载）
-                    String extractedText = pdfExtractionTool.extractPdfText(task.getPdfUrl());
-
-                    if (extractedText != null && !extractedText.isEmpty() && !extractedText.startsWith("Error")) {
-                        // 使用 TextReader 切分文本
-                        TextReader textReader = new TextReader(512, SplitStrategy.PARAGRAPH, 50);
-                        List<Document> docs = textReader.read(ReaderInput.fromString(extractedText)).block();
-                        
-                        // 显式设置 docId 为 paperId，确保后续可以反查
-                        // 注意: DocumentMetadata 可能是 Record (Java 14+) 或不可变对象，因此我们重建 Document
-                        if (docs != null) {
-                            List<Document> newDocs = docs.stream().map(doc -> {
-                                DocumentMetadata oldMeta = doc.getMetadata();
-                                // 重建 Metadata，将 docId 设为 paperId
-                                DocumentMetadata newMeta = new DocumentMetadata(
-                                        oldMeta.getContent(),
-                                        String.valueOf(task.getPaperId()), // 设置 paperId
-                                        oldMeta.getChunkId()
-
-                                );
-                                // 重建 Document
-                                Document newDoc = new Document(newMeta);
-                                newDoc.setEmbedding(doc.getEmbedding()); // 保留 embedding (虽然此时通常为空)
-                                newDoc.setScore(doc.getScore());
-                                return newDoc;
-                            }).collect(Collectors.toList());
-
-                            knowledge.addDocuments(newDocs).block();
-                            log.info("RAG indexing completed for paperId: {}, docs count: {}", task.getPaperId(),
-                                    newDocs.size());
-                        }
-                    } else {
-                        log.warn("Failed to extract text from PDF for paperId: {}", task.getPaperId());
-                    }
-                } catch (Exception e) {
-                    log.error("RAG indexing failed for paperId: {}", task.getPaperId(), e);
-                    // 不阻断流程，仅记录错误
-                }
+        // 检查点：分析已完成（重复投递）时跳过，避免重复调用大模型
+        PaperAnalysisTask checkpoint = paperAnalysisTaskService.getByRunId(task.getRunId());
+        if (checkpoint != null && checkpoint.getStage() > AnalysisStageEnum.Analyze.getValue()) {
+            log.info("Analysis already done for run {}, skipped", task.getRunId());
+            ack(channel, deliveryTag);
+            return;
+        }
 
-            } else {
-                log.error("Analysis returned null for paperId: {}", task.getPaperId());
+        if (reactive) {
+            submit(task, channel, deliveryTag);
+        } else {
+            process(task, channel, deliveryTag);
+        }
+    }
 
-                createNotificationSafely(task.getUserId(), task.getPaperId(), NotificationTypeEnum.PaperAnalysisFailed,
-                        "论文分析失败（空结果），请稍后重试。",
-                        null);
+    /**
+     * 同步模式：在监听线程上迭代分析结果
+     */
+    private void process(PaperAnalysisMessage task, Channel channel, long deliveryTag) {
+        Set<InsightDimensionEnum> remaining = EnumSet.copyOf(InsightDimensionEnum.resolve(task.getDimensions()));
+        try {
+            // 2. 调用 Agent 分维度分析，每个维度完成即交给持久化阶段
+            // 错误按信号顺序处理：toIterable 收到错误时会丢弃已缓冲但未取出的结果，成功的维度会被误判为失败
+            for (Signal<PaperAnalysisAgent.DimensionResult> signal : analyze(task).materialize().toIterable()) {
+                if (signal.isOnError()) {
+                    handleFailure(task, remaining, signal.getThrowable(), channel, deliveryTag);
+                    return;
+                }
+                if (signal.isOnNext()) {
+                    publish(task, signal.get());
+                    remaining.remove(signal.get().dimension());
+                }
             }
+            markAnalyzed(task);
+        } catch (Exception e) {
+            handleFailure(task, remaining, e, channel, deliveryTag);
+            return;
+        }
+        // 3. 确认消息
+        ack(channel, deliveryTag);
+    }
 
-            // 4. 确认消息
-            channel.basicAck(deliveryTag, false);
+    /**
+     * 响应式模式：提交分析链路后立即返回，完成时异步 ack/nack
+     */
+    private void submit(PaperAnalysisMessage task, Channel channel, long deliveryTag) {
+        try {
+            // 在途任务已满时阻塞监听线程，剩余消息留在 prefetch 缓冲中
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nackRequeue(channel, deliveryTag);
+            return;
+        }
+        Set<InsightDimensionEnum> remaining = EnumSet.copyOf(InsightDimensionEnum.resolve(task.getDimensions()));
+        analyze(task)
+                .subscribeOn(Schedulers.boundedElastic())
+                // 投递持久化阶段是阻塞调用，切回弹性线程且逐个执行
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(result -> {
+                    publish(task, result);
+                    remaining.remove(result.dimension());
+                })
+                .then(Mono.fromRunnable(() -> markAnalyzed(task)))
+                .doFinally(signal -> inFlight.release())
+                .subscribe(null,
+                        e -> handleFailure(task, remaining, e, channel, deliveryTag),
+                        () -> ack(channel, deliveryTag));
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to process analysis task", e);
-
-            // 尝试写入失败通知（不影响 nack）
-            try {
-                PaperAnalysisMessage task = JSONUtil.toBean(messageStr, PaperAnalysisMessage.class);
-                if (task != null && task.getPaperId() != null) {
-                    if (task.getUserId() != null) {
-                        UserContext.setUserId(task.getUserId());
-                    }
-                    createNotificationSafely(task.getUserId(), task.getPaperId(), NotificationTypeEnum.PaperAnalysisFailed,
-                            "论文分析失败（系统异常），请稍后重试。",
-                            null);
-                }
-            } catch (Exception ignored) {
-                // ignore
-            }
-            try {
-                channel.basicNack(deliveryTag, false, false);
-            } catch (IOException ex) {
-                log.error("Failed to nack message", ex);
-            }
-        } finally {
-            UserContext.clear();
+    private Flux<PaperAnalysisAgent.DimensionResult> analyze(PaperAnalysisMessage task) {
+        return paperAnalysisAgent.analyzeDimensions(task.getTextSha256(), task.getPdfUrl(),
+                InsightDimensionEnum.resolve(task.getDimensions()));
+    }
+
+    private void markAnalyzed(PaperAnalysisMessage task) {
+        if (task.getRunId() != null) {
+            paperAnalysisTaskService.advance(task.getRunId(), AnalysisStageEnum.Persist);
         }
     }
 
-    private void createNotificationSafely(Long userId, Long paperId, NotificationTypeEnum type, String content,
-            PaperInsight insight) {
-        if (userId == null || paperId == null) {
+    private void publish(PaperAnalysisMessage task, PaperAnalysisAgent.DimensionResult result) {
+        messageProducer.sendAnalysisStage(RabbitMqConfig.PAPER_PERSIST_QUEUE,
+                PaperInsightResultMessage.builder()
+                        .task(task)
+                        .dimension(result.dimension().getValue())
+                        .content(result.content())
+                        .error(result.error())
+                        .build());
+    }
+
+    /**
+     * 提取失败等整体失败（整体超时由分析链路自行转为失败结果）：安排延迟重试后确认消息；
+     * 重试用尽时尚未出结果的维度标记为失败，已完成的保留，之后可单独重试。
+     * 安排重试本身失败时消息重新入队，保证总会被 ack 或 nack
+     */
+    private void handleFailure(PaperAnalysisMessage task, Set<InsightDimensionEnum> remaining, Throwable error,
+            Channel channel, long deliveryTag) {
+        log.error("Failed to process analysis task for paperId: {}", task.getPaperId(), error);
+        boolean retrying;
+        try {
+            retrying = analysisStageRetrier.retry(RabbitMqConfig.PAPER_ANALYZE_QUEUE, task, task, error);
+        } catch (Exception e) {
+            log.error("Failed to schedule retry of analysis for paperId: {}, requeued", task.getPaperId(), e);
+            nackRequeue(channel, deliveryTag);
             return;
         }
+        if (retrying) {
+            ack(channel, deliveryTag);
+            return;
+        }
+        task.setAttempt(null);
+        publishFailures(task, remaining, error);
+        nack(channel, deliveryTag);
+    }
+
+    private void publishFailures(PaperAnalysisMessage task, Set<InsightDimensionEnum> remaining, Throwable error) {
         try {
-            PaperInfo paperInfo = null;
-            try {
-                paperInfo = paperInfoService.getById(paperId);
-            } catch (Exception ignored) {
-                // ignore
+            for (InsightDimensionEnum dimension : remaining) {
+                publish(task, PaperAnalysisAgent.DimensionResult.failed(dimension, error));
             }
-            String paperTitle = paperInfo == null ? null : paperInfo.getTitle();
+        } catch (Exception e) {
+            log.warn("Failed to publish unfinished dimensions as failed for paperId: {}", task.getPaperId(), e);
+        }
+    }
 
-            String dedupKey = String.format("%s:%s", type.getValue(), paperId);
-            cn.hutool.json.JSONObject payload = new cn.hutool.json.JSONObject();
-            payload.set("paperId", paperId);
-            if (paperTitle != null) {
-                payload.set("paperTitle", paperTitle);
-            }
-            if (insight != null) {
-                payload.set("score", insight.getScore());
-            }
+    private void ack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (IOException e) {
+            log.error("Failed to ack message", e);
+        }
+    }
 
-            String title;
-            if (paperTitle != null) {
-                title = String.format("%s：%s", type.getDesc(), paperTitle);
-            } else {
-                title = type.getDesc();
-            }
+    private void nack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, false);
+        } catch (IOException ex) {
+            log.error("Failed to nack message", ex);
+        }
+    }
 
-            Notification notification = Notification.builder()
-                    .userId(userId)
-                    .type(type.getValue())
-                    .title(title)
-                    .content(content)
-                    .payloadJson(payload.toString())
-                    .dedupKey(dedupKey)
-                    .build();
-            notificationService.save(notification);
-        } catch (DuplicateKeyException e) {
-            // dedupKey 冲突，视为成功
-        } catch (Exception e) {
-            log.warn("Failed to create notification for paperId: {}", paperId, e);
+    private void nackRequeue(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (IOException ex) {
+            log.error("Failed to nack message", ex);
         }
     }
 }
@@ -0,0 +1,122 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.rabbitmq.client.Channel;
+import com.zhemu.paperinsight.agent.tools.PdfExtractionTool;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.dto.mq.PaperInsightResultMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * 论文分析流水线 - 提取阶段
+ * 下载 PDF 并提取文本写入提取缓存，把文本引用（内容 SHA-256）与内容指纹记入检查点并交给分析阶段；
+ * 全量分析时内容相同的论文已分析过则直接复用结果，不再进入后续阶段；
+ * 提取失败时延迟重试，重试用尽后把本次全部维度标记为失败交给持久化阶段
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExtractTaskConsumer {
+
+    private final PdfExtractionTool pdfExtractionTool;
+    private final MessageProducer messageProducer;
+    private final PaperAnalysisTaskService paperAnalysisTaskService;
+    private final AnalysisStageRetrier analysisStageRetrier;
+    private final AnalysisDeduplicator analysisDeduplicator;
+
+    @RabbitListener(queues = RabbitMqConfig.PAPER_ANALYSIS_QUEUE, ackMode = "MANUAL",
+            containerFactory = RabbitMqConfig.EXTRACT_CONTAINER_FACTORY)
+    public void receiveExtractTask(String messageStr, Channel channel, Message message) throws IOException {
+        log.info("Received analysis task: {}", messageStr);
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+
+        PaperAnalysisMessage task;
+        try {
+            task = JSONUtil.toBean(messageStr, PaperAnalysisMessage.class);
+        } catch (Exception e) {
+            task = null;
+        }
+        if (task == null || task.getPaperId() == null) {
+            log.warn("Invalid message format: {}", messageStr);
+            channel.basicAck(deliveryTag, false);
+            return;
+        }
+        if (StrUtil.isBlank(task.getRunId())) {
+            task.setRunId(UUID.randomUUID().toString());
+        }
+
+        try {
+            // 检查点：提取已完成（重复投递或后续阶段重试）时直接复用文本引用
+            PaperAnalysisTask checkpoint = paperAnalysisTaskService.getOrCreate(task);
+            if (checkpoint.getStage() > AnalysisStageEnum.Extract.getValue()) {
+                if (checkpoint.getStage() == AnalysisStageEnum.Analyze.getValue()) {
+                    task.setTextSha256(checkpoint.getTextSha256());
+                    forward(task);
+                }
+                log.info("Extraction already done for run {}, skipped", task.getRunId());
+            } else {
+                String textSha256 = pdfExtractionTool.extractToCache(task.getPdfUrl());
+                String textHash = analysisDeduplicator.textHashOf(textSha256, task.getPdfUrl());
+                paperAnalysisTaskService.markExtracted(task.getRunId(), textSha256, textHash,
+                        analysisDeduplicator.promptVersion());
+                boolean fullRun = task.getDimensions() == null || task.getDimensions().isEmpty();
+                if (fullRun && analysisDeduplicator.reuseIfAnalyzed(task, textSha256, textHash)) {
+                    paperAnalysisTaskService.advance(task.getRunId(), AnalysisStageEnum.Done);
+                } else {
+                    task.setTextSha256(textSha256);
+                    forward(task);
+                    log.info("Extracted text for paperId: {}, handed over to analysis", task.getPaperId());
+                }
+            }
+        } catch (Exception e) {
+            log.error("PDF extraction failed for paperId: {}", task.getPaperId(), e);
+            try {
+                retryOrFail(task, e);
+            } catch (Exception ex) {
+                // 重试或失败结果没能投递出去：重新入队，不能让消息一直处于未确认状态
+                log.error("Failed to schedule retry of extraction for paperId: {}, requeued", task.getPaperId(), ex);
+                channel.basicNack(deliveryTag, false, true);
+                return;
+            }
+        }
+        channel.basicAck(deliveryTag, false);
+    }
+
+    /**
+     * 安排延迟重试；重试用尽时本次全部维度标记为失败
+     */
+    private void retryOrFail(PaperAnalysisMessage task, Exception error) {
+        if (analysisStageRetrier.retry(RabbitMqConfig.PAPER_ANALYSIS_QUEUE, task, task, error)) {
+            return;
+        }
+        task.setAttempt(null);
+        for (InsightDimensionEnum dimension : InsightDimensionEnum.resolve(task.getDimensions())) {
+            messageProducer.sendAnalysisStage(RabbitMqConfig.PAPER_PERSIST_QUEUE,
+                    PaperInsightResultMessage.builder()
+                            .task(task)
+                            .dimension(dimension.getValue())
+                            .error(String.valueOf(error))
+                            .build());
+        }
+    }
+
+    private void forward(PaperAnalysisMessage task) {
+        task.setAttempt(null);
+        messageProducer.sendAnalysisStage(RabbitMqConfig.PAPER_ANALYZE_QUEUE, task);
+    }
+}
@@ -0,0 +1,155 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.rabbitmq.client.Channel;
+import com.zhemu.paperinsight.agent.wrapper.PaperAnalysisAgent;
+import com.zhemu.paperinsight.common.UserContext;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.dto.mq.PaperInsightResultMessage;
+import com.zhemu.paperinsight.model.entity.PaperInsight;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import com.zhemu.paperinsight.model.enums.InsightStatusEnum;
+import com.zhemu.paperinsight.model.enums.NotificationTypeEnum;
+import com.zhemu.paperinsight.service.NotificationService;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import com.zhemu.paperinsight.service.PaperInsightService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 论文分析流水线 - 持久化/通知阶段
+ * 每条消息写入一个维度的结果与状态；本次分析的维度全部出结果后发送通知，
+ * 全量分析还会交给 RAG 入库阶段。多个消费者并发时由检查点的阶段推进保证只收尾一次；
+ * 写库失败时延迟重试
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InsightPersistConsumer {
+
+    private final PaperAnalysisAgent paperAnalysisAgent;
+    private final PaperInsightService paperInsightService;
+    private final NotificationService notificationService;
+    private final PaperAnalysisTaskService paperAnalysisTaskService;
+    private final MessageProducer messageProducer;
+    private final AnalysisStageRetrier analysisStageRetrier;
+
+    @RabbitListener(queues = RabbitMqConfig.PAPER_PERSIST_QUEUE, ackMode = "MANUAL",
+            containerFactory = RabbitMqConfig.PERSIST_CONTAINER_FACTORY)
+    public void receiveInsightResult(String messageStr, Channel channel, Message message) throws IOException {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        PaperInsightResultMessage result = null;
+        try {
+            result = JSONUtil.toBean(messageStr, PaperInsightResultMessage.class);
+            PaperAnalysisMessage task = result == null ? null : result.getTask();
+            InsightDimensionEnum dimension = result == null ? null
+                    : InsightDimensionEnum.getEnumByValue(result.getDimension());
+            if (task == null || task.getPaperId() == null || dimension == null) {
+                log.warn("Invalid message format: {}", messageStr);
+                channel.basicAck(deliveryTag, false);
+                return;
+            }
+
+            // 设置用户上下文
+            if (task.getUserId() != null) {
+                UserContext.setUserId(task.getUserId());
+            }
+
+            // 更新数据库（只更新该维度的列）
+            PaperInsight partial = paperAnalysisAgent.toInsight(task.getPaperId(),
+                    new PaperAnalysisAgent.DimensionResult(dimension, result.getContent(), result.getError()));
+            UpdateWrapper<PaperInsight> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.eq("paper_id", task.getPaperId());
+            paperInsightService.update(partial, updateWrapper);
+            log.info("Saved {} ({}) for paperId: {}", dimension.getValue(),
+                    result.getError() == null ? "success" : "failed", task.getPaperId());
+
+            finishIfComplete(task);
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            log.error("Failed to persist analysis result: {}", messageStr, e);
+            if (result != null && result.getTask() != null
+                    && analysisStageRetrier.retry(RabbitMqConfig.PAPER_PERSIST_QUEUE, result.getTask(), result, e)) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                channel.basicNack(deliveryTag, false, false);
+            }
+        } finally {
+            UserContext.clear();
+        }
+    }
+
+    /**
+     * 本次分析的维度都已出结果时收尾：通知用户，全量分析再投递 RAG 入库
+     */
+    private void finishIfComplete(PaperAnalysisMessage task) {
+        PaperInsight insight = paperInsightService.getOne(
+                new QueryWrapper<PaperInsight>().eq("paper_id", task.getPaperId()));
+        if (insight == null) {
+            return;
+        }
+        List<InsightDimensionEnum> failed = new ArrayList<>();
+        for (InsightDimensionEnum dimension : InsightDimensionEnum.resolve(task.getDimensions())) {
+            Integer status = statusOf(insight, dimension);
+            if (status == null || InsightStatusEnum.Pending.getValue() == status) {
+                return;
+            }
+            if (InsightStatusEnum.Failed.getValue() == status) {
+                failed.add(dimension);
+            }
+        }
+        // 检查点推进成功的消费者负责收尾，其余（并发完成或重复投递）跳过
+        boolean fullRun = task.getDimensions() == null || task.getDimensions().isEmpty();
+        AnalysisStageEnum next = fullRun ? AnalysisStageEnum.Index : AnalysisStageEnum.Done;
+        if (StrUtil.isNotBlank(task.getRunId()) && !paperAnalysisTaskService.advance(task.getRunId(), next)) {
+            return;
+        }
+
+        if (failed.isEmpty()) {
+            log.info("Analysis completed and saved for paperId: {}", task.getPaperId());
+            // 写入用户通知（幂等）
+            notificationService.notifyPaperAnalysis(task.getUserId(), task.getPaperId(),
+                    NotificationTypeEnum.PaperAnalysisSuccess,
+                    "论文已完成分析，请前往详情页查看。",
+                    insight.getScore());
+        } else {
+            log.error("Analysis of {} failed for paperId: {}", failed, task.getPaperId());
+            String failedDesc = failed.stream().map(InsightDimensionEnum::getDesc)
+                    .collect(Collectors.joining("、"));
+            notificationService.notifyPaperAnalysis(task.getUserId(), task.getPaperId(),
+                    NotificationTypeEnum.PaperAnalysisFailed,
+                    "论文部分维度分析失败（" + failedDesc + "），可在详情页单独重试。",
+                    null);
+        }
+
+        // RAG 入库（单维度重试时已入库，跳过）
+        if (fullRun) {
+            task.setAttempt(null);
+            messageProducer.sendAnalysisStage(RabbitMqConfig.PAPER_INDEX_QUEUE, task);
+        }
+    }
+
+    private Integer statusOf(PaperInsight insight, InsightDimensionEnum dimension) {
+        return switch (dimension) {
+            case Summary -> insight.getSummaryStatus();
+            case Innovation -> insight.getInnovationStatus();
+            case Methods -> insight.getMethodsStatus();
+            case Score -> insight.getScoreStatus();
+        };
+    }
+}
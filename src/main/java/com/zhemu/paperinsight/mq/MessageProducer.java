@@ -1,5 +1,6 @@
 package com.zhemu.paperinsight.mq;
 
+import cn.hutool.json.JSONUtil;
 import com.zhemu.paperinsight.config.RabbitMqConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,4 +33,13 @@ public class MessageProducer {
         rabbitTemplate.convertAndSend(RabbitMqConfig.LOGIN_EMAIL_CODE_QUEUE,message);
     }
 
+    /**
+     * 投递到论文分析流水线的某个阶段
+     * @param queue   阶段队列 (RabbitMqConfig.PAPER_*_QUEUE)
+     * @param message 消息体
+     */
+    public void sendAnalysisStage(String queue, Object message) {
+        rabbitTemplate.convertAndSend(queue, JSONUtil.toJsonStr(message));
+    }
+
 }
@@ -0,0 +1,66 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.json.JSONUtil;
+import com.rabbitmq.client.Channel;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import com.zhemu.paperinsight.service.RagChunkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 论文分析流水线 - RAG 入库阶段
+ * 入库失败不影响分析结果，按退避延迟重试本阶段，完成后检查点标记为完成
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagIndexConsumer {
+
+    private final RagChunkService ragChunkService;
+    private final PaperAnalysisTaskService paperAnalysisTaskService;
+    private final AnalysisStageRetrier analysisStageRetrier;
+
+    @RabbitListener(queues = RabbitMqConfig.PAPER_INDEX_QUEUE, ackMode = "MANUAL",
+            containerFactory = RabbitMqConfig.INDEX_CONTAINER_FACTORY)
+    public void receiveIndexTask(String messageStr, Channel channel, Message message) throws IOException {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        PaperAnalysisMessage task = null;
+        try {
+            task = JSONUtil.toBean(messageStr, PaperAnalysisMessage.class);
+            if (task == null || task.getPaperId() == null) {
+                log.warn("Invalid message format: {}", messageStr);
+            } else if (isDone(task.getRunId())) {
+                log.info("RAG indexing already done for run {}, skipped", task.getRunId());
+            } else {
+                log.info("Starting RAG indexing for paperId: {}", task.getPaperId());
+                ragChunkService.indexPaper(task.getPaperId(), task.getPdfUrl(), task.getTextSha256()).block();
+                if (task.getRunId() != null) {
+                    paperAnalysisTaskService.advance(task.getRunId(), AnalysisStageEnum.Done);
+                }
+            }
+        } catch (Exception e) {
+            log.error("RAG indexing failed: {}", messageStr, e);
+            // 只重试本阶段，分析结果已落库，不会再次调用大模型
+            if (task != null && task.getPaperId() != null) {
+                analysisStageRetrier.retry(RabbitMqConfig.PAPER_INDEX_QUEUE, task, task, e);
+            }
+        }
+        channel.basicAck(deliveryTag, false);
+    }
+
+    private boolean isDone(String runId) {
+        PaperAnalysisTask checkpoint = paperAnalysisTaskService.getByRunId(runId);
+        return checkpoint != null && checkpoint.getStage() >= AnalysisStageEnum.Done.getValue();
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.zhemu.paperinsight.model.dto.notification.NotificationQueryRequest;
 import com.zhemu.paperinsight.model.entity.Notification;
+import com.zhemu.paperinsight.model.enums.NotificationTypeEnum;
 import com.zhemu.paperinsight.model.vo.NotificationVO;
 
 import java.util.List;
@@ -19,4 +20,9 @@ public interface NotificationService extends IService<Notification> {
     boolean markReadBatch(List<Long> ids, long userId);
 
     boolean markAllRead(long userId);
+
+    /**
+     * 写入论文分析结果通知（按类型与论文去重，失败只记录日志）
+     */
+    void notifyPaperAnalysis(Long userId, Long paperId, NotificationTypeEnum type, String content, Integer score);
 }
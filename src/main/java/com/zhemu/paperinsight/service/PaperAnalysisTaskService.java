@@ -0,0 +1,57 @@
+package com.zhemu.paperinsight.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+
+/**
+ * 论文分析任务检查点 Service
+ * @author lushihao
+ */
+public interface PaperAnalysisTaskService extends IService<PaperAnalysisTask> {
+
+    /**
+     * 获取运行对应的检查点，不存在时创建（待执行阶段为提取）
+     *
+     * @param task 分析任务消息，需已生成 runId
+     * @return 检查点
+     */
+    PaperAnalysisTask getOrCreate(PaperAnalysisMessage task);
+
+    /**
+     * 按运行ID获取检查点
+     */
+    PaperAnalysisTask getByRunId(String runId);
+
+    /**
+     * 记录提取产出与内容指纹并前进到分析阶段
+     *
+     * @param runId         运行ID
+     * @param textSha256    提取文本引用 (PDF 内容 SHA-256)
+     * @param textHash      归一化文本 SHA-256，可为 null
+     * @param promptVersion 分析提示词版本
+     */
+    void markExtracted(String runId, String textSha256, String textHash, String promptVersion);
+
+    /**
+     * 查找内容指纹相同且已用同一提示词版本完整分析成功的其他论文
+     *
+     * @return 论文ID，没有时返回 null
+     */
+    Long findAnalyzedDuplicate(String textSha256, String textHash, String promptVersion, long paperId);
+
+    /**
+     * 前进到指定阶段（只前进不后退），并清空重试计数
+     *
+     * @param runId 运行ID
+     * @param stage 目标阶段
+     * @return 是否由本次调用完成推进；多个消费者并发推进同一阶段时只有一个返回 true
+     */
+    boolean advance(String runId, AnalysisStageEnum stage);
+
+    /**
+     * 记录阶段失败
+     */
+    void recordFailure(String runId, int attempt, Throwable error);
+}
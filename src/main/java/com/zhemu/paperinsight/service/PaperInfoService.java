@@ -55,4 +55,12 @@ public interface PaperInfoService extends IService<PaperInfo> {
      * @return 论文详情
      */
     PaperDetailVO getPaperDetail(long id, long userId);
+
+    /**
+     * 重新分析失败的维度
+     *
+     * @param paperId 论文ID
+     * @return 重新提交的维度
+     */
+    List<String> retryFailedAnalysis(long paperId);
 }
@@ -0,0 +1,36 @@
+package com.zhemu.paperinsight.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * RAG chunk 生命周期管理
+ *
+ * @author lushihao
+ */
+public interface RagChunkService {
+
+    /**
+     * 论文入库：先清掉旧 chunk，再切分、向量化并写入向量库
+     * 优先使用提取缓存中的文本，未命中时才重新下载提取
+     *
+     * @param paperId    论文ID
+     * @param pdfUrl     PDF文件地址
+     * @param textSha256 提取阶段给出的文本引用 (PDF 内容 SHA-256)，可为 null
+     * @return 写入的 chunk 数
+     */
+    Mono<Integer> indexPaper(long paperId, String pdfUrl, String textSha256);
+
+    /**
+     * 异步清理论文的全部 chunk（合批执行，不阻塞调用方）
+     *
+     * @param paperId 论文ID
+     */
+    void purgePaperChunks(long paperId);
+
+    /**
+     * 对账向量库与 paper_info，清理已不存在论文的孤儿 chunk
+     *
+     * @return 清理的论文数
+     */
+    long sweepOrphans();
+}
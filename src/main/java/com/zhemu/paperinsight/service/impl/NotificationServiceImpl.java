@@ -9,21 +9,28 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zhemu.paperinsight.exception.ErrorCode;
 import com.zhemu.paperinsight.exception.ThrowUtils;
 import com.zhemu.paperinsight.mapper.NotificationMapper;
+import com.zhemu.paperinsight.mapper.PaperInfoMapper;
 import com.zhemu.paperinsight.model.dto.notification.NotificationQueryRequest;
 import com.zhemu.paperinsight.model.entity.Notification;
+import com.zhemu.paperinsight.model.entity.PaperInfo;
+import com.zhemu.paperinsight.model.enums.NotificationTypeEnum;
 import com.zhemu.paperinsight.model.vo.NotificationVO;
 import com.zhemu.paperinsight.service.NotificationService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class NotificationServiceImpl extends ServiceImpl<NotificationMapper, Notification> implements NotificationService {
 
+    private final PaperInfoMapper paperInfoMapper;
+
     @Override
     public Page<NotificationVO> listByPage(NotificationQueryRequest request, long userId) {
         ThrowUtils.throwIf(request == null, ErrorCode.PARAMS_ERROR);
@@ -100,6 +107,54 @@ public class NotificationServiceImpl extends ServiceImpl<NotificationMapper, Not
         return true;
     }
 
+    @Override
+    public void notifyPaperAnalysis(Long userId, Long paperId, NotificationTypeEnum type, String content,
+            Integer score) {
+        if (userId == null || paperId == null) {
+            return;
+        }
+        try {
+            PaperInfo paperInfo = null;
+            try {
+                paperInfo = paperInfoMapper.selectById(paperId);
+            } catch (Exception ignored) {
+                // ignore
+            }
+            String paperTitle = paperInfo == null ? null : paperInfo.getTitle();
+
+            String dedupKey = String.format("%s:%s", type.getValue(), paperId);
+            cn.hutool.json.JSONObject payload = new cn.hutool.json.JSONObject();
+            payload.set("paperId", paperId);
+            if (paperTitle != null) {
+                payload.set("paperTitle", paperTitle);
+            }
+            if (score != null) {
+                payload.set("score", score);
+            }
+
+            String title;
+            if (paperTitle != null) {
+                title = String.format("%s：%s", type.getDesc(), paperTitle);
+            } else {
+                title = type.getDesc();
+            }
+
+            Notification notification = Notification.builder()
+                    .userId(userId)
+                    .type(type.getValue())
+                    .title(title)
+                    .content(content)
+                    .payloadJson(payload.toString())
+                    .dedupKey(dedupKey)
+                    .build();
+            this.save(notification);
+        } catch (DuplicateKeyException e) {
+            // dedupKey 冲突，视为成功
+        } catch (Exception e) {
+            log.warn("Failed to create notification for paperId: {}", paperId, e);
+        }
+    }
+
     /**
      * 创建通知（dedupKey 唯一时具备幂等能力）
      */
@@ -0,0 +1,97 @@
+package com.zhemu.paperinsight.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.zhemu.paperinsight.mapper.PaperAnalysisTaskMapper;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+/**
+ * 论文分析任务检查点 Service 实现
+ * 表不参与租户过滤（各阶段消费者没有用户上下文），按 run_id 定位
+ * @author lushihao
+ */
+@Service
+public class PaperAnalysisTaskServiceImpl extends ServiceImpl<PaperAnalysisTaskMapper, PaperAnalysisTask>
+        implements PaperAnalysisTaskService {
+
+    // 错误信息截断长度
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @Override
+    public PaperAnalysisTask getOrCreate(PaperAnalysisMessage task) {
+        PaperAnalysisTask existing = getByRunId(task.getRunId());
+        if (existing != null) {
+            return existing;
+        }
+        PaperAnalysisTask created = PaperAnalysisTask.builder()
+                .runId(task.getRunId())
+                .paperId(task.getPaperId())
+                .userId(task.getUserId())
+                .fullRun(task.getDimensions() == null || task.getDimensions().isEmpty() ? 1 : 0)
+                .stage(AnalysisStageEnum.Extract.getValue())
+                .attempt(0)
+                .build();
+        try {
+            this.save(created);
+            return created;
+        } catch (DuplicateKeyException e) {
+            // 重复投递并发创建
+            return getByRunId(task.getRunId());
+        }
+    }
+
+    @Override
+    public PaperAnalysisTask getByRunId(String runId) {
+        if (StrUtil.isBlank(runId)) {
+            return null;
+        }
+        return this.getOne(new QueryWrapper<PaperAnalysisTask>().eq("run_id", runId));
+    }
+
+    @Override
+    public void markExtracted(String runId, String textSha256, String textHash, String promptVersion) {
+        this.update(new UpdateWrapper<PaperAnalysisTask>()
+                .eq("run_id", runId)
+                .le("stage", AnalysisStageEnum.Extract.getValue())
+                .set("text_sha256", textSha256)
+                .set("text_hash", textHash)
+                .set("prompt_version", promptVersion)
+                .set("stage", AnalysisStageEnum.Analyze.getValue())
+                .set("attempt", 0)
+                .set("last_error", null));
+    }
+
+    @Override
+    public Long findAnalyzedDuplicate(String textSha256, String textHash, String promptVersion, long paperId) {
+        return this.baseMapper.selectAnalyzedDuplicate(textSha256, textHash, promptVersion, paperId,
+                AnalysisStageEnum.Done.getValue());
+    }
+
+    @Override
+    public boolean advance(String runId, AnalysisStageEnum stage) {
+        return this.update(new UpdateWrapper<PaperAnalysisTask>()
+                .eq("run_id", runId)
+                .lt("stage", stage.getValue())
+                .set("stage", stage.getValue())
+                .set("attempt", 0)
+                .set("last_error", null));
+    }
+
+    @Override
+    public void recordFailure(String runId, int attempt, Throwable error) {
+        if (StrUtil.isBlank(runId)) {
+            return;
+        }
+        this.update(new UpdateWrapper<PaperAnalysisTask>()
+                .eq("run_id", runId)
+                .set("attempt", attempt)
+                .set("last_error", StrUtil.maxLength(String.valueOf(error), MAX_ERROR_LENGTH)));
+    }
+}
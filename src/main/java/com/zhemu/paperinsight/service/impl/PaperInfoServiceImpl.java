@@ -2,6 +2,7 @@ package com.zhemu.paperinsight.service.impl;
 
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zhemu.paperinsight.exception.ErrorCode;
 import com.zhemu.paperinsight.exception.ThrowUtils;
@@ -9,6 +10,8 @@ import com.zhemu.paperinsight.model.dto.paper.PaperAddRequest;
 import com.zhemu.paperinsight.model.dto.paper.PaperQueryRequest;
 import com.zhemu.paperinsight.model.entity.PaperInfo;
 import com.zhemu.paperinsight.model.entity.SysUser;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import com.zhemu.paperinsight.model.enums.InsightStatusEnum;
 import com.zhemu.paperinsight.model.vo.PaperVO;
 import com.zhemu.paperinsight.service.PaperInfoService;
 import com.zhemu.paperinsight.mapper.PaperInfoMapper;
@@ -22,17 +25,19 @@ import org.springframework.beans.BeanUtils;
 import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
 import com.zhemu.paperinsight.model.entity.PaperInsight;
 import com.zhemu.paperinsight.service.PaperInsightService;
+import com.zhemu.paperinsight.service.RagChunkService;
 import com.zhemu.paperinsight.config.RabbitMqConfig;
 import com.zhemu.paperinsight.common.UserContext;
 import cn.hutool.json.JSONUtil;
 import com.zhemu.paperinsight.model.vo.PaperDetailVO;
 import com.zhemu.paperinsight.model.vo.PaperInsightVO;
-import com.zhemu.paperinsight.agent.common.ElasticsearchStore;
+import com.zhemu.paperinsight.agent.common.PaperVectorStore;
 import io.agentscope.core.rag.model.Document;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -51,7 +56,8 @@ public class PaperInfoServiceImpl extends ServiceImpl<PaperInfoMapper, PaperInfo
     private final RabbitTemplate rabbitTemplate;
     private final PaperInsightService paperInsightService;
     private final SysUserService userService;
-    private final ElasticsearchStore elasticsearchStore;
+    private final PaperVectorStore paperVectorStore;
+    private final RagChunkService ragChunkService;
 
     /**
      * 添加论文请求
@@ -153,7 +159,12 @@ public class PaperInfoServiceImpl extends ServiceImpl<PaperInfoMapper, PaperInfo
      */
     @Override
     public boolean physicalDelete(long id) {
-        return this.baseMapper.physicalDeletePaper(id) > 0;
+        boolean deleted = this.baseMapper.physicalDeletePaper(id) > 0;
+        if (deleted) {
+            // 异步清理该论文的 RAG chunk
+            ragChunkService.purgePaperChunks(id);
+        }
+        return deleted;
     }
 
     /**
@@ -177,11 +188,11 @@ public class PaperInfoServiceImpl extends ServiceImpl<PaperInfoMapper, PaperInfo
         // 强制只查公开的
         queryWrapper.eq("is_public", 1);
 
-        // 如果包含 contentKeyword，先去 ES 查出 paper IDs
+        // 如果包含 contentKeyword，先去向量库全文检索出 paper IDs
         if (StrUtil.isNotBlank(contentKeyword)) {
             try {
                 // 搜索最多 50 个相关文档
-                List<Document> esDocs = elasticsearchStore.searchByText(paperQueryRequest.getContentKeyword(), 50).block();
+                List<Document> esDocs = paperVectorStore.searchByText(paperQueryRequest.getContentKeyword(), 50).block();
                 if (esDocs != null && !esDocs.isEmpty()) {
                     List<Long> paperIds = esDocs.stream()
                             .map(doc -> {
@@ -196,7 +207,9 @@ public class PaperInfoServiceImpl extends ServiceImpl<PaperInfoMapper, PaperInfo
                             .collect(Collectors.toList());
 
                     if (!paperIds.isEmpty()) {
-                        queryWrapper.in("id", paperIds);
+                        // 内容重复的论文共享同一 doc_id 的 chunk，一并命中
+                        List<String> docIds = paperIds.stream().map(String::valueOf).toList();
+                        queryWrapper.and(w -> w.in("id", paperIds).or().in("chunk_doc_id", docIds));
                     } else {
                         // 搜不到结果，返回空
                         return ResultUtils.success(new Page<>(current, size));
@@ -254,4 +267,54 @@ public class PaperInfoServiceImpl extends ServiceImpl<PaperInfoMapper, PaperInfo
         }
         return vo;
     }
+
+    /**
+     * 重新分析失败的维度：失败维度置回待分析，只针对这些维度重新投递分析消息
+     *
+     * @param paperId 论文ID
+     * @return 重新提交的维度
+     */
+    @Override
+    public List<String> retryFailedAnalysis(long paperId) {
+        // 租户插件保证只能重试自己的论文
+        PaperInfo paperInfo = this.getById(paperId);
+        ThrowUtils.throwIf(paperInfo == null, ErrorCode.NOT_FOUND_ERROR);
+        ThrowUtils.throwIf(StrUtil.isBlank(paperInfo.getCosUrl()), ErrorCode.OPERATION_ERROR, "论文文件不存在");
+
+        PaperInsight insight = paperInsightService.getOne(new QueryWrapper<PaperInsight>().eq("paper_id", paperId));
+        ThrowUtils.throwIf(insight == null, ErrorCode.NOT_FOUND_ERROR);
+
+        Integer failed = InsightStatusEnum.Failed.getValue();
+        Integer pending = InsightStatusEnum.Pending.getValue();
+        PaperInsight reset = new PaperInsight();
+        List<String> dimensions = new ArrayList<>();
+        if (failed.equals(insight.getSummaryStatus())) {
+            reset.setSummaryStatus(pending);
+            dimensions.add(InsightDimensionEnum.Summary.getValue());
+        }
+        if (failed.equals(insight.getInnovationStatus())) {
+            reset.setInnovationStatus(pending);
+            dimensions.add(InsightDimensionEnum.Innovation.getValue());
+        }
+        if (failed.equals(insight.getMethodsStatus())) {
+            reset.setMethodsStatus(pending);
+            dimensions.add(InsightDimensionEnum.Methods.getValue());
+        }
+        if (failed.equals(insight.getScoreStatus())) {
+            reset.setScoreStatus(pending);
+            dimensions.add(InsightDimensionEnum.Score.getValue());
+        }
+        ThrowUtils.throwIf(dimensions.isEmpty(), ErrorCode.PARAMS_ERROR, "没有失败的分析维度");
+
+        paperInsightService.update(reset, new UpdateWrapper<PaperInsight>().eq("paper_id", paperId));
+
+        PaperAnalysisMessage msg = PaperAnalysisMessage.builder()
+                .paperId(paperId)
+                .userId(paperInfo.getUserId())
+                .pdfUrl(paperInfo.getCosUrl())
+                .dimensions(dimensions)
+                .build();
+        rabbitTemplate.convertAndSend(RabbitMqConfig.PAPER_ANALYSIS_QUEUE, JSONUtil.toJsonStr(msg));
+        return dimensions;
+    }
 }
@@ -0,0 +1,333 @@
+package com.zhemu.paperinsight.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.zhemu.paperinsight.agent.common.ExtractedTextCache;
+import com.zhemu.paperinsight.agent.common.PaperTextStore;
+import com.zhemu.paperinsight.agent.common.PaperVectorStore;
+import com.zhemu.paperinsight.agent.common.PdfDownloader;
+import com.zhemu.paperinsight.agent.common.PdfTextExtractor;
+import com.zhemu.paperinsight.agent.common.StreamingTextChunker;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.tools.PdfExtractionTool;
+import com.zhemu.paperinsight.constant.RedisConstants;
+import com.zhemu.paperinsight.mapper.PaperInfoMapper;
+import com.zhemu.paperinsight.service.RagChunkService;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.reader.SplitStrategy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RAG chunk 生命周期管理
+ * <p>
+ * 入库优先读取分析流水线提取阶段写入的提取缓存（按文本引用或 URL），不再重复下载与解析 PDF。
+ * 缓存未命中时默认走流式模式：PDF 下载到临时文件后逐页提取、跨页增量切分，按批向量化并写入，
+ * 内存只与批大小相关，前面的 chunk 在整篇处理完之前即可检索；agent.rag.ingest.streaming=false
+ * 时退回整篇提取后一次切分写入。
+ * <p>
+ * 论文物理删除后，其 chunk 通过进程内队列合批按 doc_id 删除，对话工具的按页文本缓存同时删除；
+ * 队列在进程重启时可能丢失，由定时对账任务兜底清理 paper_info 中已不存在的 doc_id。
+ * 内容重复的论文通过 paper_info.chunk_doc_id 共享首次入库论文的 chunk，仍被共享引用的 doc_id
+ * 删除与对账时都会保留，最后一个引用的论文删除后由对账任务清理。
+ *
+ * @author lushihao
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RagChunkServiceImpl implements RagChunkService {
+
+    // 对账时每次查询 paper_info 的 ID 数量
+    private static final int SWEEP_QUERY_BATCH = 500;
+    // 切分参数，与 TextReader 默认用法保持一致
+    private static final int CHUNK_SIZE = 512;
+    private static final int CHUNK_OVERLAP = 50;
+    // 对账锁只由持有者释放：锁超时后被其他实例重新获取时，不能被原持有者误删
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final PaperVectorStore paperVectorStore;
+    private final PaperInfoMapper paperInfoMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Knowledge knowledge;
+    private final PdfExtractionTool pdfExtractionTool;
+    private final ExtractedTextCache extractedTextCache;
+    private final PdfDownloader pdfDownloader;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final AgentPromptConfig promptConfig;
+    private final PaperTextStore paperTextStore;
+
+    @Value("${agent.rag.ingest.streaming:true}")
+    private boolean streamingIngest;
+
+    // 入库时每批向量化并写入的 chunk 数
+    @Value("${agent.rag.ingest.batch-size:32}")
+    private int ingestBatchSize;
+
+    // 合批删除：单批最大论文数 / 最长等待时间
+    @Value("${agent.rag.purge.batch-size:100}")
+    private int purgeBatchSize;
+
+    @Value("${agent.rag.purge.flush-interval-ms:2000}")
+    private long purgeFlushIntervalMs;
+
+    // 单次对账最多清理的论文数，防止误判时大面积删除
+    @Value("${agent.rag.sweep.max-purge-per-run:1000}")
+    private int sweepMaxPurge;
+
+    private final Sinks.Many<String> purgeSink = Sinks.many().unicast().onBackpressureBuffer();
+    private Disposable purgePipeline;
+
+    @PostConstruct
+    public void startPurgePipeline() {
+        purgePipeline = purgeSink.asFlux()
+                .bufferTimeout(purgeBatchSize, Duration.ofMillis(purgeFlushIntervalMs))
+                .concatMap(batch -> purge(new LinkedHashSet<>(batch)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stopPurgePipeline() {
+        // 完成信号会先冲刷缓冲区中剩余的批次
+        purgeSink.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    @Override
+    public Mono<Integer> indexPaper(long paperId, String pdfUrl, String textSha256) {
+        String docId = String.valueOf(paperId);
+        Flux<String> chunks = Mono.fromCallable(() -> cachedText(textSha256, pdfUrl))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(this::chunkText)
+                .switchIfEmpty(Flux.defer(() -> streamingIngest ? streamChunks(pdfUrl) : extractChunks(pdfUrl)));
+        // 重新分析时先清掉该论文旧的 chunk，避免重复入库
+        return paperVectorStore.deleteByDocIds(List.of(docId))
+                .thenMany(chunks)
+                .index()
+                .map(chunk -> toDocument(docId, chunk.getT1(), chunk.getT2()))
+                .buffer(ingestBatchSize)
+                .concatMap(batch -> knowledge.addDocuments(batch).thenReturn(batch.size()))
+                .doOnNext(size -> log.debug("Indexed {} chunks for paperId {}", size, paperId))
+                .reduce(0, Integer::sum)
+                .doOnNext(count -> log.info("RAG indexing completed for paperId: {}, docs count: {}", paperId,
+                        count));
+    }
+
+    /**
+     * 提取缓存中的文本，按文本引用优先、其次按 URL；都未命中返回 null
+     */
+    private String cachedText(String textSha256, String pdfUrl) {
+        String text = textSha256 == null ? null : extractedTextCache.getBySha(textSha256);
+        if (text == null) {
+            text = extractedTextCache.getByUrl(pdfUrl);
+        }
+        if (text != null) {
+            log.info("RAG indexing uses extracted text cache for URL: {}", pdfUrl);
+        }
+        return text;
+    }
+
+    /**
+     * 流式：下载到临时文件，逐页提取并增量切分，累计文本超过 textMaxLength 后不再读取后续页
+     */
+    private Flux<String> streamChunks(String pdfUrl) {
+        long maxLength = promptConfig.getTools().getTextMaxLength();
+        return Flux.using(() -> pdfDownloader.download(pdfUrl),
+                        pdf -> {
+                            StreamingTextChunker chunker =
+                                    new StreamingTextChunker(CHUNK_SIZE, SplitStrategy.PARAGRAPH, CHUNK_OVERLAP);
+                            AtomicLong length = new AtomicLong();
+                            return pdfTextExtractor.streamPages(pdf.file())
+                                    .takeUntil(page -> length.addAndGet(page.text().length()) >= maxLength)
+                                    .concatMap(page -> chunker.accept(page.text()))
+                                    .concatWith(Mono.defer(chunker::flush))
+                                    .concatMapIterable(list -> list);
+                        },
+                        this::deleteQuietly)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 整篇：提取全文后一次切分
+     */
+    private Flux<String> extractChunks(String pdfUrl) {
+        return Mono.fromCallable(() -> pdfExtractionTool.extractPdfText(pdfUrl))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(text -> {
+                    if (text == null || text.isEmpty() || text.startsWith("Error")) {
+                        return Mono.error(new IllegalStateException("Failed to extract text from PDF: " + pdfUrl));
+                    }
+                    return Mono.just(text);
+                })
+                .flatMapMany(this::chunkText);
+    }
+
+    private Flux<String> chunkText(String text) {
+        StreamingTextChunker chunker = new StreamingTextChunker(CHUNK_SIZE, SplitStrategy.PARAGRAPH, CHUNK_OVERLAP);
+        return chunker.accept(text)
+                .concatWith(Mono.defer(chunker::flush))
+                .concatMapIterable(list -> list);
+    }
+
+    private Document toDocument(String docId, long index, String chunk) {
+        // docId 设为 paperId，确保后续可以反查；chunkId 为论文内的顺序号
+        DocumentMetadata metadata = new DocumentMetadata(TextBlock.builder().text(chunk).build(), docId,
+                String.valueOf(index));
+        return new Document(metadata);
+    }
+
+    private void deleteQuietly(PdfDownloader.DownloadedPdf pdf) {
+        try {
+            pdf.close();
+        } catch (Exception e) {
+            log.warn("Failed to delete temp PDF {}", pdf.file(), e);
+        }
+    }
+
+    @Override
+    public void purgePaperChunks(long paperId) {
+        if (purgePipeline == null || purgePipeline.isDisposed()) {
+            log.warn("RAG purge pipeline is not running, paperId {} left to the orphan sweeper", paperId);
+            return;
+        }
+        // 多线程并发提交时 unicast sink 会短暂返回 FAIL_NON_SERIALIZED，自旋重试即可
+        purgeSink.emitNext(String.valueOf(paperId), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    @Scheduled(initialDelayString = "${agent.rag.sweep.initial-delay-ms:600000}",
+            fixedDelayString = "${agent.rag.sweep.interval-ms:21600000}")
+    public void scheduledSweep() {
+        try {
+            sweepOrphans();
+        } catch (Exception e) {
+            log.error("RAG orphan sweep failed", e);
+        }
+    }
+
+    @Override
+    public long sweepOrphans() {
+        String lockToken = IdUtil.simpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RedisConstants.RAG_SWEEP_LOCK_KEY, lockToken, Duration.ofMinutes(30));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("RAG orphan sweep is running on another instance, skipped");
+            return 0;
+        }
+        try {
+            List<String> orphans = paperVectorStore.listDocIds()
+                    .buffer(SWEEP_QUERY_BATCH)
+                    .concatMapIterable(this::findOrphans)
+                    .take(sweepMaxPurge)
+                    .collectList()
+                    .block();
+            if (orphans == null || orphans.isEmpty()) {
+                log.info("RAG orphan sweep found no orphan chunks");
+                return 0;
+            }
+            if (orphans.size() >= sweepMaxPurge) {
+                log.warn("RAG orphan sweep hit the limit of {} papers, the rest is left to the next run",
+                        sweepMaxPurge);
+            }
+            Long deleted = Flux.fromIterable(orphans)
+                    .buffer(purgeBatchSize)
+                    .concatMap(batch -> paperVectorStore.deleteByDocIds(batch))
+                    .reduce(0L, Long::sum)
+                    .block();
+            evictPageText(orphans);
+            log.info("RAG orphan sweep purged {} chunks of {} missing papers", deleted, orphans.size());
+            return orphans.size();
+        } finally {
+            Long released = stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT,
+                    List.of(RedisConstants.RAG_SWEEP_LOCK_KEY), lockToken);
+            if (!Long.valueOf(1).equals(released)) {
+                log.warn("RAG orphan sweep lock expired before the sweep finished");
+            }
+        }
+    }
+
+    private Mono<Long> purge(Set<String> docIds) {
+        return Mono.fromCallable(() -> {
+                    // 按页文本按论文ID存放、不共享，被共享的 chunk 保留时也要删除
+                    evictPageText(docIds);
+                    return withoutSharedDocIds(docIds);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(paperVectorStore::deleteByDocIds)
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
+                .doOnNext(deleted -> log.info("Purged {} RAG chunks of papers {}", deleted, docIds))
+                .onErrorResume(e -> {
+                    log.error("Failed to purge RAG chunks of papers {}, left to the orphan sweeper", docIds, e);
+                    return Mono.empty();
+                });
+    }
+
+    private void evictPageText(Collection<String> paperIds) {
+        for (String paperId : paperIds) {
+            try {
+                paperTextStore.evict(Long.parseLong(paperId));
+            } catch (NumberFormatException e) {
+                // 非论文来源的 doc_id
+            }
+        }
+    }
+
+    /**
+     * 找出一批 doc_id 中在 paper_info 里已不存在的（回收站中的论文仍可还原，不算孤儿）
+     */
+    private List<String> findOrphans(List<String> docIds) {
+        List<Long> paperIds = new ArrayList<>(docIds.size());
+        for (String docId : docIds) {
+            try {
+                paperIds.add(Long.parseLong(docId));
+            } catch (NumberFormatException e) {
+                // 非论文来源的 chunk，不参与对账
+            }
+        }
+        if (paperIds.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> existing = new HashSet<>(paperInfoMapper.selectExistingIds(paperIds));
+        List<String> missing = paperIds.stream()
+                .filter(id -> !existing.contains(id))
+                .map(String::valueOf)
+                .toList();
+        return missing.isEmpty() ? missing : List.copyOf(withoutSharedDocIds(missing));
+    }
+
+    /**
+     * 去掉仍被其他论文共享引用的 doc_id
+     */
+    private Set<String> withoutSharedDocIds(Collection<String> docIds) {
+        Set<String> result = new LinkedHashSet<>(docIds);
+        if (!result.isEmpty()) {
+            result.removeAll(paperInfoMapper.selectReferencedChunkDocIds(result));
+        }
+        return result;
+    }
+}
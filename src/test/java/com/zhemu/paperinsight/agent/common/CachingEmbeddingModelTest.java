@@ -0,0 +1,109 @@
+package com.zhemu.paperinsight.agent.common;
+
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.TextBlock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class CachingEmbeddingModelTest {
+
+    private static final String MODEL = "text-embedding-v4";
+    private static final int DIMENSIONS = 3;
+    private static final Duration TTL = Duration.ofDays(7);
+
+    private EmbeddingModel delegate;
+    private StringRedisTemplate stringRedisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private SimpleMeterRegistry meterRegistry;
+    private CachingEmbeddingModel model;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        delegate = Mockito.mock(EmbeddingModel.class);
+        Mockito.when(delegate.getModelName()).thenReturn(MODEL);
+        Mockito.when(delegate.getDimensions()).thenReturn(DIMENSIONS);
+        Mockito.when(delegate.embed(any())).thenReturn(Mono.just(new double[]{0.5, -1.25, 3.0}));
+        stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+        valueOperations = Mockito.mock(ValueOperations.class);
+        Mockito.when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        meterRegistry = new SimpleMeterRegistry();
+        model = new CachingEmbeddingModel(delegate, stringRedisTemplate, meterRegistry, 100, TTL);
+    }
+
+    @Test
+    void encode_writesFloat32LittleEndianBase64() {
+        // 1.0f = 0x3F800000，小端为 00 00 80 3F
+        assertThat(CachingEmbeddingModel.encode(new float[]{1.0f})).isEqualTo("AACAPw==");
+
+        float[] vector = {0f, -0f, 1.5f, -3.75e-8f, Float.MAX_VALUE, Float.MIN_VALUE, Float.NaN};
+        assertThat(CachingEmbeddingModel.decode(CachingEmbeddingModel.encode(vector))).containsExactly(vector);
+        assertThat(CachingEmbeddingModel.decode(CachingEmbeddingModel.encode(new float[0]))).isEmpty();
+    }
+
+    @Test
+    void cacheKey_dependsOnModelDimensionsAndNormalizedText() {
+        String key = CachingEmbeddingModel.cacheKey(MODEL, 1024, "graph neural network");
+
+        assertThat(key).matches("embedding:cache:text-embedding-v4:1024:[0-9a-f]{64}");
+        assertThat(CachingEmbeddingModel.cacheKey(MODEL, 1024, "  graph\nneural \t network ")).isEqualTo(key);
+        assertThat(CachingEmbeddingModel.cacheKey("text-embedding-v3", 1024, "graph neural network"))
+                .isNotEqualTo(key);
+        assertThat(CachingEmbeddingModel.cacheKey(MODEL, 768, "graph neural network")).isNotEqualTo(key);
+        assertThat(CachingEmbeddingModel.cacheKey(MODEL, 1024, "graph neural networks")).isNotEqualTo(key);
+    }
+
+    @Test
+    void embed_missCallsDelegateThenServesFromLocalCache() {
+        TextBlock block = TextBlock.builder().text("attention is all you need").build();
+        String key = CachingEmbeddingModel.cacheKey(MODEL, DIMENSIONS, "attention is all you need");
+
+        assertThat(model.embed(block).block()).containsExactly(0.5, -1.25, 3.0);
+        assertThat(model.embed(block).block()).containsExactly(0.5, -1.25, 3.0);
+
+        Mockito.verify(delegate, Mockito.times(1)).embed(any());
+        Mockito.verify(valueOperations, Mockito.timeout(1000))
+                .set(key, CachingEmbeddingModel.encode(new float[]{0.5f, -1.25f, 3.0f}), TTL);
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(count("l1_hit")).isEqualTo(1);
+    }
+
+    @Test
+    void embed_redisHitSkipsDelegate() {
+        Mockito.when(valueOperations.get(anyString()))
+                .thenReturn(CachingEmbeddingModel.encode(new float[]{0.25f, 0.5f, 0.75f}));
+
+        double[] embedding = model.embed(TextBlock.builder().text("cached text").build()).block();
+
+        assertThat(embedding).containsExactly(0.25, 0.5, 0.75);
+        Mockito.verify(delegate, Mockito.never()).embed(any());
+        assertThat(count("l2_hit")).isEqualTo(1);
+    }
+
+    @Test
+    void embed_ignoresRedisVectorOfOtherDimensions() {
+        Mockito.when(valueOperations.get(anyString()))
+                .thenReturn(CachingEmbeddingModel.encode(new float[]{0.25f, 0.5f}));
+
+        double[] embedding = model.embed(TextBlock.builder().text("stale text").build()).block();
+
+        assertThat(embedding).containsExactly(0.5, -1.25, 3.0);
+        Mockito.verify(delegate, Mockito.times(1)).embed(any());
+        assertThat(count("miss")).isEqualTo(1);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("paper_insight.embedding.cache").tag("result", result).counter().count();
+    }
+}
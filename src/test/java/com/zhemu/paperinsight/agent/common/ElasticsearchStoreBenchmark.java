@@ -0,0 +1,252 @@
+package com.zhemu.paperinsight.agent.common;
+
+import cn.hutool.json.JSONUtil;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.store.dto.SearchDocumentDto;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 同步客户端 (boundedElastic) 与异步客户端检索的对比压测
+ * 需要真实 ES，不随常规测试运行：
+ * mvn test -Dtest=ElasticsearchStoreBenchmark -Des.benchmark.url=http://localhost:9200
+ * 数据写入独立的 paper_insight_bench 索引，结束后删除
+ *
+ * @author lushihao
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "es.benchmark.url", matches = ".+")
+class ElasticsearchStoreBenchmark {
+
+    private static final String INDEX_NAME = "paper_insight_bench";
+    private static final int DIMENSIONS = 1024;
+    private static final int DOCUMENTS = 2000;
+    private static final int CONCURRENCY = 200;
+    private static final int ROUNDS = 6;
+
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    private final Random random = new Random(42);
+
+    @AfterAll
+    static void deleteIndex() throws Exception {
+        String url = System.getProperty("es.benchmark.url");
+        // 读别名指向带版本号的物理索引，按别名解析后逐个删除
+        HttpResponse<String> aliases = send(HttpRequest.newBuilder(URI.create(url + "/_alias/" + INDEX_NAME)).GET());
+        if (aliases.statusCode() != 200) {
+            return;
+        }
+        for (String physicalIndex : JSONUtil.parseObj(aliases.body()).keySet()) {
+            send(HttpRequest.newBuilder(URI.create(url + "/" + physicalIndex)).DELETE());
+            log.info("Deleted benchmark index {}", physicalIndex);
+        }
+    }
+
+    @Test
+    void compareBlockingAndAsyncRetrieval() throws Exception {
+        String url = System.getProperty("es.benchmark.url");
+        try (ElasticsearchStore seeder = newStore(url, false)) {
+            seeder.add(randomDocuments()).block();
+        }
+        // 写入后刷新，保证压测检索到全部文档
+        send(HttpRequest.newBuilder(URI.create(url + "/" + INDEX_NAME + "/_refresh"))
+                .POST(HttpRequest.BodyPublishers.noBody()));
+
+        Stats blocking = new Stats("blocking");
+        Stats async = new Stats("async");
+        try (ElasticsearchStore blockingStore = newStore(url, false);
+                ElasticsearchStore asyncStore = newStore(url, true)) {
+            // 两种客户端都先预热一轮，避免连接建立计入结果
+            retrieveConcurrently(blockingStore);
+            retrieveConcurrently(asyncStore);
+
+            // 每轮交替先后顺序，抵消 JIT 与缓存预热带来的偏差
+            for (int round = 0; round < ROUNDS; round++) {
+                if (round % 2 == 0) {
+                    measure(blockingStore, blocking);
+                    measure(asyncStore, async);
+                } else {
+                    measure(asyncStore, async);
+                    measure(blockingStore, blocking);
+                }
+            }
+        }
+        log.info("blocking: {}", blocking.result());
+        log.info("async:    {}", async.result());
+
+        assertThat(async.failures).isZero();
+        assertThat(blocking.failures).isZero();
+    }
+
+    private void measure(ElasticsearchStore store, Stats stats) throws InterruptedException {
+        // 上一轮留下的 boundedElastic 空闲线程要 60 秒后才回收，只统计本轮运行期间正在工作的线程
+        ThreadSampler sampler = new ThreadSampler();
+        sampler.start();
+        List<Long> latencies;
+        try {
+            latencies = retrieveConcurrently(store);
+        } finally {
+            sampler.stop();
+        }
+        stats.failures += CONCURRENCY - latencies.size();
+        stats.latencies.addAll(latencies);
+        stats.busyThreads = Math.max(stats.busyThreads, sampler.maxBusy);
+        stats.busyElasticThreads = Math.max(stats.busyElasticThreads, sampler.maxBusyElastic);
+    }
+
+    private List<Long> retrieveConcurrently(ElasticsearchStore store) {
+        return Flux.range(0, CONCURRENCY)
+                .flatMap(i -> {
+                    SearchDocumentDto dto = SearchDocumentDto.builder()
+                            .queryEmbedding(randomVector())
+                            .limit(10)
+                            .build();
+                    return Mono.defer(() -> {
+                        long start = System.nanoTime();
+                        return store.search(dto).map(docs -> (System.nanoTime() - start) / 1_000_000);
+                    }).onErrorResume(e -> Mono.empty());
+                }, CONCURRENCY)
+                .collectList()
+                .block();
+    }
+
+    private ElasticsearchStore newStore(String url, boolean asyncClient) throws Exception {
+        return ElasticsearchStore.builder()
+                .url(url)
+                .indexName(INDEX_NAME)
+                .dimensions(DIMENSIONS)
+                .asyncClient(asyncClient)
+                .build();
+    }
+
+    private List<Document> randomDocuments() {
+        List<Document> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            DocumentMetadata metadata = new DocumentMetadata(
+                    TextBlock.builder().text("benchmark chunk " + i).build(),
+                    String.valueOf(i % 50), UUID.randomUUID().toString());
+            Document document = new Document(metadata);
+            document.setEmbedding(randomVector());
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    private double[] randomVector() {
+        double[] vector = new double[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * 运行期间定时采样线程状态，记录同时处于 RUNNABLE/BLOCKED 的线程数峰值；
+     * 线程池中空闲等待任务的线程处于 WAITING/TIMED_WAITING，不计入
+     */
+    private static final class ThreadSampler implements Runnable {
+
+        private static final long INTERVAL_MILLIS = 5;
+
+        private final Thread thread = new Thread(this, "benchmark-thread-sampler");
+        private volatile boolean running = true;
+        private int maxBusy;
+        private int maxBusyElastic;
+
+        private void start() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            while (running) {
+                int busy = 0;
+                int busyElastic = 0;
+                for (ThreadInfo info : threads.dumpAllThreads(false, false)) {
+                    if (info.getThreadId() == thread.getId()) {
+                        continue;
+                    }
+                    Thread.State state = info.getThreadState();
+                    if (state == Thread.State.RUNNABLE || state == Thread.State.BLOCKED) {
+                        busy++;
+                        if (info.getThreadName().startsWith("boundedElastic")) {
+                            busyElastic++;
+                        }
+                    }
+                }
+                maxBusy = Math.max(maxBusy, busy);
+                maxBusyElastic = Math.max(maxBusyElastic, busyElastic);
+                try {
+                    Thread.sleep(INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个客户端模式在各轮中的累计结果
+     */
+    private static final class Stats {
+
+        private final String mode;
+        private final List<Long> latencies = new ArrayList<>();
+        private int failures;
+        private int busyThreads;
+        private int busyElasticThreads;
+
+        private Stats(String mode) {
+            this.mode = mode;
+        }
+
+        private Result result() {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Result(mode, percentile(sorted, 0.50), percentile(sorted, 0.99), busyThreads,
+                    busyElasticThreads, failures);
+        }
+    }
+
+    private record Result(String mode, long p50Millis, long p99Millis, int peakBusyThreads,
+            int peakBusyElasticThreads, int failures) {
+    }
+}
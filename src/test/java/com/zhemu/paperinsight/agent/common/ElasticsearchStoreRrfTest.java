@@ -0,0 +1,45 @@
+package com.zhemu.paperinsight.agent.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ElasticsearchStoreRrfTest {
+
+    @Test
+    void fusion_sumsReciprocalRanksAcrossRankings() {
+        LinkedHashMap<String, Double> fused = ElasticsearchStore.reciprocalRankFusion(
+                List.of(List.of("a", "b", "c"), List.of("c", "a")), 10);
+
+        assertThat(fused.get("a")).isCloseTo(1.0 / 61 + 1.0 / 62, within(1e-12));
+        assertThat(fused.get("b")).isCloseTo(1.0 / 62, within(1e-12));
+        assertThat(fused.get("c")).isCloseTo(1.0 / 63 + 1.0 / 61, within(1e-12));
+        assertThat(fused.keySet()).containsExactly("a", "c", "b");
+    }
+
+    @Test
+    void fusion_documentInBothRankingsBeatsTopOfOne() {
+        LinkedHashMap<String, Double> fused = ElasticsearchStore.reciprocalRankFusion(
+                List.of(List.of("lexical-only", "both"), List.of("vector-only", "both")), 10);
+
+        assertThat(fused.keySet()).first().isEqualTo("both");
+    }
+
+    @Test
+    void fusion_appliesLimitAndKeepsFirstSeenOrderOnTies() {
+        LinkedHashMap<String, Double> fused = ElasticsearchStore.reciprocalRankFusion(
+                List.of(List.of("x", "y"), List.of("y", "x"), List.of("z")), 2);
+
+        assertThat(fused.keySet()).containsExactly("x", "y");
+    }
+
+    @Test
+    void fusion_ofNoRankingsIsEmpty() {
+        assertThat(ElasticsearchStore.reciprocalRankFusion(List.of(), 5)).isEmpty();
+        assertThat(ElasticsearchStore.reciprocalRankFusion(List.of(List.of()), 5)).isEmpty();
+    }
+}
@@ -0,0 +1,128 @@
+package com.zhemu.paperinsight.agent.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 16;
+
+    private final List<float[]> stored = new ArrayList<>();
+    private final HnswIndex.Vectors vectors = new HnswIndex.Vectors() {
+        @Override
+        public float similarity(float[] query, int ord) {
+            return dot(query, stored.get(ord));
+        }
+
+        @Override
+        public float[] get(int ord) {
+            return stored.get(ord);
+        }
+    };
+
+    @Test
+    void search_onEmptyIndex_returnsNothing() {
+        HnswIndex index = new HnswIndex(vectors, 8, 64);
+
+        assertThat(index.search(randomVector(new Random(1)), 5, 32, null)).isEmpty();
+    }
+
+    @Test
+    void insert_rejectsOutOfOrderOrdinal() {
+        HnswIndex index = new HnswIndex(vectors, 8, 64);
+        stored.add(randomVector(new Random(1)));
+
+        assertThatThrownBy(() -> index.insert(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void search_findsExactMatchFirstAndSortsByScore() {
+        HnswIndex index = build(500, new Random(7));
+
+        float[] query = stored.get(123);
+        List<HnswIndex.Neighbor> result = index.search(query, 10, 64, null);
+
+        assertThat(result).hasSize(10);
+        assertThat(result.get(0).ord()).isEqualTo(123);
+        assertThat(result).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Neighbor::score).reversed());
+    }
+
+    @Test
+    void search_recallAgainstBruteForce() {
+        Random random = new Random(11);
+        HnswIndex index = build(2000, random);
+
+        int k = 10;
+        int hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            Set<Integer> expected = new HashSet<>(bruteForce(query, k));
+            for (HnswIndex.Neighbor neighbor : index.search(query, k, 100, null)) {
+                if (expected.contains(neighbor.ord())) {
+                    hits++;
+                }
+            }
+        }
+        assertThat((double) hits / (queries * k)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void search_appliesFilterButKeepsTraversing() {
+        HnswIndex index = build(500, new Random(3));
+
+        List<HnswIndex.Neighbor> result = index.search(stored.get(10), 5, 64, ord -> ord % 2 == 1);
+
+        assertThat(result).hasSize(5);
+        assertThat(result).allMatch(n -> n.ord() % 2 == 1);
+    }
+
+    private HnswIndex build(int count, Random random) {
+        HnswIndex index = new HnswIndex(vectors, 8, 64);
+        for (int i = 0; i < count; i++) {
+            stored.add(randomVector(random));
+            index.insert(i);
+        }
+        assertThat(index.size()).isEqualTo(count);
+        return index;
+    }
+
+    private List<Integer> bruteForce(float[] query, int k) {
+        return IntStream.range(0, stored.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer ord) -> dot(query, stored.get(ord))).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
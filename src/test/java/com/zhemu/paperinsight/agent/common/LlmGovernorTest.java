@@ -0,0 +1,172 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import com.zhemu.paperinsight.agent.constant.LlmPriority;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmGovernorTest {
+
+    private static final String PROVIDER = "openai";
+    private static final Duration WAIT = Duration.ofSeconds(2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void acquire_grantsInteractiveBeforeEarlierBatch() throws Exception {
+        LlmGovernor governor = governor(1, 1_000_000, 30);
+        LlmGovernor.Permit running = governor.acquire(PROVIDER, LlmPriority.BATCH, 10).block(WAIT);
+
+        CompletableFuture<LlmGovernor.Permit> batch = governor.acquire(PROVIDER, LlmPriority.BATCH, 10).toFuture();
+        CompletableFuture<LlmGovernor.Permit> interactive =
+                governor.acquire(PROVIDER, LlmPriority.INTERACTIVE, 10).toFuture();
+        assertThat(batch).isNotDone();
+        assertThat(interactive).isNotDone();
+
+        running.release();
+        LlmGovernor.Permit granted = interactive.get(2, TimeUnit.SECONDS);
+        assertThat(batch).isNotDone();
+
+        granted.release();
+        batch.get(2, TimeUnit.SECONDS).release();
+    }
+
+    @Test
+    void acquire_failsWithTimeoutAfterQueueDeadline() {
+        LlmGovernor governor = governor(1, 1_000_000, 1);
+        LlmGovernor.Permit running = governor.acquire(PROVIDER, LlmPriority.BATCH, 10).block(WAIT);
+
+        CompletableFuture<LlmGovernor.Permit> waiting =
+                governor.acquire(PROVIDER, LlmPriority.INTERACTIVE, 10).toFuture();
+
+        assertThatThrownBy(() -> waiting.get(3, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(meterRegistry.get("paper_insight.llm.governor.timeouts").tag("provider", PROVIDER)
+                .counter().count()).isEqualTo(1);
+        running.release();
+    }
+
+    @Test
+    void acquire_cancelledWaiterLeavesQueue() throws Exception {
+        LlmGovernor governor = governor(1, 1_000_000, 30);
+        LlmGovernor.Permit running = governor.acquire(PROVIDER, LlmPriority.BATCH, 10).block(WAIT);
+
+        CompletableFuture<LlmGovernor.Permit> cancelled =
+                governor.acquire(PROVIDER, LlmPriority.INTERACTIVE, 10).toFuture();
+        CompletableFuture<LlmGovernor.Permit> next = governor.acquire(PROVIDER, LlmPriority.BATCH, 10).toFuture();
+        cancelled.cancel(true);
+        assertThat(queueSize()).isEqualTo(1);
+
+        running.release();
+        next.get(2, TimeUnit.SECONDS).release();
+        assertThat(queueSize()).isZero();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void acquire_permitGrantedAfterCancelIsReleased() {
+        LlmGovernor governor = governor(1, 1_000_000, 30);
+        // 不发出 request：许可放行后暂存在 sink 中，取消时被丢弃
+        BaseSubscriber<LlmGovernor.Permit> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+        };
+        governor.acquire(PROVIDER, LlmPriority.BATCH, 10).subscribe(subscriber);
+        assertThat(inFlight()).isEqualTo(1);
+
+        subscriber.dispose();
+
+        assertThat(inFlight()).isZero();
+        governor.acquire(PROVIDER, LlmPriority.BATCH, 10).block(WAIT).release();
+    }
+
+    @Test
+    void release_chargesUsageAboveReservation() {
+        // 每分钟 600 token，即每秒补充 10 个
+        LlmGovernor governor = governor(8, 600, 30);
+        LlmGovernor.Permit permit = governor.acquire(PROVIDER, LlmPriority.BATCH, 300).block(WAIT);
+        permit.recordUsage(600);
+        permit.release();
+
+        CompletableFuture<LlmGovernor.Permit> next = governor.acquire(PROVIDER, LlmPriority.BATCH, 300).toFuture();
+
+        assertThatThrownBy(() -> next.get(500, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+        next.cancel(true);
+    }
+
+    @Test
+    void release_refundsUnusedReservation() {
+        LlmGovernor governor = governor(8, 600, 30);
+        LlmGovernor.Permit permit = governor.acquire(PROVIDER, LlmPriority.BATCH, 600).block(WAIT);
+        permit.recordUsage(100);
+        permit.release();
+
+        LlmGovernor.Permit next = governor.acquire(PROVIDER, LlmPriority.BATCH, 400).block(Duration.ofMillis(500));
+
+        assertThat(next).isNotNull();
+        next.release();
+    }
+
+    @Test
+    void governedStream_releasesPermitWhenDelegateThrows() {
+        LlmGovernor governor = governor(1, 1_000_000, 1);
+        Model failing = new Model() {
+            @Override
+            public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+                throw new IllegalStateException("model misconfigured");
+            }
+
+            @Override
+            public String getModelName() {
+                return "failing";
+            }
+        };
+        GovernedModel model = new GovernedModel(failing, governor, PROVIDER, LlmPriority.BATCH);
+
+        assertThatThrownBy(() -> model.stream(List.of(), List.of(), null).blockLast(WAIT))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("model misconfigured");
+
+        assertThat(inFlight()).isZero();
+        governor.acquire(PROVIDER, LlmPriority.BATCH, 10).block(WAIT).release();
+    }
+
+    private LlmGovernor governor(int maxConcurrency, int tokensPerMinute, int queueTimeoutSeconds) {
+        AgentPromptConfig config = new AgentPromptConfig();
+        AgentPromptConfig.GovernorProperties governor = config.getGovernor();
+        governor.setMaxConcurrency(maxConcurrency);
+        governor.setTokensPerMinute(tokensPerMinute);
+        governor.setInteractiveQueueTimeoutSeconds(queueTimeoutSeconds);
+        governor.setBatchQueueTimeoutSeconds(queueTimeoutSeconds);
+        return new LlmGovernor(config, meterRegistry);
+    }
+
+    private double queueSize() {
+        return meterRegistry.get("paper_insight.llm.governor.queue.size").gauge().value();
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("paper_insight.llm.governor.in_flight").gauge().value();
+    }
+}
@@ -0,0 +1,106 @@
+package com.zhemu.paperinsight.agent.common;
+
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.store.dto.SearchDocumentDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MmapHnswStoreTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopen_restoresChunksAndDeletes() throws Exception {
+        try (MmapHnswStore store = open()) {
+            store.add(List.of(chunk("p1", 0), chunk("p1", 1), chunk("p1", 2), chunk("p2", 3))).block();
+            assertThat(store.delete(chunk("p1", 1).getId()).block()).isTrue();
+        }
+
+        try (MmapHnswStore store = open()) {
+            List<Document> hits = search(store, 0, null);
+            assertThat(hits.get(0).getMetadata().getDocId()).isEqualTo("p1");
+            assertThat(hits.get(0).getMetadata().getChunkId()).isEqualTo("0");
+            assertThat(hits.get(0).getMetadata().getContentText()).isEqualTo("p1 chunk 0");
+            assertThat(chunkIds(search(store, 0, "p1"))).containsExactlyInAnyOrder("0", "2");
+            assertThat(store.listDocIds().collectList().block()).containsExactlyInAnyOrder("p1", "p2");
+        }
+    }
+
+    @Test
+    void reopen_truncatesTornTailSoLaterAppendsReplay() throws Exception {
+        try (MmapHnswStore store = open()) {
+            store.add(List.of(chunk("p1", 0), chunk("p1", 1))).block();
+        }
+        // 进程在写日志时崩溃：最后一行不完整且没有换行
+        Files.writeString(directory.resolve("chunks.log"), "{\"op\":\"add\",\"ord\":2,\"id\":\"torn",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (MmapHnswStore store = open()) {
+            assertThat(chunkIds(search(store, 0, "p1"))).containsExactlyInAnyOrder("0", "1");
+            store.add(List.of(chunk("p1", 2))).block();
+        }
+
+        try (MmapHnswStore store = open()) {
+            assertThat(chunkIds(search(store, 2, "p1"))).containsExactlyInAnyOrder("0", "1", "2");
+        }
+    }
+
+    @Test
+    void reopen_skipsEntriesRepeatedByARetriedBatch() throws Exception {
+        try (MmapHnswStore store = open()) {
+            store.add(List.of(chunk("p1", 0), chunk("p1", 1))).block();
+        }
+        // 旧版本写入失败后整批重试，同一序号在日志中出现两次
+        Path logFile = directory.resolve("chunks.log");
+        Files.writeString(logFile, Files.readString(logFile), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (MmapHnswStore store = open()) {
+            store.add(List.of(chunk("p2", 2))).block();
+        }
+
+        try (MmapHnswStore store = open()) {
+            assertThat(chunkIds(search(store, 0, "p1"))).containsExactlyInAnyOrder("0", "1");
+            assertThat(chunkIds(search(store, 2, "p2"))).containsExactly("2");
+        }
+    }
+
+    private MmapHnswStore open() throws Exception {
+        return new MmapHnswStore(directory, DIMENSIONS, 8, 64, 32);
+    }
+
+    private static Document chunk(String docId, int n) {
+        Document document = new Document(new DocumentMetadata(
+                TextBlock.builder().text(docId + " chunk " + n).build(), docId, String.valueOf(n)));
+        document.setEmbedding(embedding(n));
+        return document;
+    }
+
+    private static double[] embedding(int n) {
+        double[] vector = new double[DIMENSIONS];
+        vector[n % DIMENSIONS] = 1.0;
+        vector[(n + 1) % DIMENSIONS] = 0.1;
+        return vector;
+    }
+
+    private static List<Document> search(MmapHnswStore store, int n, String docId) {
+        return store.search(SearchDocumentDto.builder().queryEmbedding(embedding(n)).limit(10).build(), docId)
+                .block();
+    }
+
+    private static List<String> chunkIds(List<Document> documents) {
+        return documents.stream().map(d -> d.getMetadata().getChunkId()).toList();
+    }
+}
@@ -0,0 +1,122 @@
+package com.zhemu.paperinsight.agent.common;
+
+import com.zhemu.paperinsight.agent.constant.PaperSection;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaperStructureExtractorTest {
+
+    private final PaperStructureExtractor extractor = new PaperStructureExtractor();
+
+    @Test
+    void extract_splitsEnglishNumberedHeadings() {
+        String text = String.join("\n",
+                "Attention Is All You Need",
+                "Ashish Vaswani, Noam Shazeer",
+                "Abstract",
+                "We propose a new simple network architecture.",
+                "1 Introduction",
+                "Recurrent models have been firmly established.",
+                "2. Related Work",
+                "Prior work reduces sequential computation.",
+                "III. Transformer Architecture",
+                "The encoder maps an input sequence.",
+                "3.1 Encoder and Decoder Stacks",
+                "The encoder is composed of six layers.",
+                "4 Experiments",
+                "We train on WMT 2014.",
+                "5 Conclusion",
+                "We presented the Transformer.",
+                "References",
+                "[1] Ba et al. Layer normalization.");
+
+        StructuredPaper paper = extractor.extract(text);
+
+        assertThat(paper.title()).isEqualTo("Attention Is All You Need");
+        assertThat(paper.sections()).containsOnlyKeys(PaperSection.ABSTRACT, PaperSection.INTRODUCTION,
+                PaperSection.OTHER, PaperSection.METHOD, PaperSection.EXPERIMENTS, PaperSection.CONCLUSION,
+                PaperSection.REFERENCES);
+        assertThat(paper.sections().get(PaperSection.METHOD))
+                .contains("The encoder maps", "3.1 Encoder and Decoder Stacks", "six layers");
+        assertThat(paper.sections().get(PaperSection.OTHER))
+                .contains("Ashish Vaswani", "Prior work")
+                .doesNotContain("The encoder");
+        assertThat(paper.sections().get(PaperSection.EXPERIMENTS)).contains("WMT 2014");
+    }
+
+    @Test
+    void extract_keepsInlineAbstractBody() {
+        String text = String.join("\n",
+                "Deep Residual Learning",
+                "Abstract—Deeper neural networks are more difficult to train.",
+                "We present a residual learning framework.",
+                "I. INTRODUCTION",
+                "Deep networks naturally integrate features.");
+
+        StructuredPaper paper = extractor.extract(text);
+
+        assertThat(paper.sections().get(PaperSection.ABSTRACT))
+                .startsWith("Deeper neural networks")
+                .contains("residual learning framework")
+                .doesNotContain("Abstract");
+        assertThat(paper.sections().get(PaperSection.INTRODUCTION)).contains("integrate features");
+    }
+
+    @Test
+    void extract_recognisesChineseHeadingsAndNumbering() {
+        String text = String.join("\n",
+                "基于图神经网络的推荐方法研究",
+                "摘　要：本文提出一种新的推荐模型。",
+                "第一章 绪论",
+                "推荐系统被广泛应用。",
+                "二、相关工作",
+                "已有研究主要基于协同过滤。",
+                "第三章 图卷积推荐模型",
+                "模型由编码器和解码器组成。",
+                "（一）编码器",
+                "编码器聚合邻居信息。",
+                "4、实验结果与分析",
+                "在三个数据集上验证了效果。",
+                "五、结论与展望",
+                "本文工作总结如下。",
+                "参考文献",
+                "[1] Kipf T N. Semi-supervised classification.");
+
+        StructuredPaper paper = extractor.extract(text);
+
+        assertThat(paper.title()).isEqualTo("基于图神经网络的推荐方法研究");
+        assertThat(paper.sections().get(PaperSection.ABSTRACT)).startsWith("本文提出");
+        assertThat(paper.sections().get(PaperSection.INTRODUCTION)).contains("广泛应用");
+        assertThat(paper.sections().get(PaperSection.OTHER)).contains("协同过滤");
+        assertThat(paper.sections().get(PaperSection.METHOD)).contains("编码器和解码器", "（一）编码器", "邻居信息");
+        assertThat(paper.sections().get(PaperSection.EXPERIMENTS)).contains("三个数据集");
+        assertThat(paper.sections().get(PaperSection.CONCLUSION)).contains("总结如下");
+        assertThat(paper.sections().get(PaperSection.REFERENCES)).contains("Kipf");
+    }
+
+    @Test
+    void extract_ignoresSpacedChineseHeadingNames() {
+        String text = String.join("\n", "论文标题", "引　言", "研究背景。", "结　论", "结论正文。");
+
+        StructuredPaper paper = extractor.extract(text);
+
+        assertThat(paper.sections()).containsOnlyKeys(PaperSection.INTRODUCTION, PaperSection.CONCLUSION);
+    }
+
+    @Test
+    void extract_fallsBackToOtherWithoutHeadings() {
+        String text = String.join("\n",
+                "A Short Note",
+                "This note has no recognisable section headings.",
+                "1 2 3 are just numbers in a table row",
+                "摘要显示这不是摘要标题。");
+
+        StructuredPaper paper = extractor.extract(text);
+
+        assertThat(paper.isStructured()).isFalse();
+        assertThat(paper.sections()).containsOnlyKeys(PaperSection.OTHER);
+        assertThat(paper.sections().get(PaperSection.OTHER))
+                .contains("no recognisable", "table row", "摘要显示");
+    }
+}
@@ -0,0 +1,99 @@
+package com.zhemu.paperinsight.agent.common;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.zhemu.paperinsight.agent.config.AgentPromptConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfDownloaderTest {
+
+    @Test
+    void download_resumedAfterPartialRead_hashesTheFileContent() throws Exception {
+        byte[] content = new byte[100_000];
+        new Random(5).nextBytes(content);
+        PdfDownloader downloader = new PdfDownloader(List.of(new FlakySource(content, 30_000)),
+                new AgentPromptConfig());
+
+        try (PdfDownloader.DownloadedPdf pdf = downloader.download("test://paper.pdf")) {
+            assertThat(Files.readAllBytes(pdf.file())).isEqualTo(content);
+            assertThat(pdf.sha256()).isEqualTo(DigestUtil.sha256Hex(content));
+            assertThat(pdf.size()).isEqualTo(content.length);
+        }
+    }
+
+    @Test
+    void download_withoutInterruption_hashesTheStream() throws Exception {
+        byte[] content = new byte[50_000];
+        new Random(6).nextBytes(content);
+        PdfDownloader downloader = new PdfDownloader(List.of(new FlakySource(content, Integer.MAX_VALUE)),
+                new AgentPromptConfig());
+
+        try (PdfDownloader.DownloadedPdf pdf = downloader.download("test://paper.pdf")) {
+            assertThat(pdf.sha256()).isEqualTo(DigestUtil.sha256Hex(content));
+        }
+    }
+
+    /**
+     * 第一次打开时读到 failAfter 字节后抛出 IOException，模拟连接中途断开；之后的续传正常
+     */
+    private static final class FlakySource implements PdfSource {
+
+        private final byte[] content;
+        private int failAfter;
+
+        private FlakySource(byte[] content, int failAfter) {
+            this.content = content;
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public boolean supports(String pdfUrl) {
+            return true;
+        }
+
+        @Override
+        public PdfStream open(String pdfUrl, long offset) {
+            int limit = failAfter;
+            failAfter = Integer.MAX_VALUE;
+            InputStream in = new InputStream() {
+                private int position = (int) offset;
+                private int read;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (read >= limit) {
+                        throw new IOException("connection reset");
+                    }
+                    if (position >= content.length) {
+                        return -1;
+                    }
+                    int n = Math.min(Math.min(len, content.length - position), limit - read);
+                    System.arraycopy(content, position, b, off, n);
+                    position += n;
+                    read += n;
+                    return n;
+                }
+
+                @Override
+                public int available() {
+                    // 让通道继续读满缓冲区，断开前读到的字节已计入摘要却未写入文件
+                    return content.length - position;
+                }
+            };
+            return new PdfStream(in, content.length - offset);
+        }
+    }
+}
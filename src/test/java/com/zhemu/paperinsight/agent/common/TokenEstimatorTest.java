@@ -0,0 +1,64 @@
+package com.zhemu.paperinsight.agent.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenEstimatorTest {
+
+    @Test
+    void estimate_countsCjkPerCharAndOtherPerFourChars() {
+        assertThat(TokenEstimator.estimate(null)).isZero();
+        assertThat(TokenEstimator.estimate("")).isZero();
+        assertThat(TokenEstimator.estimate("abcdefgh")).isEqualTo(2);
+        assertThat(TokenEstimator.estimate("abcdefghi")).isEqualTo(3);
+        assertThat(TokenEstimator.estimate("论文分析")).isEqualTo(4);
+        assertThat(TokenEstimator.estimate("论文 paper")).isEqualTo(2 + 2);
+    }
+
+    @Test
+    void split_keepsTextWithinBudgetAndLossless() {
+        String text = paragraph("alpha", 30) + "\n\n" + paragraph("beta", 50) + "\n\n" + paragraph("gamma", 20);
+
+        List<String> windows = TokenEstimator.split(text, 40);
+
+        assertThat(String.join("", windows)).isEqualTo(text);
+        assertThat(windows).allMatch(w -> TokenEstimator.estimate(w) <= 40);
+    }
+
+    @Test
+    void split_prefersParagraphBoundaries() {
+        String first = paragraph("first", 10) + "\n\n";
+        String second = paragraph("second", 10) + "\n\n";
+        String third = paragraph("third", 10);
+
+        List<String> windows = TokenEstimator.split(first + second + third, 45);
+
+        assertThat(windows).containsExactly(first + second, third);
+    }
+
+    @Test
+    void split_hardSplitsOverlongLine() {
+        String line = "论".repeat(250);
+
+        List<String> windows = TokenEstimator.split(line, 100);
+
+        assertThat(windows).containsExactly("论".repeat(100), "论".repeat(100), "论".repeat(50));
+    }
+
+    @Test
+    void split_blankTextYieldsNoWindows() {
+        assertThat(TokenEstimator.split("", 10)).isEmpty();
+        assertThat(TokenEstimator.split(" \n\n ", 10)).isEmpty();
+    }
+
+    private static String paragraph(String word, int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append(word).append(' ').append(i).append('\n');
+        }
+        return sb.toString().stripTrailing();
+    }
+}
@@ -0,0 +1,67 @@
+package com.zhemu.paperinsight.agent.wrapper;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.zhemu.paperinsight.agent.core.FusedAnalysisAgent;
+import com.zhemu.paperinsight.agent.core.ScoreAgent;
+import com.zhemu.paperinsight.model.entity.PaperInsight;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaperAnalysisAgentTest {
+
+    private static final String FUSED_RESPONSE = """
+            ```json
+            {
+              "summary": "A transformer for long documents.",
+              "innovation_points": ["Sparse attention", "Linear memory"],
+              "methods": "Encoder-decoder with block-sparse attention.",
+              "score": {
+                "score": 78,
+                "dimensions": {"innovation": 24, "technical": 25, "practicality": 14, "writing": 15},
+                "reasoning": "Solid engineering, limited evaluation."
+              }
+            }
+            ```""";
+
+    private final PaperAnalysisAgent agent = new PaperAnalysisAgent(null, null, null, null, null, null, null, null);
+
+    @Test
+    void fusedScore_isStoredWithDimensionsTheFrontendReads() {
+        JSONObject fused = agent.parseFused(FUSED_RESPONSE);
+        String score = agent.fusedField(fused, InsightDimensionEnum.Score);
+
+        PaperInsight insight = agent.toInsight(1L,
+                PaperAnalysisAgent.DimensionResult.success(InsightDimensionEnum.Score, score));
+
+        assertThat(insight.getScore()).isEqualTo(78);
+        JSONObject details = JSONUtil.parseObj(insight.getScoreDetails());
+        assertThat(details.getJSONObject(ScoreAgent.FIELD_DIMENSIONS).keySet())
+                .containsExactlyInAnyOrder("innovation", "technical", "practicality", "writing");
+        assertThat(details.getStr("reasoning")).isNotBlank();
+    }
+
+    @Test
+    void fusedScore_withoutDimensionsIsTreatedAsMissing() {
+        JSONObject fused = agent.parseFused("""
+                {"summary": "s", "score": {"score": 80, "novelty": 70, "comment": "old schema"}}""");
+
+        assertThat(agent.fusedField(fused, InsightDimensionEnum.Score)).isNull();
+        assertThat(agent.fusedField(fused, InsightDimensionEnum.Summary)).isEqualTo("s");
+    }
+
+    @Test
+    void fusedInnovationArray_isRenderedAsMarkdownList() {
+        JSONObject fused = agent.parseFused(FUSED_RESPONSE);
+
+        assertThat(agent.fusedField(fused, InsightDimensionEnum.Innovation))
+                .isEqualTo("- Sparse attention\n- Linear memory");
+    }
+
+    @Test
+    void defaultFusedPrompt_embedsTheScoreSchema() {
+        assertThat(FusedAnalysisAgent.DEFAULT_SYS_PROMPT).contains(ScoreAgent.OUTPUT_SCHEMA);
+    }
+}
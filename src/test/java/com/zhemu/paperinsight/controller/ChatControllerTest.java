@@ -49,7 +49,8 @@ class ChatControllerTest {
         Mockito.when(e1.isLast()).thenReturn(false);
         Mockito.when(e1.getMessage()).thenReturn(delta);
 
-        Mockito.when(chatAgent.stream(any(Msg.class), anyString(), anyString())).thenReturn(Flux.just(e1));
+        Mockito.when(chatAgent.stream(any(Msg.class), anyString(), anyString(), Mockito.eq(1L)))
+                .thenReturn(Flux.just(e1));
 
         List<String> events = controller.chatStream("chat_test", "hi", "hi", null)
                 .map(sse -> sse.data())
@@ -0,0 +1,42 @@
+package com.zhemu.paperinsight.mq;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisDeduplicatorTest {
+
+    private static final String BODY = "Attention is all you need. We propose a new simple network architecture, "
+            + "the Transformer, based solely on attention mechanisms, dispensing with recurrence and convolutions "
+            + "entirely. Experiments on two machine translation tasks show these models to be superior in quality.";
+
+    @Test
+    void textHash_ignoresWhitespacePunctuationAndCase() {
+        String reExported = BODY.toUpperCase().replace(" ", "\n  ").replace(",", " ;");
+
+        assertThat(AnalysisDeduplicator.textHash(reExported)).isEqualTo(AnalysisDeduplicator.textHash(BODY));
+    }
+
+    @Test
+    void textHash_differsForDifferentContent() {
+        assertThat(AnalysisDeduplicator.textHash(BODY.replace("superior", "inferior")))
+                .isNotEqualTo(AnalysisDeduplicator.textHash(BODY));
+    }
+
+    @Test
+    void textHash_keepsCjkCharacters() {
+        String chinese = "基于注意力机制的序列建模".repeat(20);
+
+        assertThat(AnalysisDeduplicator.textHash(chinese)).hasSize(64);
+        assertThat(AnalysisDeduplicator.textHash(chinese.replace("序列", "图像")))
+                .isNotEqualTo(AnalysisDeduplicator.textHash(chinese));
+    }
+
+    @Test
+    void textHash_returnsNullForShortOrMissingText() {
+        assertThat(AnalysisDeduplicator.textHash(null)).isNull();
+        assertThat(AnalysisDeduplicator.textHash("")).isNull();
+        // 扫描件只提取到页码与标点
+        assertThat(AnalysisDeduplicator.textHash("1 . 2 . 3 ... \f".repeat(50))).isNull();
+    }
+}
@@ -0,0 +1,146 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.json.JSONUtil;
+import com.rabbitmq.client.Channel;
+import com.zhemu.paperinsight.agent.wrapper.PaperAnalysisAgent;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.dto.mq.PaperInsightResultMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.model.enums.InsightDimensionEnum;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+class AnalysisTaskConsumerTest {
+
+    private static final long DELIVERY_TAG = 11L;
+
+    private PaperAnalysisAgent paperAnalysisAgent;
+    private MessageProducer messageProducer;
+    private PaperAnalysisTaskService paperAnalysisTaskService;
+    private AnalysisStageRetrier analysisStageRetrier;
+    private Channel channel;
+    private AnalysisTaskConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        paperAnalysisAgent = Mockito.mock(PaperAnalysisAgent.class);
+        messageProducer = Mockito.mock(MessageProducer.class);
+        paperAnalysisTaskService = Mockito.mock(PaperAnalysisTaskService.class);
+        analysisStageRetrier = Mockito.mock(AnalysisStageRetrier.class);
+        channel = Mockito.mock(Channel.class);
+        consumer = new AnalysisTaskConsumer(paperAnalysisAgent, messageProducer, paperAnalysisTaskService,
+                analysisStageRetrier);
+    }
+
+    @Test
+    void receive_redeliveredAfterAnalysis_skipsModelCalls() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getByRunId("run-1")).thenReturn(checkpoint(AnalysisStageEnum.Persist));
+
+        consumer.receiveAnalysisTask(JSONUtil.toJsonStr(task()), channel, message());
+
+        Mockito.verify(paperAnalysisAgent, Mockito.never()).analyzeDimensions(any(), any(), any());
+        Mockito.verify(messageProducer, Mockito.never()).sendAnalysisStage(anyString(), any());
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_allDimensionsDone_publishesEachResultAndAdvancesCheckpoint() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getByRunId("run-1")).thenReturn(checkpoint(AnalysisStageEnum.Analyze));
+        Mockito.when(paperAnalysisAgent.analyzeDimensions(eq("sha"), any(), any())).thenReturn(Flux.just(
+                PaperAnalysisAgent.DimensionResult.success(InsightDimensionEnum.Summary, "summary text"),
+                PaperAnalysisAgent.DimensionResult.success(InsightDimensionEnum.Score, "{\"score\":8}")));
+
+        PaperAnalysisMessage task = task();
+        task.setDimensions(List.of("summary", "score"));
+        consumer.receiveAnalysisTask(JSONUtil.toJsonStr(task), channel, message());
+
+        assertThat(published()).extracting(PaperInsightResultMessage::getDimension)
+                .containsExactly("summary", "score");
+        Mockito.verify(paperAnalysisTaskService).advance("run-1", AnalysisStageEnum.Persist);
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_retriesExhausted_publishesFailuresForRemainingDimensionsOnly() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getByRunId("run-1")).thenReturn(checkpoint(AnalysisStageEnum.Analyze));
+        Mockito.when(paperAnalysisAgent.analyzeDimensions(eq("sha"), any(), any())).thenReturn(Flux.concat(
+                Flux.just(PaperAnalysisAgent.DimensionResult.success(InsightDimensionEnum.Summary, "summary text")),
+                Flux.error(new IllegalStateException("text reference expired"))));
+        Mockito.when(analysisStageRetrier.retry(eq(RabbitMqConfig.PAPER_ANALYZE_QUEUE), any(), any(), any()))
+                .thenReturn(false);
+
+        PaperAnalysisMessage task = task();
+        task.setAttempt(3);
+        consumer.receiveAnalysisTask(JSONUtil.toJsonStr(task), channel, message());
+
+        List<PaperInsightResultMessage> published = published();
+        assertThat(published).hasSize(InsightDimensionEnum.values().length);
+        assertThat(published.get(0).getDimension()).isEqualTo("summary");
+        assertThat(published.get(0).getError()).isNull();
+        assertThat(published.subList(1, published.size()))
+                .extracting(PaperInsightResultMessage::getDimension)
+                .containsExactlyInAnyOrder("innovation", "methods", "score");
+        assertThat(published.subList(1, published.size())).allSatisfy(result -> {
+            assertThat(result.getError()).contains("text reference expired");
+            assertThat(result.getTask().getAttempt()).isNull();
+        });
+        Mockito.verify(paperAnalysisTaskService, Mockito.never()).advance(anyString(), any());
+        Mockito.verify(channel).basicNack(DELIVERY_TAG, false, false);
+    }
+
+    @Test
+    void receive_retryScheduled_acksWithoutPublishingFailures() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getByRunId("run-1")).thenReturn(checkpoint(AnalysisStageEnum.Analyze));
+        Mockito.when(paperAnalysisAgent.analyzeDimensions(eq("sha"), any(), any()))
+                .thenReturn(Flux.error(new IllegalStateException("text reference expired")));
+        Mockito.when(analysisStageRetrier.retry(eq(RabbitMqConfig.PAPER_ANALYZE_QUEUE), any(), any(), any()))
+                .thenReturn(true);
+
+        consumer.receiveAnalysisTask(JSONUtil.toJsonStr(task()), channel, message());
+
+        Mockito.verify(messageProducer, Mockito.never()).sendAnalysisStage(anyString(), any());
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    private List<PaperInsightResultMessage> published() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(messageProducer, Mockito.atLeast(0))
+                .sendAnalysisStage(eq(RabbitMqConfig.PAPER_PERSIST_QUEUE), captor.capture());
+        return captor.getAllValues().stream().map(PaperInsightResultMessage.class::cast).toList();
+    }
+
+    private static PaperAnalysisMessage task() {
+        return PaperAnalysisMessage.builder()
+                .paperId(1L)
+                .userId(10L)
+                .pdfUrl("https://cos.example.com/paper/1.pdf")
+                .runId("run-1")
+                .textSha256("sha")
+                .build();
+    }
+
+    private static PaperAnalysisTask checkpoint(AnalysisStageEnum stage) {
+        return PaperAnalysisTask.builder().stage(stage.getValue()).textSha256("sha").build();
+    }
+
+    private static Message message() {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        return new Message(new byte[0], properties);
+    }
+}
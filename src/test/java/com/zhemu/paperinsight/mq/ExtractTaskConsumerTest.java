@@ -0,0 +1,147 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.json.JSONUtil;
+import com.rabbitmq.client.Channel;
+import com.zhemu.paperinsight.agent.tools.PdfExtractionTool;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.dto.mq.PaperInsightResultMessage;
+import com.zhemu.paperinsight.model.entity.PaperAnalysisTask;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+class ExtractTaskConsumerTest {
+
+    private static final long DELIVERY_TAG = 7L;
+    private static final String PDF_URL = "https://cos.example.com/paper/1.pdf";
+
+    private PdfExtractionTool pdfExtractionTool;
+    private MessageProducer messageProducer;
+    private PaperAnalysisTaskService paperAnalysisTaskService;
+    private AnalysisStageRetrier analysisStageRetrier;
+    private AnalysisDeduplicator analysisDeduplicator;
+    private Channel channel;
+    private ExtractTaskConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        pdfExtractionTool = Mockito.mock(PdfExtractionTool.class);
+        messageProducer = Mockito.mock(MessageProducer.class);
+        paperAnalysisTaskService = Mockito.mock(PaperAnalysisTaskService.class);
+        analysisStageRetrier = Mockito.mock(AnalysisStageRetrier.class);
+        analysisDeduplicator = Mockito.mock(AnalysisDeduplicator.class);
+        channel = Mockito.mock(Channel.class);
+        consumer = new ExtractTaskConsumer(pdfExtractionTool, messageProducer, paperAnalysisTaskService,
+                analysisStageRetrier, analysisDeduplicator);
+    }
+
+    @Test
+    void receive_redeliveredAfterExtraction_forwardsCheckpointTextWithoutExtracting() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getOrCreate(any()))
+                .thenReturn(checkpoint(AnalysisStageEnum.Analyze, "sha-from-checkpoint"));
+
+        consumer.receiveExtractTask(JSONUtil.toJsonStr(task(2)), channel, message());
+
+        Mockito.verify(pdfExtractionTool, Mockito.never()).extractToCache(anyString());
+        Mockito.verify(paperAnalysisTaskService, Mockito.never()).markExtracted(any(), any(), any(), any());
+        ArgumentCaptor<Object> forwarded = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(messageProducer).sendAnalysisStage(eq(RabbitMqConfig.PAPER_ANALYZE_QUEUE), forwarded.capture());
+        PaperAnalysisMessage next = (PaperAnalysisMessage) forwarded.getValue();
+        assertThat(next.getTextSha256()).isEqualTo("sha-from-checkpoint");
+        assertThat(next.getRunId()).isEqualTo("run-1");
+        assertThat(next.getAttempt()).isNull();
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_redeliveredAfterAnalysis_skipsAllWork() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getOrCreate(any()))
+                .thenReturn(checkpoint(AnalysisStageEnum.Persist, "sha"));
+
+        consumer.receiveExtractTask(JSONUtil.toJsonStr(task(null)), channel, message());
+
+        Mockito.verify(pdfExtractionTool, Mockito.never()).extractToCache(anyString());
+        Mockito.verify(messageProducer, Mockito.never()).sendAnalysisStage(anyString(), any());
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_extractionRetriesExhausted_publishesFailureForEveryDimension() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getOrCreate(any()))
+                .thenReturn(checkpoint(AnalysisStageEnum.Extract, null));
+        Mockito.when(pdfExtractionTool.extractToCache(PDF_URL)).thenThrow(new IOException("connection reset"));
+        Mockito.when(analysisStageRetrier.retry(eq(RabbitMqConfig.PAPER_ANALYSIS_QUEUE), any(), any(), any()))
+                .thenReturn(false);
+
+        PaperAnalysisMessage task = task(3);
+        task.setDimensions(List.of("summary", "score"));
+        consumer.receiveExtractTask(JSONUtil.toJsonStr(task), channel, message());
+
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(messageProducer, Mockito.times(2))
+                .sendAnalysisStage(eq(RabbitMqConfig.PAPER_PERSIST_QUEUE), published.capture());
+        assertThat(published.getAllValues())
+                .extracting(m -> ((PaperInsightResultMessage) m).getDimension())
+                .containsExactlyInAnyOrder("summary", "score");
+        assertThat(published.getAllValues()).allSatisfy(m -> {
+            PaperInsightResultMessage result = (PaperInsightResultMessage) m;
+            assertThat(result.getError()).contains("connection reset");
+            assertThat(result.getContent()).isNull();
+            assertThat(result.getTask().getAttempt()).isNull();
+        });
+        Mockito.verify(messageProducer, Mockito.never())
+                .sendAnalysisStage(eq(RabbitMqConfig.PAPER_ANALYZE_QUEUE), any());
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_retryCannotBeScheduled_requeuesMessage() throws Exception {
+        Mockito.when(paperAnalysisTaskService.getOrCreate(any()))
+                .thenReturn(checkpoint(AnalysisStageEnum.Extract, null));
+        Mockito.when(pdfExtractionTool.extractToCache(PDF_URL)).thenThrow(new IOException("connection reset"));
+        Mockito.when(analysisStageRetrier.retry(anyString(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("broker unavailable"));
+
+        consumer.receiveExtractTask(JSONUtil.toJsonStr(task(1)), channel, message());
+
+        Mockito.verify(channel).basicNack(DELIVERY_TAG, false, true);
+        Mockito.verify(channel, Mockito.never()).basicAck(Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
+    private static PaperAnalysisMessage task(Integer attempt) {
+        return PaperAnalysisMessage.builder()
+                .paperId(1L)
+                .userId(10L)
+                .pdfUrl(PDF_URL)
+                .runId("run-1")
+                .attempt(attempt)
+                .build();
+    }
+
+    private static PaperAnalysisTask checkpoint(AnalysisStageEnum stage, String textSha256) {
+        return PaperAnalysisTask.builder()
+                .stage(stage.getValue())
+                .textSha256(textSha256)
+                .build();
+    }
+
+    private static Message message() {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        return new Message(new byte[0], properties);
+    }
+}
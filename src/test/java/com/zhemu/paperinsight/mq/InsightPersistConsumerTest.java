@@ -0,0 +1,145 @@
+package com.zhemu.paperinsight.mq;
+
+import cn.hutool.json.JSONUtil;
+import com.rabbitmq.client.Channel;
+import com.zhemu.paperinsight.agent.wrapper.PaperAnalysisAgent;
+import com.zhemu.paperinsight.config.RabbitMqConfig;
+import com.zhemu.paperinsight.model.dto.mq.PaperAnalysisMessage;
+import com.zhemu.paperinsight.model.dto.mq.PaperInsightResultMessage;
+import com.zhemu.paperinsight.model.entity.PaperInsight;
+import com.zhemu.paperinsight.model.enums.AnalysisStageEnum;
+import com.zhemu.paperinsight.model.enums.InsightStatusEnum;
+import com.zhemu.paperinsight.model.enums.NotificationTypeEnum;
+import com.zhemu.paperinsight.service.NotificationService;
+import com.zhemu.paperinsight.service.PaperAnalysisTaskService;
+import com.zhemu.paperinsight.service.PaperInsightService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+class InsightPersistConsumerTest {
+
+    private static final long DELIVERY_TAG = 13L;
+
+    private PaperAnalysisAgent paperAnalysisAgent;
+    private PaperInsightService paperInsightService;
+    private NotificationService notificationService;
+    private PaperAnalysisTaskService paperAnalysisTaskService;
+    private MessageProducer messageProducer;
+    private AnalysisStageRetrier analysisStageRetrier;
+    private Channel channel;
+    private InsightPersistConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        paperAnalysisAgent = Mockito.mock(PaperAnalysisAgent.class);
+        paperInsightService = Mockito.mock(PaperInsightService.class);
+        notificationService = Mockito.mock(NotificationService.class);
+        paperAnalysisTaskService = Mockito.mock(PaperAnalysisTaskService.class);
+        messageProducer = Mockito.mock(MessageProducer.class);
+        analysisStageRetrier = Mockito.mock(AnalysisStageRetrier.class);
+        channel = Mockito.mock(Channel.class);
+        consumer = new InsightPersistConsumer(paperAnalysisAgent, paperInsightService, notificationService,
+                paperAnalysisTaskService, messageProducer, analysisStageRetrier);
+        Mockito.when(paperAnalysisAgent.toInsight(any(), any())).thenReturn(new PaperInsight());
+    }
+
+    @Test
+    void receive_lastResultDeliveredTwice_finishesExactlyOnce() throws Exception {
+        Mockito.when(paperInsightService.getOne(any())).thenReturn(insight(InsightStatusEnum.Success));
+        // 检查点只允许推进一次：重复投递或并发完成的消费者推进失败
+        Mockito.when(paperAnalysisTaskService.advance("run-1", AnalysisStageEnum.Index)).thenReturn(true, false);
+
+        String body = JSONUtil.toJsonStr(result(null, "score", null));
+        consumer.receiveInsightResult(body, channel, message());
+        consumer.receiveInsightResult(body, channel, message());
+
+        Mockito.verify(notificationService, Mockito.times(1)).notifyPaperAnalysis(eq(10L), eq(1L),
+                eq(NotificationTypeEnum.PaperAnalysisSuccess), anyString(), eq(8));
+        Mockito.verify(messageProducer, Mockito.times(1))
+                .sendAnalysisStage(eq(RabbitMqConfig.PAPER_INDEX_QUEUE), any());
+        Mockito.verify(paperInsightService, Mockito.times(2)).update(any(PaperInsight.class), any());
+        Mockito.verify(channel, Mockito.times(2)).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_dimensionsStillPending_doesNotFinish() throws Exception {
+        PaperInsight insight = insight(InsightStatusEnum.Success);
+        insight.setMethodsStatus(InsightStatusEnum.Pending.getValue());
+        Mockito.when(paperInsightService.getOne(any())).thenReturn(insight);
+
+        consumer.receiveInsightResult(JSONUtil.toJsonStr(result(null, "summary", null)), channel, message());
+
+        Mockito.verify(paperAnalysisTaskService, Mockito.never()).advance(anyString(), any());
+        Mockito.verifyNoInteractions(notificationService, messageProducer);
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_singleDimensionRunFailed_notifiesFailureWithoutIndexing() throws Exception {
+        PaperInsight insight = insight(InsightStatusEnum.Success);
+        insight.setMethodsStatus(InsightStatusEnum.Failed.getValue());
+        Mockito.when(paperInsightService.getOne(any())).thenReturn(insight);
+        Mockito.when(paperAnalysisTaskService.advance("run-1", AnalysisStageEnum.Done)).thenReturn(true);
+
+        consumer.receiveInsightResult(JSONUtil.toJsonStr(result(List.of("methods"), "methods", "timeout")),
+                channel, message());
+
+        Mockito.verify(notificationService).notifyPaperAnalysis(eq(10L), eq(1L),
+                eq(NotificationTypeEnum.PaperAnalysisFailed), Mockito.contains("方法论"), any());
+        Mockito.verify(messageProducer, Mockito.never()).sendAnalysisStage(anyString(), any());
+        Mockito.verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void receive_writeFailsWithRetriesExhausted_dropsMessage() throws Exception {
+        Mockito.when(paperInsightService.update(any(PaperInsight.class), any()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+        Mockito.when(analysisStageRetrier.retry(eq(RabbitMqConfig.PAPER_PERSIST_QUEUE), any(), any(), any()))
+                .thenReturn(false);
+
+        consumer.receiveInsightResult(JSONUtil.toJsonStr(result(null, "summary", null)), channel, message());
+
+        Mockito.verifyNoInteractions(notificationService);
+        Mockito.verify(channel).basicNack(DELIVERY_TAG, false, false);
+    }
+
+    private static PaperInsightResultMessage result(List<String> dimensions, String dimension, String error) {
+        PaperAnalysisMessage task = PaperAnalysisMessage.builder()
+                .paperId(1L)
+                .userId(10L)
+                .runId("run-1")
+                .dimensions(dimensions)
+                .build();
+        return PaperInsightResultMessage.builder()
+                .task(task)
+                .dimension(dimension)
+                .content(error == null ? "content" : null)
+                .error(error)
+                .build();
+    }
+
+    private static PaperInsight insight(InsightStatusEnum status) {
+        return PaperInsight.builder()
+                .score(8)
+                .summaryStatus(status.getValue())
+                .innovationStatus(status.getValue())
+                .methodsStatus(status.getValue())
+                .scoreStatus(status.getValue())
+                .build();
+    }
+
+    private static Message message() {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        return new Message(new byte[0], properties);
+    }
+}